@@ -0,0 +1,168 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Creates the synthetic input files and other fixtures used by the benchmarks.
+ */
+final class BenchmarkSupport {
+
+    /**
+     * Prevents instantiation.
+     */
+    private BenchmarkSupport() {
+        // utility class
+    }
+
+    /**
+     * Creates a new temporary directory.
+     *
+     * @param prefix The prefix for the directory name, must not be <code>null</code>.
+     * @return The new directory, never <code>null</code>.
+     * @throws IOException If the directory could not be created.
+     */
+    static File createTempDirectory(String prefix) throws IOException {
+        return Files.createTempDirectory("javacc-jmh-" + prefix).toFile();
+    }
+
+    /**
+     * Deletes a directory created by {@link #createTempDirectory(String)}.
+     *
+     * @param directory The directory to delete, may be <code>null</code>.
+     * @throws IOException If the directory could not be deleted.
+     */
+    static void deleteDirectory(File directory) throws IOException {
+        if (directory != null) {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Writes a synthetic grammar file. Only the header matters for the scanning benchmarks, so the grammar body is a
+     * fixed block of productions that pads the file to a realistic size.
+     *
+     * @param sourceDirectory The source directory, must not be <code>null</code>.
+     * @param index The number of the grammar, used to derive its package and parser name.
+     * @return The path to the grammar file, relative to the source directory, never <code>null</code>.
+     * @throws IOException If the grammar file could not be written.
+     */
+    static String writeGrammar(File sourceDirectory, int index) throws IOException {
+        String packageName = "org.example.p" + (index / 100);
+        String parserName = "Parser" + index;
+        String path = packageName.replace('.', '/') + '/' + parserName + ".jj";
+        StringBuilder grammar = new StringBuilder(4096);
+        grammar.append("/* Synthetic grammar for benchmarks */\n");
+        grammar.append("options {\n  STATIC = false;\n}\n\n");
+        grammar.append("PARSER_BEGIN(").append(parserName).append(")\n\n");
+        grammar.append("package ").append(packageName).append(";\n\n");
+        grammar.append("public class ").append(parserName).append(" {\n}\n\n");
+        grammar.append("PARSER_END(").append(parserName).append(")\n\n");
+        grammar.append("SKIP : { \" \" | \"\\t\" | \"\\n\" | \"\\r\" }\n\n");
+        grammar.append("TOKEN : { < ID: [\"a\"-\"z\"] ([\"a\"-\"z\",\"0\"-\"9\"])* > }\n\n");
+        for (int i = 0; i < 40; i++) {
+            grammar.append("void Production").append(i).append("() :\n{}\n{\n  <ID> ( \"+\" <ID> )*\n}\n\n");
+        }
+        File file = new File(sourceDirectory, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        FileUtils.fileWrite(file, "UTF-8", grammar.toString());
+        return path;
+    }
+
+    /**
+     * Writes synthetic generated Java files.
+     *
+     * @param directory The directory to write the files to, must not be <code>null</code>.
+     * @param count The number of files to write.
+     * @param size The approximate size of each file in bytes.
+     * @throws IOException If a file could not be written.
+     */
+    static void writeJavaFiles(File directory, int count, int size) throws IOException {
+        Files.createDirectories(directory.toPath());
+        for (int i = 0; i < count; i++) {
+            StringBuilder source = new StringBuilder(size + 64);
+            source.append("/* Generated By:JavaCC: Do not edit this line. Generated").append(i).append(".java */\n");
+            source.append("class Generated").append(i).append(" {\n");
+            while (source.length() < size) {
+                source.append("  static final int[] jj_la1_").append(source.length()).append(" = {0x1, 0x2, 0x4};\n");
+            }
+            source.append("}\n");
+            FileUtils.fileWrite(new File(directory, "Generated" + i + ".java"), "UTF-8", source.toString());
+        }
+    }
+
+    /**
+     * Copies a grammar file shipped with the benchmarks to the specified directory.
+     *
+     * @param resource The name of the grammar resource, must not be <code>null</code>.
+     * @param directory The directory to copy the grammar file to, must not be <code>null</code>.
+     * @return The copied grammar file, never <code>null</code>.
+     * @throws IOException If the grammar file could not be copied.
+     */
+    static File copyResource(String resource, File directory) throws IOException {
+        File file = new File(directory, resource);
+        try (InputStream is = BenchmarkSupport.class.getResourceAsStream("/" + resource)) {
+            if (is == null) {
+                throw new IOException("Missing benchmark resource: " + resource);
+            }
+            Files.createDirectories(directory.toPath());
+            Files.copy(is, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    /**
+     * Creates a logger that discards debug messages, such that the benchmarks do not measure console output.
+     *
+     * @return The logger, never <code>null</code>.
+     */
+    static Log newQuietLog() {
+        return new SystemStreamLog() {
+            @Override
+            public boolean isDebugEnabled() {
+                return false;
+            }
+
+            @Override
+            public void debug(CharSequence content) {
+                // discard
+            }
+
+            @Override
+            public void debug(CharSequence content, Throwable error) {
+                // discard
+            }
+
+            @Override
+            public void debug(Throwable error) {
+                // discard
+            }
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures <code>AbstractJavaCCMojo.copyGrammarOutput()</code> for the files of a typical parser, once into an empty
+ * compile source root and once into a compile source root that already holds identical files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CopyGrammarOutputBenchmark {
+
+    @Param({"false", "true"})
+    private boolean unchanged;
+
+    private File directory;
+
+    private File tempDirectory;
+
+    private File outputDirectory;
+
+    private JavaCCMojo mojo;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.directory = BenchmarkSupport.createTempDirectory("copy");
+        this.tempDirectory = new File(this.directory, "temp");
+        this.outputDirectory = new File(this.directory, "generated");
+        BenchmarkSupport.writeJavaFiles(this.tempDirectory, 8, 16 * 1024);
+
+        this.mojo = new JavaCCMojo();
+        this.mojo.setLog(BenchmarkSupport.newQuietLog());
+        this.mojo.setNonGeneratedSourceRoots(Collections.emptySet());
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareOutputDirectory() throws Exception {
+        if (!this.unchanged) {
+            BenchmarkSupport.deleteDirectory(this.outputDirectory);
+        } else if (!this.outputDirectory.exists()) {
+            copy();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkSupport.deleteDirectory(this.directory);
+    }
+
+    @Benchmark
+    public void copy() throws MojoExecutionException {
+        this.mojo.copyGrammarOutput(this.outputDirectory, "org.example", this.tempDirectory, "Parser*");
+    }
+}
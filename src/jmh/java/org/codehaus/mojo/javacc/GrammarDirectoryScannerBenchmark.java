@@ -0,0 +1,93 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures <code>GrammarDirectoryScanner.scan()</code> over synthetic source trees, once for a clean build where all
+ * grammars are stale and once for an incremental build where all generated parsers are up to date.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GrammarDirectoryScannerBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int grammars;
+
+    @Param({"false", "true"})
+    private boolean upToDate;
+
+    private File directory;
+
+    private File sourceDirectory;
+
+    private File outputDirectory;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.directory = BenchmarkSupport.createTempDirectory("scanner");
+        this.sourceDirectory = new File(this.directory, "src");
+        this.outputDirectory = new File(this.directory, "generated");
+        for (int i = 0; i < this.grammars; i++) {
+            String grammar = BenchmarkSupport.writeGrammar(this.sourceDirectory, i);
+            if (this.upToDate) {
+                File parserFile = new File(this.outputDirectory, grammar.replace(".jj", ".java"));
+                parserFile.getParentFile().mkdirs();
+                parserFile.createNewFile();
+                parserFile.setLastModified(System.currentTimeMillis() + 60000);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkSupport.deleteDirectory(this.directory);
+    }
+
+    @Benchmark
+    public GrammarInfo[] scan() throws IOException {
+        GrammarDirectoryScanner scanner = new GrammarDirectoryScanner();
+        scanner.setSourceDirectory(this.sourceDirectory);
+        scanner.setIncludes(new String[] {"**/*.jj"});
+        scanner.setOutputDirectory(this.outputDirectory);
+        scanner.scan();
+        return scanner.getIncludedGrammars();
+    }
+}
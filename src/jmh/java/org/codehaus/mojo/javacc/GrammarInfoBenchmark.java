@@ -0,0 +1,74 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the construction of <code>GrammarInfo</code>, i.e. scanning the header of a grammar file for its package and
+ * parser name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrammarInfoBenchmark {
+
+    private File sourceDirectory;
+
+    private String grammar;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.sourceDirectory = BenchmarkSupport.createTempDirectory("grammar-info");
+        this.grammar = BenchmarkSupport.writeGrammar(this.sourceDirectory, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkSupport.deleteDirectory(this.sourceDirectory);
+    }
+
+    @Benchmark
+    public GrammarInfo newGrammarInfo() throws IOException {
+        return new GrammarInfo(this.sourceDirectory, this.grammar);
+    }
+
+    @Benchmark
+    public GrammarInfo newGrammarInfoWithPackage() throws IOException {
+        return new GrammarInfo(this.sourceDirectory, this.grammar, "org.example.custom");
+    }
+}
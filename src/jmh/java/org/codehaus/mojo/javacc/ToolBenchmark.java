@@ -0,0 +1,99 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures end-to-end runs of JavaCC and JJTree through their facades on the grammars of the integration tests
+ * <code>javacc-basic</code> and <code>jjtree-javacc-basic</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ToolBenchmark {
+
+    private File directory;
+
+    private File javaccGrammar;
+
+    private File jjtreeGrammar;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.directory = BenchmarkSupport.createTempDirectory("tools");
+        this.javaccGrammar = BenchmarkSupport.copyResource("BasicParser.jj", new File(this.directory, "src"));
+        this.jjtreeGrammar = BenchmarkSupport.copyResource("Simple.jjt", new File(this.directory, "src"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkSupport.deleteDirectory(this.directory);
+    }
+
+    @Benchmark
+    public void javacc() throws Exception {
+        JavaCC javacc = new JavaCC();
+        javacc.setLog(BenchmarkSupport.newQuietLog());
+        javacc.setInputFile(this.javaccGrammar);
+        javacc.setOutputDirectory(new File(this.directory, "javacc"));
+        javacc.run();
+    }
+
+    @Benchmark
+    public void jjtree() throws Exception {
+        runJJTree();
+    }
+
+    @Benchmark
+    public void jjtreeAndJavacc() throws Exception {
+        JavaCC javacc = new JavaCC();
+        javacc.setLog(BenchmarkSupport.newQuietLog());
+        javacc.setInputFile(runJJTree());
+        javacc.setOutputDirectory(new File(this.directory, "jjtree-javacc"));
+        javacc.run();
+    }
+
+    private File runJJTree() throws Exception {
+        JJTree jjtree = new JJTree();
+        jjtree.setLog(BenchmarkSupport.newQuietLog());
+        jjtree.setInputFile(this.jjtreeGrammar);
+        jjtree.setOutputDirectory(new File(this.directory, "jjtree"));
+        jjtree.run();
+        return jjtree.getOutputFile();
+    }
+}
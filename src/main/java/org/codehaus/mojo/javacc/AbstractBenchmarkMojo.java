@@ -0,0 +1,379 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Provides common services for all mojos that measure generated parsers on a corpus of inputs.
+ *
+ * @since 3.3
+ */
+public abstract class AbstractBenchmarkMojo extends AbstractMojo {
+
+    /**
+     * The current Maven project.
+     */
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    /**
+     * The current mojo execution, used to name the report files.
+     */
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution mojoExecution;
+
+    /**
+     * The directory with the inputs to parse. The inputs of a parser are the files in the subdirectory named after the
+     * simple name of the parser class.
+     */
+    @Parameter(property = "javacc.corpusDirectory", defaultValue = "${basedir}/src/test/corpus")
+    private File corpusDirectory;
+
+    /**
+     * The encoding of the input files in the corpus directory.
+     */
+    @Parameter(property = "javacc.corpusEncoding", defaultValue = "${project.build.sourceEncoding}")
+    private String corpusEncoding;
+
+    /**
+     * The encoding of the grammar files and of the generated parser files.
+     */
+    @Parameter(property = "javacc.grammarEncoding", defaultValue = "${project.build.sourceEncoding}")
+    private String grammarEncoding;
+
+    /**
+     * The name of the production invoked to parse an input. The production must not take parameters. By default, the
+     * first such production of each parser is used, which is usually the first production of its grammar.
+     */
+    @Parameter(property = "javacc.startProduction")
+    private String startProduction;
+
+    /**
+     * The number of iterations run before measuring, to let the JIT compiler optimize the parser.
+     */
+    @Parameter(property = "javacc.warmupIterations", defaultValue = "3")
+    private int warmupIterations = 3;
+
+    /**
+     * The number of measured iterations.
+     */
+    @Parameter(property = "javacc.measurementIterations", defaultValue = "5")
+    private int measurementIterations = 5;
+
+    /**
+     * The duration of an iteration in milliseconds.
+     */
+    @Parameter(property = "javacc.iterationTime", defaultValue = "1000")
+    private int iterationTime = 1000;
+
+    /**
+     * A flag whether to skip the benchmark.
+     */
+    @Parameter(property = "javacc.skipBenchmark", defaultValue = "false")
+    private boolean skip;
+
+    /**
+     * Gets the current Maven project.
+     *
+     * @return The current Maven project, never <code>null</code>.
+     */
+    protected MavenProject getProject() {
+        return this.project;
+    }
+
+    /**
+     * Gets the encoding of the grammar files and of the generated parser files.
+     *
+     * @return The encoding or <code>null</code> to use the platform default.
+     */
+    protected String getGrammarEncoding() {
+        return this.grammarEncoding;
+    }
+
+    /**
+     * Benchmarks the parsers, unless skipped.
+     *
+     * @throws MojoExecutionException If a parser could not be benchmarked.
+     * @throws MojoFailureException If the results of the benchmark failed a check.
+     */
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (this.skip) {
+            getLog().info("Skipping benchmark");
+            return;
+        }
+        executeBenchmark();
+    }
+
+    /**
+     * Benchmarks the parsers.
+     *
+     * @throws MojoExecutionException If a parser could not be benchmarked.
+     * @throws MojoFailureException If the results of the benchmark failed a check.
+     */
+    protected abstract void executeBenchmark() throws MojoExecutionException, MojoFailureException;
+
+    /**
+     * Scans the specified directory for grammar files.
+     *
+     * @param sourceDirectory The directory to scan, must not be <code>null</code>.
+     * @param includes The patterns used to select grammar files, must not be <code>null</code>.
+     * @param excludes The patterns used to exclude grammar files, may be <code>null</code>.
+     * @return The grammar infos describing the found grammar files, never <code>null</code>.
+     * @throws MojoExecutionException If the directory could not be scanned.
+     */
+    protected GrammarInfo[] scanForGrammars(File sourceDirectory, String[] includes, String[] excludes)
+            throws MojoExecutionException {
+        if (!sourceDirectory.isDirectory()) {
+            getLog().debug("Skipping non-existing source directory: " + sourceDirectory);
+            return new GrammarInfo[0];
+        }
+        try {
+            GrammarDirectoryScanner scanner = new GrammarDirectoryScanner();
+            scanner.setSourceDirectory(sourceDirectory);
+            scanner.setIncludes(includes);
+            scanner.setExcludes(excludes);
+            scanner.setGrammarEncoding(this.grammarEncoding);
+            scanner.scan();
+            return scanner.getIncludedGrammars();
+        } catch (Exception e) {
+            throw new MojoExecutionException("Failed to scan for grammars: " + sourceDirectory, e);
+        }
+    }
+
+    /**
+     * Gets the fully qualified name of the parser generated from the specified grammar.
+     *
+     * @param grammarInfo The grammar info describing the grammar file, must not be <code>null</code>.
+     * @return The fully qualified name of the parser class, never <code>null</code>.
+     */
+    protected static String getParserClassName(GrammarInfo grammarInfo) {
+        if (grammarInfo.getParserPackage().isEmpty()) {
+            return grammarInfo.getParserName();
+        }
+        return grammarInfo.getParserPackage() + '.' + grammarInfo.getParserName();
+    }
+
+    /**
+     * Gets the corpus directory of the parser generated from the specified grammar.
+     *
+     * @param grammarInfo The grammar info describing the grammar file, must not be <code>null</code>.
+     * @return The corpus directory, never <code>null</code>.
+     */
+    protected File getCorpusDirectory(GrammarInfo grammarInfo) {
+        return new File(this.corpusDirectory, grammarInfo.getParserName());
+    }
+
+    /**
+     * Gets the class path of the parsers, i.e. the compile class path of the project without its output directory,
+     * such that the parsers are always compiled from the generated files.
+     *
+     * @return The class path elements, never <code>null</code>.
+     * @throws MojoExecutionException If the dependencies of the project have not been resolved.
+     */
+    protected List<String> getClassPath() throws MojoExecutionException {
+        List<String> classPath = new ArrayList<>();
+        File classes = new File(this.project.getBuild().getOutputDirectory()).getAbsoluteFile();
+        try {
+            for (String element : this.project.getCompileClasspathElements()) {
+                if (!new File(element).getAbsoluteFile().equals(classes)) {
+                    classPath.add(element);
+                }
+            }
+        } catch (DependencyResolutionRequiredException e) {
+            throw new MojoExecutionException("Failed to resolve compile class path", e);
+        }
+        return classPath;
+    }
+
+    /**
+     * Compiles the specified parser files into a directory that is cleaned beforehand. A generated
+     * <code>NioCharStream</code> next to a parser file is compiled as well.
+     *
+     * @param parserFiles The parser files to compile, must not be <code>null</code>.
+     * @param sourcePath The source roots searched for further types needed by the parsers, must not be
+     *            <code>null</code>.
+     * @param classPath The class path of the parsers, must not be <code>null</code>.
+     * @param classesDirectory The directory to write the class files to, must not be <code>null</code>.
+     * @throws IOException If the parsers could not be compiled.
+     */
+    protected void compileParsers(
+            List<File> parserFiles, List<File> sourcePath, List<String> classPath, File classesDirectory)
+            throws IOException {
+        getLog().debug("Compiling parsers: " + parserFiles);
+        FileUtils.deleteDirectory(classesDirectory);
+        List<File> sourceFiles = new ArrayList<>(parserFiles);
+        for (File parserFile : parserFiles) {
+            // the parser does not reference the stream it is fed with if it was generated with USER_CHAR_STREAM
+            File charStreamFile = new File(parserFile.getParentFile(), "NioCharStream.java");
+            if (charStreamFile.isFile() && !sourceFiles.contains(charStreamFile)) {
+                sourceFiles.add(charStreamFile);
+            }
+        }
+        ParserBenchmark.compile(sourceFiles, sourcePath, classPath, classesDirectory, this.grammarEncoding);
+    }
+
+    /**
+     * Creates the class loader for compiled parsers. The class loader is isolated from the plugin such that static
+     * parsers start in a fresh state.
+     *
+     * @param classesDirectory The directory with the compiled parsers, must not be <code>null</code>.
+     * @param classPath The class path of the parsers, must not be <code>null</code>.
+     * @return The class loader, never <code>null</code>.
+     * @throws MojoExecutionException If a class path element could not be converted to a URL.
+     */
+    protected static URLClassLoader newClassLoader(File classesDirectory, List<String> classPath)
+            throws MojoExecutionException {
+        List<URL> urls = new ArrayList<>();
+        try {
+            urls.add(classesDirectory.toURI().toURL());
+            for (String element : classPath) {
+                urls.add(new File(element).toURI().toURL());
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Invalid class path element", e);
+        }
+        return new URLClassLoader(
+                urls.toArray(new URL[0]), ClassLoader.getSystemClassLoader().getParent());
+    }
+
+    /**
+     * Creates the benchmark for the specified parser and loads its corpus.
+     *
+     * @param classLoader The class loader for the compiled parser, must not be <code>null</code>.
+     * @param grammarInfo The grammar info describing the grammar file, must not be <code>null</code>.
+     * @param parserFile The source file of the parser, must not be <code>null</code>.
+     * @return The benchmark, never <code>null</code>.
+     * @throws IOException If the parser could not be loaded, has no corpus or rejected an input.
+     */
+    protected ParserBenchmark newBenchmark(ClassLoader classLoader, GrammarInfo grammarInfo, File parserFile)
+            throws IOException {
+        String parserName = getParserClassName(grammarInfo);
+        String production = this.startProduction;
+        if (production == null || production.isEmpty()) {
+            production = ParserBenchmark.findStartProduction(parserFile, this.grammarEncoding);
+            if (production == null) {
+                throw new IOException("No start production found in parser file " + parserFile
+                        + ", please configure the parameter startProduction");
+            }
+        }
+        ParserBenchmark benchmark;
+        try {
+            benchmark = new ParserBenchmark(classLoader.loadClass(parserName), production);
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Failed to load parser " + parserName + ": " + e, e);
+        }
+
+        File corpus = getCorpusDirectory(grammarInfo);
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(corpus);
+        scanner.addDefaultExcludes();
+        scanner.scan();
+        String[] inputs = scanner.getIncludedFiles();
+        Arrays.sort(inputs);
+        for (String input : inputs) {
+            File file = new File(corpus, input);
+            benchmark.addInput(file.getPath(), FileUtils.fileRead(file, this.corpusEncoding), file.length());
+        }
+        if (benchmark.getInputCount() == 0) {
+            throw new IOException("Empty corpus for parser " + parserName + ": " + corpus);
+        }
+        return benchmark;
+    }
+
+    /**
+     * Runs the specified benchmark with the configured iterations.
+     *
+     * @param benchmark The benchmark to run, must not be <code>null</code>.
+     * @return The result of the benchmark, never <code>null</code>.
+     * @throws IOException If the parser failed on an input.
+     */
+    protected ParserBenchmark.Result runBenchmark(ParserBenchmark benchmark) throws IOException {
+        return benchmark.run(this.warmupIterations, this.measurementIterations, this.iterationTime);
+    }
+
+    /**
+     * Appends the settings of the benchmark as JSON properties to the specified buffer.
+     *
+     * @param json The buffer to append to, must not be <code>null</code>.
+     * @param indent The indentation of the properties, must not be <code>null</code>.
+     */
+    protected void appendJsonSettings(StringBuilder json, String indent) {
+        json.append(indent)
+                .append("\"warmupIterations\": ")
+                .append(this.warmupIterations)
+                .append(",\n");
+        json.append(indent)
+                .append("\"measurementIterations\": ")
+                .append(this.measurementIterations)
+                .append(",\n");
+        json.append(indent)
+                .append("\"iterationTimeMillis\": ")
+                .append(this.iterationTime)
+                .append(",\n");
+    }
+
+    /**
+     * Gets a report file of this mojo execution below the build directory.
+     *
+     * @param suffix The suffix of the file name, e.g. <code>".json"</code>, must not be <code>null</code>.
+     * @return The report file, never <code>null</code>.
+     */
+    protected File getReportFile(String suffix) {
+        String name = "benchmark";
+        if (this.mojoExecution != null) {
+            name = this.mojoExecution.getGoal() + "-" + this.mojoExecution.getExecutionId();
+        }
+        return new File(this.project.getBuild().getDirectory(), "javacc-maven-plugin/" + name + suffix);
+    }
+
+    /**
+     * Writes a report file.
+     *
+     * @param reportFile The file to write, must not be <code>null</code>.
+     * @param content The content of the report, must not be <code>null</code>.
+     * @throws MojoExecutionException If the report could not be written.
+     */
+    protected void writeReport(File reportFile, String content) throws MojoExecutionException {
+        try {
+            Files.createDirectories(reportFile.getParentFile().toPath());
+            FileUtils.fileWrite(reportFile, "UTF-8", content);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to write benchmark report: " + reportFile, e);
+        }
+    }
+}
@@ -20,18 +20,33 @@ package org.codehaus.mojo.javacc;
  */
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.SelectorUtils;
 import org.codehaus.plexus.util.StringUtils;
 
@@ -43,6 +58,16 @@ import org.codehaus.plexus.util.StringUtils;
  */
 public abstract class AbstractJavaCCMojo extends AbstractMojo {
 
+    /**
+     * The counter used to create unique names for the temporary directories of concurrently processed grammars.
+     */
+    private static final AtomicInteger TEMP_DIRECTORY_COUNTER = new AtomicInteger();
+
+    /**
+     * The class path resource holding the source of the class <code>NioCharStream</code>, without package declaration.
+     */
+    private static final String CHAR_STREAM_TEMPLATE = "NioCharStream.java.template";
+
     /**
      * The current Maven project.
      *
@@ -50,6 +75,12 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project}", readonly = true, required = true)
     private MavenProject project;
 
+    /**
+     * The current mojo execution, used to name the build state file.
+     */
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution mojoExecution;
+
     /**
      * The set of compile source roots whose contents are not generated as part of the build, i.e. those that usually
      * reside somewhere below "${basedir}/src" in the project structure. Files in these source roots are owned by the
@@ -181,7 +212,10 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
     /**
      * This flag controls whether the token manager will read characters from a character stream reader as defined by
      * the options <code>javaUnicodeEscape</code> and <code>unicodeInput</code> or whether the token manager reads
-     * from a user-supplied implementation of <code>CharStream</code>. Default value is <code>false</code>.
+     * from a user-supplied implementation of <code>CharStream</code>. Default value is <code>false</code>. If enabled,
+     * the plugin additionally generates the class <code>NioCharStream</code> which implements <code>CharStream</code>
+     * by reading directly from a <code>CharSequence</code> (e.g. a <code>java.nio.CharBuffer</code>) or from a
+     * memory-mapped file, without copying the input into growing buffers. It does not process Java Unicode escapes.
      *
      */
     @Parameter(property = "javacc.userCharStream")
@@ -279,6 +313,119 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
     @Parameter(property = "javacc.grammarEncoding", defaultValue = "${project.build.sourceEncoding}")
     private String grammarEncoding;
 
+    /**
+     * The maximum number of grammar files to process concurrently. A value of <code>1</code> processes the grammars
+     * one after the other, a value of <code>0</code> or less uses the number of available processors. When grammars are
+     * processed concurrently, the log output of each grammar is still reported in the order of the grammar files and
+     * the build only fails after all grammars have been processed, reporting every grammar that failed. JavaCC and
+     * JJTree are then loaded into one isolated class loader per thread because they keep their state in static fields.
+     *
+     * @since 3.3
+     */
+    @Parameter(property = "javacc.parallelism", defaultValue = "1")
+    private int parallelism = 1;
+
+    /**
+     * The strategy used to detect grammar files whose generated files are up to date. With <code>timestamp</code>, a
+     * grammar file is processed if it is newer than its generated parser file. With <code>digest</code>, a grammar file
+     * is processed if the digest of its contents and of the effective tool options differs from the one recorded by
+     * the previous build in a state file below the build directory. The latter is immune to modification times being
+     * reset by a fresh checkout or a restored build cache. With either strategy, a grammar file is also processed if
+     * the tool options effective for it or the contents of the files it includes via <code>INCLUDE</code> directives
+     * differ from those recorded by the previous build.
+     *
+     * @since 3.3
+     */
+    @Parameter(property = "javacc.staleDetection", defaultValue = "timestamp")
+    private String staleDetection = "timestamp";
+
+    /**
+     * A flag whether to store the generated files in a build cache shared by all builds on this machine and to restore
+     * them from there instead of running the tools. Cache entries are keyed by a digest of the grammar file, the files
+     * it includes, the tool versions and the tool arguments. Problems accessing the cache are reported as warnings and
+     * the grammar is then processed as usual.
+     *
+     * @since 3.3
+     */
+    @Parameter(property = "javacc.buildCache", defaultValue = "false")
+    private boolean useBuildCache;
+
+    /**
+     * The base directory of the build cache used when the parameter <code>useBuildCache</code> is enabled.
+     *
+     * @since 3.3
+     */
+    @Parameter(property = "javacc.buildCacheDirectory", defaultValue = "${user.home}/.m2/javacc-build-cache")
+    private File buildCacheDirectory;
+
+    /**
+     * The location of a remote build cache shared between machines, either an <code>http:</code> or
+     * <code>https:</code> URL or the path to a directory, e.g. on a network filesystem. On a miss in the local build
+     * cache, the generated files are downloaded from the remote build cache. Only used if the parameter
+     * <code>useBuildCache</code> is enabled. Credentials for HTTP may be given as user info of the URL.
+     *
+     * @since 3.3
+     */
+    @Parameter(property = "javacc.remoteBuildCache")
+    private String remoteBuildCache;
+
+    /**
+     * A flag whether the remote build cache is only read. If set to <code>false</code>, files generated by this build
+     * are uploaded to the remote build cache. Usually, only CI builds upload to the remote build cache.
+     *
+     * @since 3.3
+     */
+    @Parameter(property = "javacc.remoteBuildCacheReadOnly", defaultValue = "true")
+    private boolean remoteBuildCacheReadOnly = true;
+
+    /**
+     * The number of slowest grammars to list in the log after processing. A value of <code>0</code> or less disables
+     * this summary. Independently of this parameter, the timings of all grammars and their processing phases are
+     * written as JSON to the file
+     * <code>${project.build.directory}/javacc-maven-plugin/&lt;goal&gt;-&lt;execution&gt;-metrics.json</code>.
+     *
+     * @since 3.3
+     */
+    @Parameter(property = "javacc.slowestGrammars", defaultValue = "5")
+    private int slowestGrammars = 5;
+
+    /**
+     * The state of the previous build, may be <code>null</code> if not yet loaded.
+     */
+    private BuildState buildState;
+
+    /**
+     * The build cache, may be <code>null</code> if disabled.
+     */
+    private BuildCache buildCache;
+
+    /**
+     * The metrics of the grammar that is currently processed by the calling thread, if any.
+     */
+    private final ThreadLocal<GrammarMetrics> grammarMetrics = new ThreadLocal<>();
+
+    /**
+     * The build cache entry collecting the files generated for the grammar that is currently processed by the calling
+     * thread, if any.
+     */
+    private final ThreadLocal<BuildCache.Entry> grammarCacheEntry = new ThreadLocal<>();
+
+    /**
+     * The logger for the grammar that is currently processed by the calling thread, if any.
+     */
+    private final ThreadLocal<Log> grammarLog = new ThreadLocal<>();
+
+    /**
+     * The files generated for the grammar that is currently processed by the calling thread, if any.
+     */
+    private final ThreadLocal<Set<File>> grammarOutputs = new ThreadLocal<>();
+
+    /**
+     * The pool of isolated class loaders used to run JavaCC and JJTree while grammars are processed concurrently, may
+     * be <code>null</code>.
+     */
+    private ToolClassLoaderPool toolClassLoaderPool;
+
     /**
      * Gets the file encoding of the grammar files.
      *
@@ -309,6 +456,48 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
         return this.isStatic;
     }
 
+    /**
+     * Gets the number of threads used to process the grammar files.
+     *
+     * @return The number of threads used to process the grammar files, always positive.
+     */
+    protected int getParallelism() {
+        return ParallelTasks.getThreadCount(this.parallelism);
+    }
+
+    /**
+     * Gets the pool of isolated class loaders used to run JavaCC and JJTree in-process. The pool is only available
+     * while grammars are processed concurrently. The tools share global static state, so concurrent invocations must
+     * not use the plugin class loader.
+     *
+     * @return The pool of isolated class loaders or <code>null</code> if grammars are processed sequentially.
+     */
+    protected ToolClassLoaderPool getToolClassLoaderPool() {
+        return this.toolClassLoaderPool;
+    }
+
+    /**
+     * Gets the metrics of the grammar that is currently processed by the calling thread.
+     *
+     * @return The metrics of the current grammar or <code>null</code> if no grammar is processed.
+     * @since 3.3
+     */
+    protected GrammarMetrics getGrammarMetrics() {
+        return this.grammarMetrics.get();
+    }
+
+    /**
+     * Gets the logger for this mojo. While a grammar is processed concurrently with others, this returns the buffering
+     * logger of that grammar such that its output is not interleaved with the output of other grammars.
+     *
+     * @return The logger for this mojo, never <code>null</code>.
+     */
+    @Override
+    public Log getLog() {
+        Log log = this.grammarLog.get();
+        return (log != null) ? log : super.getLog();
+    }
+
     /**
      * Gets the absolute path to the directory where the grammar files are located.
      *
@@ -374,13 +563,23 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
      * @throws MojoFailureException If the tool reported a non-zero exit code.
      */
     public void execute() throws MojoExecutionException, MojoFailureException {
+        if (!"digest".equalsIgnoreCase(this.staleDetection) && !"timestamp".equalsIgnoreCase(this.staleDetection)) {
+            throw new MojoExecutionException("Unsupported stale detection: " + this.staleDetection
+                    + ", expected one of 'timestamp' or 'digest'");
+        }
+        this.buildState = new BuildState(getBuildStateFile(), this.project.getBasedir());
+        this.buildCache = newBuildCache();
+
+        long scanStartTime = System.nanoTime();
         GrammarInfo[] grammarInfos = scanForGrammars();
+        long scanTime = System.nanoTime() - scanStartTime;
 
         if (grammarInfos == null) {
             getLog().info("Skipping non-existing source directory: " + getSourceDirectory());
             return;
         } else if (grammarInfos.length == 0) {
             getLog().info("Skipping - all parsers are up to date");
+            saveBuildState();
         } else {
             determineNonGeneratedSourceRoots();
 
@@ -389,8 +588,16 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
                         + ", using platform default encoding, i.e. build is platform dependent!");
             }
 
+            List<GrammarMetrics> metrics = new ArrayList<>();
             for (GrammarInfo grammarInfo : grammarInfos) {
-                processGrammar(grammarInfo);
+                metrics.add(new GrammarMetrics(grammarInfo.getRelativeGrammarFile()));
+            }
+            long startTime = System.nanoTime();
+            try {
+                processGrammars(grammarInfos, metrics);
+            } finally {
+                saveBuildState();
+                reportMetrics(metrics, scanTime, System.nanoTime() - startTime);
             }
 
             getLog().info("Processed " + grammarInfos.length + " grammar" + (grammarInfos.length != 1 ? "s" : ""));
@@ -401,6 +608,300 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * Passes the specified grammar files through the tool, using as many threads as configured by the parameter
+     * {@link #parallelism}.
+     *
+     * @param grammarInfos The grammar infos describing the grammar files to process, must not be <code>null</code>.
+     * @param metrics The metrics to collect for the grammar files, in the same order, must not be <code>null</code>.
+     * @throws MojoExecutionException If the invocation of the tool failed.
+     * @throws MojoFailureException If the tool reported a non-zero exit code.
+     */
+    private void processGrammars(GrammarInfo[] grammarInfos, List<GrammarMetrics> metrics)
+            throws MojoExecutionException, MojoFailureException {
+        int threads = Math.min(getParallelism(), grammarInfos.length);
+        if (threads <= 1) {
+            for (int i = 0; i < grammarInfos.length; i++) {
+                processAndRecordGrammar(grammarInfos[i], metrics.get(i));
+            }
+            return;
+        }
+
+        getLog().debug("Processing grammars using " + threads + " threads");
+        List<GrammarTask> tasks = new ArrayList<>();
+        for (int i = 0; i < grammarInfos.length; i++) {
+            tasks.add(new GrammarTask(grammarInfos[i], metrics.get(i)));
+        }
+        Throwable[] failures;
+        this.toolClassLoaderPool = new ToolClassLoaderPool(threads, org.javacc.parser.Main.class);
+        try {
+            failures = ParallelTasks.run(tasks, threads, getLog(), "Failed to process grammar");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while processing grammars", e);
+        } finally {
+            this.toolClassLoaderPool.close();
+            this.toolClassLoaderPool = null;
+        }
+
+        List<Throwable> failed = new ArrayList<>();
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < failures.length; i++) {
+            if (failures[i] != null) {
+                failed.add(failures[i]);
+                message.append("\n  ").append(grammarInfos[i].getGrammarFile());
+                message.append(": ").append(failures[i].getMessage());
+            }
+        }
+        if (failed.size() == 1) {
+            Throwable failure = failed.get(0);
+            if (failure instanceof MojoExecutionException) {
+                throw (MojoExecutionException) failure;
+            } else if (failure instanceof MojoFailureException) {
+                throw (MojoFailureException) failure;
+            }
+        }
+        if (!failed.isEmpty()) {
+            MojoFailureException exception = new MojoFailureException(
+                    "Failed to process " + failed.size() + " of " + grammarInfos.length + " grammars:" + message);
+            for (Throwable failure : failed) {
+                exception.addSuppressed(failure);
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * Passes the specified grammar file through the tool and records its digests and generated files in the build
+     * state on success.
+     *
+     * @param grammarInfo The grammar info describing the grammar file to process, must not be <code>null</code>.
+     * @param metrics The metrics to collect for the grammar file, must not be <code>null</code>.
+     * @throws MojoExecutionException If the invocation of the tool failed.
+     * @throws MojoFailureException If the tool reported a non-zero exit code.
+     */
+    private void processAndRecordGrammar(GrammarInfo grammarInfo, GrammarMetrics metrics)
+            throws MojoExecutionException, MojoFailureException {
+        Set<File> outputs = new LinkedHashSet<>();
+        this.grammarOutputs.set(outputs);
+        this.grammarMetrics.set(metrics);
+        long startTime = System.nanoTime();
+        long startCpuTime = GrammarMetrics.currentCpuTime();
+        try {
+            String cacheKey = computeCacheKey(grammarInfo);
+            if (cacheKey == null || !restoreGrammarOutput(grammarInfo, cacheKey)) {
+                BuildCache.Entry cacheEntry = newCacheEntry(cacheKey);
+                this.grammarCacheEntry.set(cacheEntry);
+                try {
+                    processGrammar(grammarInfo);
+                    commitCacheEntry(cacheEntry, cacheKey);
+                } finally {
+                    this.grammarCacheEntry.remove();
+                    if (cacheEntry != null) {
+                        cacheEntry.discard();
+                    }
+                }
+            } else {
+                metrics.setCached();
+            }
+        } finally {
+            metrics.setTotal(startTime, startCpuTime);
+            this.grammarMetrics.remove();
+            this.grammarOutputs.remove();
+        }
+        String grammar = grammarInfo.getRelativeGrammarFile();
+        this.buildState.stageOutputs(grammar, outputs);
+        this.buildState.commit(grammar);
+    }
+
+    /**
+     * Creates the build cache as configured by the mojo parameters.
+     *
+     * @return The build cache or <code>null</code> if the build cache is disabled.
+     * @throws MojoExecutionException If the location of the remote build cache is invalid.
+     */
+    private BuildCache newBuildCache() throws MojoExecutionException {
+        if (!this.useBuildCache || this.buildCacheDirectory == null) {
+            return null;
+        }
+        BuildCache cache = new BuildCache(this.buildCacheDirectory);
+        if (StringUtils.isNotEmpty(this.remoteBuildCache)) {
+            RemoteCache remoteCache;
+            String location = this.remoteBuildCache.trim();
+            if (location.regionMatches(true, 0, "http:", 0, 5) || location.regionMatches(true, 0, "https:", 0, 6)) {
+                try {
+                    remoteCache = new HttpRemoteCache(new URL(location));
+                } catch (IOException e) {
+                    throw new MojoExecutionException("Invalid remote build cache URL: " + location, e);
+                }
+            } else {
+                File directory = new File(location);
+                if (location.regionMatches(true, 0, "file:", 0, 5)) {
+                    try {
+                        directory = UrlUtils.getResourceRoot(new URL(location), "");
+                    } catch (IOException | IllegalArgumentException e) {
+                        throw new MojoExecutionException("Invalid remote build cache URL: " + location, e);
+                    }
+                }
+                if (!directory.isAbsolute()) {
+                    directory = new File(this.project.getBasedir(), directory.getPath());
+                }
+                remoteCache = new DirectoryRemoteCache(directory);
+            }
+            getLog().debug("Using remote build cache: " + remoteCache);
+            cache.setRemoteCache(remoteCache, !this.remoteBuildCacheReadOnly);
+        }
+        return cache;
+    }
+
+    /**
+     * Computes the key of the build cache entry for the specified grammar file. Besides the contents of the grammar
+     * file, the key covers the contents of the files it includes, the versions of the tools and of this plugin, the
+     * tool arguments and, unless the grammar resides in a compile source root, the Java files next to the grammar that
+     * are copied along with the generated files.
+     *
+     * @param grammarInfo The grammar info describing the grammar file, must not be <code>null</code>.
+     * @return The key of the cache entry or <code>null</code> if the build cache is disabled or the key could not be
+     *         computed.
+     */
+    private String computeCacheKey(GrammarInfo grammarInfo) {
+        if (this.buildCache == null) {
+            return null;
+        }
+        long startTime = System.nanoTime();
+        long startCpuTime = GrammarMetrics.currentCpuTime();
+        try {
+            List<String> components = new ArrayList<>();
+            components.add(getClass().getName());
+            components.addAll(Arrays.asList(getToolVersions()));
+            components.add("PACKAGE=" + grammarInfo.getParserPackage());
+            components.add("PARSER=" + grammarInfo.getParserName());
+            components.addAll(Arrays.asList(getToolArguments(grammarInfo)));
+            for (String digest : BuildState.computeInputDigests(grammarInfo, this.grammarEncoding)
+                    .values()) {
+                components.add("INCLUDE=" + digest);
+            }
+            if (!isSourceRoot(grammarInfo.getSourceDirectory())) {
+                File grammarDirectory = grammarInfo.getGrammarFile().getParentFile();
+                for (File file : FileUtils.getFiles(grammarDirectory, "*.java", null)) {
+                    components.add(
+                            "SOURCE=" + file.getName() + "=" + BuildState.computeFingerprint(file, new String[0]));
+                }
+            }
+            return BuildState.computeFingerprint(grammarInfo.getGrammarFile(), components.toArray(new String[0]));
+        } catch (IOException e) {
+            getLog().warn("Failed to compute build cache key, not using build cache for grammar "
+                    + grammarInfo.getGrammarFile() + ": " + e.getMessage());
+            return null;
+        } finally {
+            addPhase("cache-lookup", startTime, startCpuTime);
+        }
+    }
+
+    /**
+     * Gets the descriptions of the versions of JavaCC, JTB and this plugin, i.e. the digests of the JARs or class
+     * directories providing them.
+     *
+     * @return The descriptions of the tool versions, never <code>null</code>.
+     * @throws IOException If a JAR or class directory could not be read.
+     */
+    private static String[] getToolVersions() throws IOException {
+        return new String[] {
+            BuildState.computeToolVersion(org.javacc.parser.Main.class),
+            BuildState.computeToolVersion(EDU.purdue.jtb.JTB.class),
+            BuildState.computeToolVersion(AbstractJavaCCMojo.class)
+        };
+    }
+
+    /**
+     * Restores the generated files of the specified grammar file from the build cache.
+     *
+     * @param grammarInfo The grammar info describing the grammar file, must not be <code>null</code>.
+     * @param cacheKey The key of the cache entry, must not be <code>null</code>.
+     * @return <code>true</code> if the generated files were restored, <code>false</code> if the cache holds no
+     *         usable entry.
+     * @throws MojoExecutionException If the restored files could not be copied to the compile source roots.
+     */
+    private boolean restoreGrammarOutput(GrammarInfo grammarInfo, String cacheKey) throws MojoExecutionException {
+        List<BuildCache.Group> groups;
+        long startTime = System.nanoTime();
+        long startCpuTime = GrammarMetrics.currentCpuTime();
+        try {
+            groups = this.buildCache.get(cacheKey);
+        } catch (IOException | RuntimeException e) {
+            getLog().warn("Failed to read build cache entry " + cacheKey + ": " + e.getMessage());
+            return false;
+        } finally {
+            addPhase("cache-lookup", startTime, startCpuTime);
+        }
+        if (groups == null) {
+            getLog().debug("Build cache miss: " + cacheKey);
+            return false;
+        }
+        File[] sourceRoots = getCompileSourceRoots();
+        for (BuildCache.Group group : groups) {
+            if (group.getRoot() < 0 || group.getRoot() >= sourceRoots.length) {
+                getLog().warn("Ignoring invalid build cache entry " + cacheKey);
+                return false;
+            }
+        }
+        getLog().info("Restoring generated files from build cache: " + grammarInfo.getGrammarFile());
+        for (BuildCache.Group group : groups) {
+            if (!group.getDirectory().isDirectory()) {
+                // the group did not hold any files, e.g. no custom sources were next to the grammar file
+                continue;
+            }
+            copyGrammarOutput(
+                    sourceRoots[group.getRoot()],
+                    group.getPackageName(),
+                    group.getDirectory(),
+                    group.getUpdatePattern());
+        }
+        return true;
+    }
+
+    /**
+     * Starts a new build cache entry to collect the files generated for a grammar.
+     *
+     * @param cacheKey The key of the cache entry, may be <code>null</code>.
+     * @return The new cache entry or <code>null</code> if the key is <code>null</code> or the entry could not be
+     *         created.
+     */
+    private BuildCache.Entry newCacheEntry(String cacheKey) {
+        if (cacheKey == null) {
+            return null;
+        }
+        try {
+            return this.buildCache.newEntry();
+        } catch (IOException e) {
+            getLog().warn("Failed to create build cache entry in " + this.buildCache + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Adds the specified build cache entry to the build cache.
+     *
+     * @param cacheEntry The cache entry, may be <code>null</code>.
+     * @param cacheKey The key of the cache entry, may be <code>null</code>.
+     */
+    private void commitCacheEntry(BuildCache.Entry cacheEntry, String cacheKey) {
+        if (cacheEntry == null) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        long startCpuTime = GrammarMetrics.currentCpuTime();
+        try {
+            if (cacheEntry.commit(cacheKey)) {
+                getLog().debug("Stored generated files in build cache: " + cacheKey);
+            }
+        } catch (IOException e) {
+            getLog().warn("Failed to store build cache entry " + cacheKey + ": " + e.getMessage());
+        } finally {
+            addPhase("cache-store", startTime, startCpuTime);
+        }
+    }
+
     /**
      * Passes the specified grammar file through the tool.
      *
@@ -434,6 +935,8 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
             scanner.setParserPackage(getParserPackage());
             scanner.setGrammarEncoding(this.grammarEncoding);
             scanner.setStaleMillis(getStaleMillis());
+            scanner.setBuildState(this.buildState, this::getToolArguments);
+            scanner.setDigest("digest".equalsIgnoreCase(this.staleDetection));
             scanner.scan();
             grammarInfos = scanner.getIncludedGrammars();
         } catch (Exception e) {
@@ -444,13 +947,82 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
         return grammarInfos;
     }
 
+    /**
+     * Gets the tool arguments that determine the output generated for the specified grammar file, i.e. the exact
+     * argument vectors passed to the tools except for the input and output paths. A grammar file is processed again
+     * when these arguments change.
+     *
+     * @param grammarInfo The grammar info describing the grammar file, must not be <code>null</code>.
+     * @return The tool arguments, never <code>null</code>.
+     */
+    protected String[] getToolArguments(GrammarInfo grammarInfo) {
+        return newJavaCC().getOptionArguments();
+    }
+
+    /**
+     * Gets the file used to persist the build state of this mojo execution.
+     *
+     * @return The build state file, never <code>null</code>.
+     */
+    private File getBuildStateFile() {
+        String name = "javacc";
+        if (this.mojoExecution != null) {
+            name = this.mojoExecution.getGoal() + "-" + this.mojoExecution.getExecutionId();
+        }
+        return new File(this.project.getBuild().getDirectory(), "javacc-maven-plugin/" + name + ".properties");
+    }
+
+    /**
+     * Formats the wall times of the phases of a grammar for the log.
+     *
+     * @param metrics The metrics of the grammar, must not be <code>null</code>.
+     * @return The formatted phases, never <code>null</code>.
+     */
+    private static String formatPhases(GrammarMetrics metrics) {
+        StringBuilder buffer = new StringBuilder("(");
+        for (Map.Entry<String, Long> phase : metrics.getPhases().entrySet()) {
+            if (buffer.length() > 1) {
+                buffer.append(", ");
+            }
+            buffer.append(phase.getKey())
+                    .append(' ')
+                    .append(GrammarMetrics.millis(phase.getValue()))
+                    .append(" ms");
+        }
+        return buffer.append(')').toString();
+    }
+
+    /**
+     * Gets the file used to report the metrics of this mojo execution.
+     *
+     * @return The metrics file, never <code>null</code>.
+     */
+    private File getMetricsFile() {
+        String name = getBuildStateFile().getName();
+        name = name.substring(0, name.length() - ".properties".length());
+        return new File(getBuildStateFile().getParentFile(), name + "-metrics.json");
+    }
+
+    /**
+     * Writes the build state back to disk, if any.
+     */
+    private void saveBuildState() {
+        try {
+            this.buildState.save();
+        } catch (IOException e) {
+            getLog().warn("Failed to save build state: " + this.buildState, e);
+        }
+    }
+
     /**
      * Gets a temporary directory within the project's build directory.
      *
      * @return The path to the temporary directory, never <code>null</code>.
      */
     protected File getTempDirectory() {
-        return new File(this.project.getBuild().getDirectory(), "javacc-" + System.currentTimeMillis());
+        return new File(
+                this.project.getBuild().getDirectory(),
+                "javacc-" + System.currentTimeMillis() + "-" + TEMP_DIRECTORY_COUNTER.incrementAndGet());
     }
 
     /**
@@ -459,10 +1031,84 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
      * @param tempDirectory The directory to delete, must not be <code>null</code>.
      */
     protected void deleteTempDirectory(File tempDirectory) {
+        long startTime = System.nanoTime();
+        long startCpuTime = GrammarMetrics.currentCpuTime();
         try {
             FileUtils.deleteDirectory(tempDirectory);
         } catch (IOException e) {
             getLog().warn("Failed to delete temporary directory: " + tempDirectory, e);
+        } finally {
+            addPhase("cleanup", startTime, startCpuTime);
+        }
+    }
+
+    /**
+     * Adds a phase to the metrics of the grammar that is currently processed by the calling thread, if any.
+     *
+     * @param name The name of the phase, must not be <code>null</code>.
+     * @param startTime The start time of the phase as given by {@link System#nanoTime()}.
+     * @param startCpuTime The start time of the phase as given by {@link GrammarMetrics#currentCpuTime()}.
+     */
+    private void addPhase(String name, long startTime, long startCpuTime) {
+        GrammarMetrics metrics = this.grammarMetrics.get();
+        if (metrics != null) {
+            metrics.addPhase(name, startTime, startCpuTime);
+        }
+    }
+
+    /**
+     * Writes the metrics of the processed grammars to a JSON file below the build directory and logs the slowest
+     * grammars.
+     *
+     * @param metrics The metrics of the processed grammars, must not be <code>null</code>.
+     * @param scanTime The time in nanoseconds spent scanning for stale grammars.
+     * @param wallTime The time in nanoseconds spent processing the grammars.
+     */
+    private void reportMetrics(List<GrammarMetrics> metrics, long scanTime, long wallTime) {
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\n");
+        if (this.mojoExecution != null) {
+            json.append("  \"goal\": ")
+                    .append(GrammarMetrics.quote(this.mojoExecution.getGoal()))
+                    .append(",\n");
+            json.append("  \"execution\": ");
+            json.append(GrammarMetrics.quote(this.mojoExecution.getExecutionId()))
+                    .append(",\n");
+        }
+        json.append("  \"parallelism\": ").append(getParallelism()).append(",\n");
+        json.append("  \"scanTimeMillis\": ")
+                .append(GrammarMetrics.millis(scanTime))
+                .append(",\n");
+        json.append("  \"wallTimeMillis\": ")
+                .append(GrammarMetrics.millis(wallTime))
+                .append(",\n");
+        json.append("  \"grammars\": [");
+        String separator = "\n";
+        for (GrammarMetrics grammarMetrics : metrics) {
+            json.append(separator);
+            grammarMetrics.appendJson(json, "    ");
+            separator = ",\n";
+        }
+        json.append(metrics.isEmpty() ? "]\n" : "\n  ]\n").append("}\n");
+
+        File reportFile = getMetricsFile();
+        try {
+            Files.createDirectories(reportFile.getParentFile().toPath());
+            FileUtils.fileWrite(reportFile, "UTF-8", json.toString());
+            getLog().debug("Wrote grammar metrics: " + reportFile);
+        } catch (IOException e) {
+            getLog().warn("Failed to write grammar metrics: " + reportFile, e);
+        }
+
+        if (this.slowestGrammars > 0 && !metrics.isEmpty()) {
+            List<GrammarMetrics> slowest = new ArrayList<>(metrics);
+            slowest.sort((m1, m2) -> Long.compare(m2.getWallTime(), m1.getWallTime()));
+            slowest = slowest.subList(0, Math.min(this.slowestGrammars, slowest.size()));
+            getLog().info("Slowest grammar" + (slowest.size() != 1 ? "s" : "") + " (see " + reportFile + "):");
+            for (GrammarMetrics grammarMetrics : slowest) {
+                getLog().info("  " + grammarMetrics.getGrammar() + ": "
+                        + GrammarMetrics.millis(grammarMetrics.getWallTime()) + " ms " + formatPhases(grammarMetrics));
+            }
         }
     }
 
@@ -470,7 +1116,9 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
      * Scans the filesystem for output files and copies them to the specified compile source root. An output file is
      * only copied to the compile source root if it doesn't already exist in another compile source root. This prevents
      * duplicate class errors during compilation in case the user provided customized files in
-     * <code>src/main/java</code> or similar.
+     * <code>src/main/java</code> or similar. An existing output file whose contents equal the generated file is left
+     * untouched, such that its timestamp does not trigger recompilation of the parser and its dependents. The copied
+     * files are recorded in the build state as outputs of the grammar currently processed.
      *
      * @param packageName The name of the destination package for the output files, must not be <code>null</code>.
      * @param sourceRoot The (absolute) path to the compile source root into which the output files should eventually be
@@ -484,8 +1132,96 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
      */
     protected void copyGrammarOutput(File sourceRoot, String packageName, File tempDirectory, String updatePattern)
             throws MojoExecutionException {
+        transferGrammarOutput(sourceRoot, packageName, tempDirectory, updatePattern, false);
+    }
+
+    /**
+     * Scans the filesystem for output files and moves them to the specified compile source root. This behaves like
+     * {@link #copyGrammarOutput(File, String, File, String)} but is meant for files in a temporary directory owned by
+     * the plugin: instead of copying the contents, the files are renamed into the compile source root, atomically if
+     * the temporary directory and the compile source root share a filesystem. Files that are skipped remain in the
+     * temporary directory.
+     *
+     * @param packageName The name of the destination package for the output files, must not be <code>null</code>.
+     * @param sourceRoot The (absolute) path to the compile source root into which the output files should eventually be
+     *            moved, must not be <code>null</code>.
+     * @param tempDirectory The (absolute) path to the directory to scan for generated output files, must not be
+     *            <code>null</code>.
+     * @param updatePattern A glob pattern that matches the (simple) names of those files which should always be updated
+     *            in case we are outputting directly into <code>src/main/java</code>, may be <code>null</code>. A
+     *            leading "!" may be used to negate the pattern.
+     * @throws MojoExecutionException If the output files could not be moved.
+     * @since 3.3
+     */
+    protected void moveGrammarOutput(File sourceRoot, String packageName, File tempDirectory, String updatePattern)
+            throws MojoExecutionException {
+        transferGrammarOutput(sourceRoot, packageName, tempDirectory, updatePattern, true);
+    }
+
+    /**
+     * Writes the class <code>NioCharStream</code> next to the parser files generated by JavaCC if these include the
+     * interface <code>CharStream</code> but neither <code>SimpleCharStream</code> nor <code>JavaCharStream</code>,
+     * i.e. if the option <code>USER_CHAR_STREAM</code> is enabled by the plugin configuration or by the grammar itself.
+     * The class implements <code>CharStream</code> on top of a <code>CharSequence</code> or a memory-mapped file
+     * without copying the input. Like any other generated file, it is not copied to the output directory if a
+     * customized version exists in a non-generated compile source root.
+     *
+     * @param grammarInfo The grammar whose parser files were generated, must not be <code>null</code>.
+     * @param parserDirectory The (absolute) path to the directory JavaCC wrote the parser files to, must not be
+     *            <code>null</code>.
+     * @throws MojoExecutionException If the class could not be written.
+     * @since 3.3
+     */
+    protected void generateCharStream(GrammarInfo grammarInfo, File parserDirectory) throws MojoExecutionException {
+        if (!new File(parserDirectory, "CharStream.java").isFile()
+                || new File(parserDirectory, "SimpleCharStream.java").exists()
+                || new File(parserDirectory, "JavaCharStream.java").exists()) {
+            return;
+        }
+        File charStreamFile = new File(parserDirectory, "NioCharStream.java");
+        StringBuilder content = new StringBuilder();
+        content.append("/* Generated by javacc-maven-plugin. Do not edit this line. NioCharStream.java */\n");
+        if (grammarInfo.getParserPackage().length() > 0) {
+            content.append("package ").append(grammarInfo.getParserPackage()).append(";\n\n");
+        }
+        try (InputStream is = AbstractJavaCCMojo.class.getResourceAsStream(CHAR_STREAM_TEMPLATE)) {
+            if (is == null) {
+                throw new MojoExecutionException("Missing class path resource: " + CHAR_STREAM_TEMPLATE);
+            }
+            content.append(IOUtil.toString(is, "UTF-8"));
+            // like the generated parser files and NioCharStream itself, fall back to the platform default encoding
+            Charset charset =
+                    (getGrammarEncoding() != null) ? Charset.forName(getGrammarEncoding()) : Charset.defaultCharset();
+            Files.write(charStreamFile.toPath(), content.toString().getBytes(charset));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to generate " + charStreamFile, e);
+        }
+        getLog().debug("Generated NioCharStream for " + grammarInfo.getParserName());
+    }
+
+    /**
+     * Scans the filesystem for output files and transfers them to the specified compile source root.
+     *
+     * @param sourceRoot The (absolute) path to the compile source root, must not be <code>null</code>.
+     * @param packageName The name of the destination package for the output files, must not be <code>null</code>.
+     * @param tempDirectory The (absolute) path to the directory to scan for generated output files, must not be
+     *            <code>null</code>.
+     * @param updatePattern A glob pattern that matches the (simple) names of those files which should always be
+     *            updated, may be <code>null</code>.
+     * @param move A flag whether the output files may be moved instead of copied.
+     * @throws MojoExecutionException If the output files could not be transferred.
+     */
+    private void transferGrammarOutput(
+            File sourceRoot, String packageName, File tempDirectory, String updatePattern, boolean move)
+            throws MojoExecutionException {
+        long startTime = System.nanoTime();
+        long startCpuTime = GrammarMetrics.currentCpuTime();
+        GrammarMetrics metrics = this.grammarMetrics.get();
+        FlightRecorderEvent event = FlightRecorderEvent.begin(FlightRecorderEvent.OUTPUT_COPY);
+        int fileCount = 0;
         try {
             List<File> tempFiles = FileUtils.getFiles(tempDirectory, "*.java", null);
+            addToCacheEntry(sourceRoot, packageName, updatePattern, tempFiles);
             for (File tempFile : tempFiles) {
                 String outputPath = "";
                 if (packageName.length() > 0) {
@@ -506,22 +1242,157 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
                 }
 
                 if (sourceFile == null || (alwaysUpdate && sourceFile.equals(outputFile))) {
-                    getLog().debug("Copying generated file: " + outputPath);
+                    boolean transferred = false;
                     try {
-                        FileUtils.copyFile(tempFile, outputFile);
+                        if (hasSameContent(tempFile, outputFile)) {
+                            getLog().debug("Skipping unchanged file: " + outputPath);
+                        } else if (move) {
+                            getLog().debug("Moving generated file: " + outputPath);
+                            moveFile(tempFile, outputFile);
+                            transferred = true;
+                        } else {
+                            getLog().debug("Copying generated file: " + outputPath);
+                            FileUtils.copyFile(tempFile, outputFile);
+                            transferred = true;
+                        }
                     } catch (IOException e) {
                         throw new MojoExecutionException(
                                 "Failed to copy generated source file to output directory:" + tempFile + " -> "
                                         + outputFile,
                                 e);
                     }
+                    Set<File> outputs = this.grammarOutputs.get();
+                    if (outputs != null) {
+                        outputs.add(outputFile);
+                    }
+                    if (transferred) {
+                        if (metrics != null) {
+                            metrics.addFile(outputFile.length());
+                        }
+                        fileCount++;
+                    }
                 } else {
                     getLog().debug("Skipping customized file: " + outputPath);
                 }
             }
         } catch (IOException e) {
             throw new MojoExecutionException("Failed to copy generated source files", e);
+        } finally {
+            addPhase("copy", startTime, startCpuTime);
+            if (event.isActive()) {
+                event.set("grammar", (metrics != null) ? metrics.getGrammar() : null);
+                event.set("sourceRoot", sourceRoot.getPath());
+                event.set("fileCount", fileCount);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Adds the specified generated files to the build cache entry of the grammar currently processed by the calling
+     * thread, if any. All generated files are added, including those that are skipped because of customized files,
+     * such that restoring the entry in another project applies the same decisions for that project.
+     *
+     * @param sourceRoot The (absolute) path to the compile source root of the files, must not be <code>null</code>.
+     * @param packageName The name of the destination package for the files, must not be <code>null</code>.
+     * @param updatePattern A glob pattern that matches the (simple) names of those files which should always be
+     *            updated, may be <code>null</code>.
+     * @param files The generated files, must not be <code>null</code>.
+     */
+    private void addToCacheEntry(File sourceRoot, String packageName, String updatePattern, List<File> files) {
+        BuildCache.Entry cacheEntry = this.grammarCacheEntry.get();
+        if (cacheEntry == null) {
+            return;
+        }
+        int root = Arrays.asList(getCompileSourceRoots()).indexOf(sourceRoot);
+        if (root < 0) {
+            getLog().debug("Not caching output for unknown compile source root: " + sourceRoot);
+            cacheEntry.invalidate();
+            return;
+        }
+        try {
+            cacheEntry.addGroup(root, packageName, updatePattern, files);
+        } catch (IOException e) {
+            getLog().warn("Failed to add generated files to build cache: " + e.getMessage());
+            cacheEntry.invalidate();
+        }
+    }
+
+    /**
+     * Moves a file to the specified location, replacing an existing file. The move is performed atomically if
+     * supported by the filesystem, such that concurrent readers either see the old or the new file. If the source and
+     * the target reside on different filesystems, the file is copied instead and the source is deleted afterwards.
+     *
+     * @param source The file to move, must not be <code>null</code>.
+     * @param target The destination of the file, must not be <code>null</code>.
+     * @throws IOException If the file could not be moved.
+     */
+    static void moveFile(File source, File target) throws IOException {
+        Path targetPath = target.toPath();
+        Path parent = targetPath.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path sourcePath = source.toPath();
+        try {
+            Files.move(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(sourcePath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Determines whether two files have the same contents. The file sizes are compared first, the contents are only
+     * read if the sizes match and the comparison stops at the first difference.
+     *
+     * @param file1 The first file, must not be <code>null</code>.
+     * @param file2 The second file, must not be <code>null</code>.
+     * @return <code>true</code> if both files exist and have the same contents, <code>false</code> otherwise.
+     * @throws IOException If the files could not be read.
+     */
+    static boolean hasSameContent(File file1, File file2) throws IOException {
+        if (!file1.isFile() || !file2.isFile() || file1.length() != file2.length()) {
+            return false;
+        }
+        byte[] buffer1 = new byte[8192];
+        byte[] buffer2 = new byte[8192];
+        try (InputStream is1 = new FileInputStream(file1);
+                InputStream is2 = new FileInputStream(file2)) {
+            while (true) {
+                int n = readFully(is1, buffer1);
+                if (n != readFully(is2, buffer2)) {
+                    return false;
+                }
+                if (n <= 0) {
+                    return true;
+                }
+                for (int i = 0; i < n; i++) {
+                    if (buffer1[i] != buffer2[i]) {
+                        return false;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads bytes from a stream until the buffer is full or the end of the stream has been reached.
+     *
+     * @param is The stream to read from, must not be <code>null</code>.
+     * @param buffer The buffer to fill, must not be <code>null</code>.
+     * @return The number of bytes read, <code>0</code> at the end of the stream.
+     * @throws IOException If the stream could not be read.
+     */
+    private static int readFully(InputStream is, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int n = is.read(buffer, total, buffer.length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
         }
+        return total;
     }
 
     /**
@@ -554,6 +1425,17 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * Sets the compile source roots whose contents are not generated as part of the build. This replaces
+     * {@link #determineNonGeneratedSourceRoots()} for code that runs parts of the mojo without a Maven project, e.g.
+     * the benchmarks.
+     *
+     * @param sourceRoots The non-generated compile source roots, must not be <code>null</code>.
+     */
+    void setNonGeneratedSourceRoots(Collection<File> sourceRoots) {
+        this.nonGeneratedSourceRoots = new LinkedHashSet<>(sourceRoots);
+    }
+
     /**
      * Determines whether the specified source file is already present in any of the compile source roots registered
      * with the current Maven project.
@@ -602,6 +1484,8 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
     protected JavaCC newJavaCC() {
         JavaCC javacc = new JavaCC();
         javacc.setLog(getLog());
+        javacc.setClassLoaderPool(this.toolClassLoaderPool);
+        javacc.setMetrics(this.grammarMetrics.get());
         javacc.setGrammarEncoding(this.grammarEncoding);
         javacc.setJdkVersion(this.jdkVersion);
         javacc.setStatic(this.isStatic);
@@ -630,4 +1514,57 @@ public abstract class AbstractJavaCCMojo extends AbstractMojo {
         javacc.setSupportClassVisibilityPublic(this.supportClassVisibilityPublic);
         return javacc;
     }
+
+    /**
+     * Processes a grammar file concurrently with other grammar files.
+     */
+    private class GrammarTask implements ParallelTasks.Task {
+
+        /**
+         * The grammar info describing the grammar file to process.
+         */
+        private final GrammarInfo grammarInfo;
+
+        /**
+         * The metrics collected while processing the grammar file.
+         */
+        private final GrammarMetrics metrics;
+
+        /**
+         * Creates a new task.
+         *
+         * @param grammarInfo The grammar info describing the grammar file to process, must not be <code>null</code>.
+         * @param metrics The metrics to collect for the grammar file, must not be <code>null</code>.
+         */
+        GrammarTask(GrammarInfo grammarInfo, GrammarMetrics metrics) {
+            this.grammarInfo = grammarInfo;
+            this.metrics = metrics;
+        }
+
+        /**
+         * Processes the grammar file on the calling thread, directing the log output of the mojo to the specified
+         * logger.
+         *
+         * @param log The logger for the output of the grammar, must not be <code>null</code>.
+         * @throws MojoExecutionException If the invocation of the tool failed.
+         * @throws MojoFailureException If the tool reported a non-zero exit code.
+         */
+        public void run(Log log) throws MojoExecutionException, MojoFailureException {
+            grammarLog.set(log);
+            try {
+                processAndRecordGrammar(this.grammarInfo, this.metrics);
+            } finally {
+                grammarLog.remove();
+            }
+        }
+
+        /**
+         * Gets the path to the grammar file.
+         *
+         * @return The path to the grammar file, never <code>null</code>.
+         */
+        public String toString() {
+            return this.grammarInfo.getGrammarFile().toString();
+        }
+    }
 }
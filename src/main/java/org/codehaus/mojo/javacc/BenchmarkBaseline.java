@@ -0,0 +1,184 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * The results of an earlier benchmark, read from a report written by the goal <code>benchmark</code>, against which
+ * the current results are checked for performance regressions.
+ */
+class BenchmarkBaseline {
+
+    /**
+     * The pattern used to find the JSON objects of the parser results, i.e. the objects without nested objects.
+     */
+    private static final Pattern OBJECT = Pattern.compile("\\{[^{}]*\\}");
+
+    /**
+     * The pattern used to find the name of the parser in a JSON object.
+     */
+    private static final Pattern PARSER = Pattern.compile("\"parser\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    /**
+     * The pattern used to find the numeric properties in a JSON object.
+     */
+    private static final Pattern NUMBER = Pattern.compile("\"(\\w+)\"\\s*:\\s*(-?[0-9][0-9.eE+-]*)");
+
+    /**
+     * The baseline file.
+     */
+    private final File file;
+
+    /**
+     * The numeric properties of the parser results, keyed by the fully qualified name of the parser class.
+     */
+    private final Map<String, Map<String, Double>> parsers = new LinkedHashMap<>();
+
+    /**
+     * Creates a new baseline.
+     *
+     * @param file The baseline file, must not be <code>null</code>.
+     */
+    private BenchmarkBaseline(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads a baseline from the specified benchmark report.
+     *
+     * @param file The benchmark report, must not be <code>null</code>.
+     * @return The baseline, never <code>null</code>.
+     * @throws IOException If the file could not be read.
+     */
+    public static BenchmarkBaseline read(File file) throws IOException {
+        BenchmarkBaseline baseline = new BenchmarkBaseline(file);
+        Matcher object = OBJECT.matcher(FileUtils.fileRead(file, "UTF-8"));
+        while (object.find()) {
+            Matcher parser = PARSER.matcher(object.group());
+            if (!parser.find()) {
+                continue;
+            }
+            Map<String, Double> values = new LinkedHashMap<>();
+            Matcher number = NUMBER.matcher(object.group());
+            while (number.find()) {
+                try {
+                    values.put(number.group(1), Double.valueOf(number.group(2)));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid number in " + file + ": " + number.group(), e);
+                }
+            }
+            baseline.parsers.put(parser.group(1).replace("\\", ""), values);
+        }
+        return baseline;
+    }
+
+    /**
+     * Gets the baseline file.
+     *
+     * @return The baseline file, never <code>null</code>.
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Tells whether this baseline has results for the specified parser.
+     *
+     * @param parserName The fully qualified name of the parser class, must not be <code>null</code>.
+     * @return <code>true</code> if the baseline has results for the parser, <code>false</code> otherwise.
+     */
+    public boolean contains(String parserName) {
+        return this.parsers.containsKey(parserName);
+    }
+
+    /**
+     * Checks the specified result against this baseline. The throughput is compared in input bytes per second and the
+     * allocations in bytes per input byte, such that both stay comparable when the corpus grows.
+     *
+     * @param result The current result, must not be <code>null</code>.
+     * @param maxThroughputDrop The maximum drop of the throughput in percent, negative to skip the check.
+     * @param maxAllocationIncrease The maximum increase of the allocations in percent, negative to skip the check.
+     * @return The descriptions of the regressions, empty if none or if the baseline has no results for the parser,
+     *         never <code>null</code>.
+     */
+    public List<String> check(ParserBenchmark.Result result, double maxThroughputDrop, double maxAllocationIncrease) {
+        List<String> regressions = new ArrayList<>();
+        Map<String, Double> values = this.parsers.get(result.getParserName());
+        if (values == null) {
+            return regressions;
+        }
+
+        Double throughput = values.get("bytesPerSecond");
+        if (maxThroughputDrop >= 0 && throughput != null && throughput > 0) {
+            double current = result.getBytesPerSecond();
+            if (current < throughput * (1 - maxThroughputDrop / 100)) {
+                regressions.add(String.format(
+                        Locale.ROOT,
+                        "%s: throughput dropped by %.1f%% from %.1f to %.1f bytes/s (allowed: %.1f%%)",
+                        result.getParserName(),
+                        (1 - current / throughput) * 100,
+                        throughput,
+                        current,
+                        maxThroughputDrop));
+            }
+        }
+
+        Double allocation = values.get("allocatedBytesPerInputByte");
+        if (maxAllocationIncrease >= 0 && allocation != null && allocation >= 0) {
+            double current = result.getAllocatedBytesPerInputByte();
+            if (current >= 0 && current > allocation * (1 + maxAllocationIncrease / 100)) {
+                String increase = "";
+                if (allocation > 0) {
+                    increase = String.format(Locale.ROOT, " by %.1f%%", (current / allocation - 1) * 100);
+                }
+                regressions.add(String.format(
+                        Locale.ROOT,
+                        "%s: allocation rose%s from %.3f to %.3f bytes per input byte (allowed: %.1f%%)",
+                        result.getParserName(),
+                        increase,
+                        allocation,
+                        current,
+                        maxAllocationIncrease));
+            }
+        }
+
+        return regressions;
+    }
+
+    /**
+     * Gets a string representation of this baseline.
+     *
+     * @return A string representation of this baseline.
+     */
+    public String toString() {
+        return this.file.getPath();
+    }
+}
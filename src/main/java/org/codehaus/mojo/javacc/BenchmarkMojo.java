@@ -0,0 +1,310 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+/**
+ * Measures the throughput and the allocations of the parsers generated by the other goals of this plugin. The
+ * generated parsers are compiled into a scratch directory and each parser is run on the files of its corpus, i.e. the
+ * files in a subdirectory of the corpus directory named after the parser class (e.g.
+ * <code>src/test/corpus/MyParser</code>). Parsers without a corpus are skipped. Like a JMH benchmark in throughput
+ * mode, the corpus is parsed repeatedly for a fixed time per iteration, after some warmup iterations. The parses and
+ * tokens per second and the bytes allocated per parse are logged and written to a JSON report below the build
+ * directory. If a baseline report exists, the build fails when the throughput of a parser drops or its allocations
+ * per input byte rise beyond the configured thresholds.
+ *
+ * @since 3.3
+ */
+@Mojo(
+        name = "benchmark",
+        defaultPhase = LifecyclePhase.VERIFY,
+        requiresDependencyResolution = ResolutionScope.COMPILE,
+        threadSafe = true)
+public class BenchmarkMojo extends AbstractBenchmarkMojo {
+
+    /**
+     * The patterns used to select grammar files from the source directories.
+     */
+    private static final String[] GRAMMAR_INCLUDES = {
+        "**/*.jj", "**/*.JJ", "**/*.jjt", "**/*.JJT", "**/*.jtb", "**/*.JTB"
+    };
+
+    /**
+     * The directories where the grammar files of the parsers are located. By default, the directories
+     * <code>${basedir}/src/main/javacc</code>, <code>${basedir}/src/main/jjtree</code> and
+     * <code>${basedir}/src/main/jtb</code> are scanned for grammar files.
+     */
+    @Parameter
+    private File[] sourceDirectories;
+
+    /**
+     * The default source directory for grammar files processed by the goal <code>javacc</code>.
+     */
+    @Parameter(defaultValue = "${basedir}/src/main/javacc")
+    private File defaultGrammarDirectoryJavaCC;
+
+    /**
+     * The default source directory for grammar files processed by the goal <code>jjtree-javacc</code>.
+     */
+    @Parameter(defaultValue = "${basedir}/src/main/jjtree")
+    private File defaultGrammarDirectoryJJTree;
+
+    /**
+     * The default source directory for grammar files processed by the goal <code>jtb-javacc</code>.
+     */
+    @Parameter(defaultValue = "${basedir}/src/main/jtb")
+    private File defaultGrammarDirectoryJTB;
+
+    /**
+     * The directory where the parser files generated by JavaCC are stored. Other types needed by the parsers are
+     * looked up in the compile source roots of the project.
+     */
+    @Parameter(
+            property = "javacc.outputDirectory",
+            defaultValue = "${project.build.directory}/generated-sources/javacc")
+    private File outputDirectory;
+
+    /**
+     * The report of an earlier benchmark against which the results are checked for performance regressions. Parsers
+     * without results in the baseline are not checked. To create or update the baseline, run the goal with the
+     * parameter <code>updateBaseline</code>.
+     */
+    @Parameter(property = "javacc.baselineFile", defaultValue = "${basedir}/src/test/javacc-benchmark-baseline.json")
+    private File baselineFile;
+
+    /**
+     * The maximum drop of the throughput in input bytes per second compared with the baseline, in percent. A negative
+     * value disables the check. Note that the throughput is only comparable between runs on similar machines and that
+     * the threshold should exceed the usual noise of the measurement.
+     */
+    @Parameter(property = "javacc.maxThroughputDrop", defaultValue = "20")
+    private double maxThroughputDrop = 20;
+
+    /**
+     * The maximum increase of the bytes allocated per input byte compared with the baseline, in percent. A negative
+     * value disables the check.
+     */
+    @Parameter(property = "javacc.maxAllocationIncrease", defaultValue = "10")
+    private double maxAllocationIncrease = 10;
+
+    /**
+     * A flag whether to write the results to the baseline file instead of checking them against it.
+     */
+    @Parameter(property = "javacc.updateBaseline", defaultValue = "false")
+    private boolean updateBaseline;
+
+    /**
+     * Benchmarks the generated parsers.
+     *
+     * @throws MojoExecutionException If a parser could not be compiled or failed to parse its corpus.
+     * @throws MojoFailureException If the performance of a parser regressed compared with the baseline.
+     */
+    protected void executeBenchmark() throws MojoExecutionException, MojoFailureException {
+        Map<String, GrammarInfo> parsers = scanForParsers();
+        if (parsers.isEmpty()) {
+            getLog().info("No parsers to benchmark");
+            return;
+        }
+
+        List<File> sourcePath = getSourcePath();
+        List<File> parserFiles = new ArrayList<>();
+        for (GrammarInfo grammarInfo : parsers.values()) {
+            parserFiles.add(findParserFile(grammarInfo, sourcePath));
+        }
+        File classesDirectory = new File(getProject().getBuild().getDirectory(), "javacc-benchmark/classes");
+        List<String> classPath = getClassPath();
+        try {
+            compileParsers(parserFiles, sourcePath, classPath, classesDirectory);
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+
+        List<ParserBenchmark.Result> results = new ArrayList<>();
+        try (URLClassLoader classLoader = newClassLoader(classesDirectory, classPath)) {
+            int index = 0;
+            for (Map.Entry<String, GrammarInfo> parser : parsers.entrySet()) {
+                ParserBenchmark.Result result;
+                try {
+                    ParserBenchmark benchmark = newBenchmark(classLoader, parser.getValue(), parserFiles.get(index++));
+                    getLog().info("Benchmarking " + benchmark);
+                    result = runBenchmark(benchmark);
+                } catch (IOException e) {
+                    throw new MojoExecutionException(
+                            "Failed to benchmark parser " + parser.getKey() + ": " + e.getMessage(), e);
+                }
+                getLog().info("  " + result);
+                results.add(result);
+            }
+        } catch (IOException e) {
+            getLog().debug("Failed to close class loader", e);
+        }
+
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\n");
+        appendJsonSettings(json, "  ");
+        json.append("  \"parsers\": [");
+        String separator = "\n";
+        for (ParserBenchmark.Result result : results) {
+            json.append(separator);
+            result.appendJson(json, "    ");
+            separator = ",\n";
+        }
+        json.append(results.isEmpty() ? "]\n" : "\n  ]\n").append("}\n");
+        File reportFile = getReportFile(".json");
+        writeReport(reportFile, json.toString());
+        getLog().info("Benchmark report: " + reportFile);
+
+        if (this.updateBaseline) {
+            writeReport(this.baselineFile, json.toString());
+            getLog().info("Updated benchmark baseline: " + this.baselineFile);
+        } else if (this.baselineFile.isFile()) {
+            checkBaseline(results);
+        } else {
+            getLog().info("No benchmark baseline to check against: " + this.baselineFile);
+        }
+    }
+
+    /**
+     * Checks the results against the baseline file.
+     *
+     * @param results The results of the benchmarks, must not be <code>null</code>.
+     * @throws MojoExecutionException If the baseline could not be read.
+     * @throws MojoFailureException If the performance of a parser regressed.
+     */
+    private void checkBaseline(List<ParserBenchmark.Result> results)
+            throws MojoExecutionException, MojoFailureException {
+        BenchmarkBaseline baseline;
+        try {
+            baseline = BenchmarkBaseline.read(this.baselineFile);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to read benchmark baseline: " + this.baselineFile, e);
+        }
+
+        List<String> regressions = new ArrayList<>();
+        for (ParserBenchmark.Result result : results) {
+            if (!baseline.contains(result.getParserName())) {
+                getLog().info("No baseline for parser " + result.getParserName() + " in " + baseline);
+            }
+            regressions.addAll(baseline.check(result, this.maxThroughputDrop, this.maxAllocationIncrease));
+        }
+        if (!regressions.isEmpty()) {
+            for (String regression : regressions) {
+                getLog().error(regression);
+            }
+            throw new MojoFailureException("Performance regression compared with " + baseline
+                    + ", run with -Djavacc.updateBaseline=true to accept the new results");
+        }
+        getLog().info("No performance regression compared with " + baseline);
+    }
+
+    /**
+     * Gets the source directories that should be scanned for grammar files.
+     *
+     * @return The source directories that should be scanned for grammar files, never <code>null</code>.
+     */
+    private File[] getSourceDirectories() {
+        Set<File> directories = new LinkedHashSet<>();
+        if (this.sourceDirectories != null && this.sourceDirectories.length > 0) {
+            directories.addAll(Arrays.asList(this.sourceDirectories));
+        } else {
+            if (this.defaultGrammarDirectoryJavaCC != null) {
+                directories.add(this.defaultGrammarDirectoryJavaCC);
+            }
+            if (this.defaultGrammarDirectoryJJTree != null) {
+                directories.add(this.defaultGrammarDirectoryJJTree);
+            }
+            if (this.defaultGrammarDirectoryJTB != null) {
+                directories.add(this.defaultGrammarDirectoryJTB);
+            }
+        }
+        return directories.toArray(new File[0]);
+    }
+
+    /**
+     * Scans the source directories for grammar files whose parsers have a corpus.
+     *
+     * @return The grammar infos keyed by the fully qualified name of the parser class, never <code>null</code>.
+     * @throws MojoExecutionException If a source directory could not be scanned.
+     */
+    private Map<String, GrammarInfo> scanForParsers() throws MojoExecutionException {
+        Map<String, GrammarInfo> parsers = new LinkedHashMap<>();
+        for (File sourceDirectory : getSourceDirectories()) {
+            for (GrammarInfo grammarInfo : scanForGrammars(sourceDirectory, GRAMMAR_INCLUDES, null)) {
+                File corpus = getCorpusDirectory(grammarInfo);
+                if (!corpus.isDirectory()) {
+                    getLog().info("Skipping parser " + grammarInfo.getParserName() + " without corpus: " + corpus);
+                    continue;
+                }
+                parsers.putIfAbsent(getParserClassName(grammarInfo), grammarInfo);
+            }
+        }
+        return parsers;
+    }
+
+    /**
+     * Gets the source roots searched for the generated parser files and the types they need.
+     *
+     * @return The source roots, never <code>null</code>.
+     */
+    private List<File> getSourcePath() {
+        Set<File> sourcePath = new LinkedHashSet<>();
+        sourcePath.add(this.outputDirectory.getAbsoluteFile());
+        for (String root : getProject().getCompileSourceRoots()) {
+            sourcePath.add(new File(root).getAbsoluteFile());
+        }
+        return new ArrayList<>(sourcePath);
+    }
+
+    /**
+     * Finds the file of the parser generated from the specified grammar.
+     *
+     * @param grammarInfo The grammar info describing the grammar file, must not be <code>null</code>.
+     * @param sourcePath The source roots to search, must not be <code>null</code>.
+     * @return The parser file, never <code>null</code>.
+     * @throws MojoExecutionException If the parser file does not exist in any source root.
+     */
+    private static File findParserFile(GrammarInfo grammarInfo, List<File> sourcePath) throws MojoExecutionException {
+        for (File sourceRoot : sourcePath) {
+            File parserFile = new File(sourceRoot, grammarInfo.getParserFile());
+            if (parserFile.isFile()) {
+                return parserFile;
+            }
+        }
+        throw new MojoExecutionException("Parser file " + grammarInfo.getParserFile() + " of grammar "
+                + grammarInfo.getGrammarFile() + " not found, the parser must be generated before benchmarking");
+    }
+}
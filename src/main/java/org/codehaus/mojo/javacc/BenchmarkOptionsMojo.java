@@ -0,0 +1,527 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Finds the fastest combination of JavaCC options for each grammar file. Every grammar file whose parser has a corpus
+ * is generated once per combination of the option values configured for the matrix, and each variant is benchmarked
+ * like by the goal <code>benchmark</code>. The variants are ranked by parses per second and a configuration snippet
+ * with the options of the fastest variant is logged and written next to the JSON report below the build directory.
+ * Variants whose parser cannot be generated or rejects an input of the corpus are reported as failed. Note that the
+ * duration of the goal grows with the product of the numbers of option values.
+ *
+ * @since 3.3
+ */
+@Mojo(name = "benchmark-options", requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class BenchmarkOptionsMojo extends AbstractBenchmarkMojo {
+
+    /**
+     * The directory where the JavaCC grammar files (<code>*.jj</code>) are located.
+     */
+    @Parameter(property = "javacc.sourceDirectory", defaultValue = "${basedir}/src/main/javacc")
+    private File sourceDirectory;
+
+    /**
+     * A set of Ant-like inclusion patterns used to select files from the source directory for processing. By default,
+     * the patterns <code>**&#47;*.jj</code> and <code>**&#47;*.JJ</code> are used to select grammar files.
+     */
+    @Parameter
+    private String[] includes;
+
+    /**
+     * A set of Ant-like exclusion patterns used to prevent certain files from being processed. By default, this set is
+     * empty such that no files are excluded.
+     */
+    @Parameter
+    private String[] excludes;
+
+    /**
+     * The directory where the goal <code>javacc</code> stores the generated parser files. This directory is excluded
+     * from the source path such that each variant is compiled from its own generated files only.
+     */
+    @Parameter(
+            property = "javacc.outputDirectory",
+            defaultValue = "${project.build.directory}/generated-sources/javacc")
+    private File outputDirectory;
+
+    /**
+     * The directory where the variants of the parsers are generated and compiled.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/javacc-benchmark-options")
+    private File workDirectory;
+
+    /**
+     * The Java version for which to generate source code, used for all variants.
+     */
+    @Parameter(property = "javacc.jdkVersion")
+    private String jdkVersion;
+
+    /**
+     * The comma-separated values of the option <code>CACHE_TOKENS</code> to try. A single value sets the option for
+     * all variants.
+     */
+    @Parameter(defaultValue = "false,true")
+    private String cacheTokens = "false,true";
+
+    /**
+     * The comma-separated values of the option <code>STATIC</code> to try. A single value sets the option for all
+     * variants.
+     */
+    @Parameter(defaultValue = "true,false")
+    private String isStatic = "true,false";
+
+    /**
+     * The comma-separated values of the option <code>KEEP_LINE_COLUMN</code> to try. A single value sets the option
+     * for all variants.
+     */
+    @Parameter(defaultValue = "true,false")
+    private String keepLineColumn = "true,false";
+
+    /**
+     * The comma-separated values of the option <code>ERROR_REPORTING</code> to try. A single value sets the option
+     * for all variants.
+     */
+    @Parameter(defaultValue = "true,false")
+    private String errorReporting = "true,false";
+
+    /**
+     * The comma-separated values of the option <code>JAVA_UNICODE_ESCAPE</code> to try. By default, the option is
+     * left to the grammar file because it changes the accepted input.
+     */
+    @Parameter
+    private String javaUnicodeEscape;
+
+    /**
+     * The comma-separated values of the option <code>UNICODE_INPUT</code> to try. By default, the option is left to
+     * the grammar file because it changes the accepted input.
+     */
+    @Parameter
+    private String unicodeInput;
+
+    /**
+     * The comma-separated values of the option <code>LOOKAHEAD</code> to try. By default, the option is left to the
+     * grammar file because it changes the parsed language.
+     */
+    @Parameter
+    private String lookAhead;
+
+    /**
+     * Generates, benchmarks and ranks the variants of the parsers.
+     *
+     * @throws MojoExecutionException If the option matrix is invalid or the parsers could not be benchmarked.
+     * @throws MojoFailureException Not thrown.
+     */
+    protected void executeBenchmark() throws MojoExecutionException, MojoFailureException {
+        List<Map<String, String>> matrix = getOptionMatrix();
+
+        List<GrammarInfo> grammarInfos = new ArrayList<>();
+        for (GrammarInfo grammarInfo : scanForGrammars(this.sourceDirectory, getIncludes(), this.excludes)) {
+            File corpus = getCorpusDirectory(grammarInfo);
+            if (corpus.isDirectory()) {
+                grammarInfos.add(grammarInfo);
+            } else {
+                getLog().info("Skipping parser " + grammarInfo.getParserName() + " without corpus: " + corpus);
+            }
+        }
+        if (grammarInfos.isEmpty()) {
+            getLog().info("No parsers to benchmark");
+            return;
+        }
+
+        getLog().info("Benchmarking " + matrix.size() + " option variant" + (matrix.size() != 1 ? "s" : "") + " of "
+                + grammarInfos.size() + " parser" + (grammarInfos.size() != 1 ? "s" : ""));
+        List<String> classPath = getClassPath();
+        StringBuilder json = new StringBuilder(4096);
+        json.append("{\n");
+        appendJsonSettings(json, "  ");
+        json.append("  \"grammars\": [");
+        StringBuilder snippets = new StringBuilder(1024);
+        String separator = "\n";
+        for (GrammarInfo grammarInfo : grammarInfos) {
+            List<Variant> variants = new ArrayList<>();
+            for (Map<String, String> options : matrix) {
+                Variant variant = new Variant(options);
+                benchmarkVariant(grammarInfo, variant, variants.size(), classPath);
+                variants.add(variant);
+            }
+            List<Variant> ranking = rank(variants);
+            logRanking(grammarInfo, ranking, variants);
+
+            json.append(separator);
+            appendJson(json, grammarInfo, ranking, variants);
+            separator = ",\n";
+            if (!ranking.isEmpty()) {
+                String snippet = getConfigurationSnippet(ranking.get(0));
+                getLog().info("Recommended configuration for " + getParserClassName(grammarInfo) + ":");
+                for (String line : snippet.split("\n")) {
+                    getLog().info("  " + line);
+                }
+                snippets.append("<!-- ").append(getParserClassName(grammarInfo)).append(": ");
+                snippets.append(ranking.get(0).result)
+                        .append(" -->\n")
+                        .append(snippet)
+                        .append('\n');
+            }
+        }
+        json.append("\n  ]\n}\n");
+
+        File reportFile = getReportFile(".json");
+        writeReport(reportFile, json.toString());
+        File snippetFile = getReportFile("-recommended.xml");
+        writeReport(snippetFile, snippets.toString());
+        getLog().info("Benchmark report: " + reportFile);
+        getLog().info("Recommended configuration: " + snippetFile);
+    }
+
+    /**
+     * Gets the inclusion patterns for grammar files.
+     *
+     * @return The inclusion patterns, never <code>null</code>.
+     */
+    private String[] getIncludes() {
+        if (this.includes != null) {
+            return this.includes;
+        } else {
+            return new String[] {"**/*.jj", "**/*.JJ"};
+        }
+    }
+
+    /**
+     * Gets the combinations of option values to benchmark, i.e. the cartesian product of the configured values.
+     *
+     * @return The combinations of option values, keyed by the names of the mojo parameters, never empty.
+     * @throws MojoExecutionException If an option value is invalid.
+     */
+    List<Map<String, String>> getOptionMatrix() throws MojoExecutionException {
+        Map<String, String> dimensions = new LinkedHashMap<>();
+        dimensions.put("cacheTokens", this.cacheTokens);
+        dimensions.put("isStatic", this.isStatic);
+        dimensions.put("keepLineColumn", this.keepLineColumn);
+        dimensions.put("errorReporting", this.errorReporting);
+        dimensions.put("javaUnicodeEscape", this.javaUnicodeEscape);
+        dimensions.put("unicodeInput", this.unicodeInput);
+        dimensions.put("lookAhead", this.lookAhead);
+
+        List<Map<String, String>> matrix = new ArrayList<>();
+        matrix.add(Collections.<String, String>emptyMap());
+        for (Map.Entry<String, String> dimension : dimensions.entrySet()) {
+            Set<String> values = parseValues(dimension.getKey(), dimension.getValue());
+            if (values.isEmpty()) {
+                continue;
+            }
+            List<Map<String, String>> product = new ArrayList<>();
+            for (Map<String, String> options : matrix) {
+                for (String value : values) {
+                    Map<String, String> variant = new LinkedHashMap<>(options);
+                    variant.put(dimension.getKey(), value);
+                    product.add(variant);
+                }
+            }
+            matrix = product;
+        }
+        return matrix;
+    }
+
+    /**
+     * Parses the comma-separated values of an option.
+     *
+     * @param name The name of the option, must not be <code>null</code>.
+     * @param values The comma-separated values, may be <code>null</code>.
+     * @return The distinct values in their given order, never <code>null</code>.
+     * @throws MojoExecutionException If a value is invalid for the option.
+     */
+    private static Set<String> parseValues(String name, String values) throws MojoExecutionException {
+        Set<String> result = new LinkedHashSet<>();
+        if (values == null) {
+            return result;
+        }
+        for (String value : values.split(",")) {
+            value = value.trim().toLowerCase(Locale.ENGLISH);
+            if (value.isEmpty()) {
+                continue;
+            }
+            if ("lookAhead".equals(name)) {
+                if (!value.matches("[1-9][0-9]*")) {
+                    throw new MojoExecutionException("Invalid value for " + name + ": " + value);
+                }
+            } else if (!"true".equals(value) && !"false".equals(value)) {
+                throw new MojoExecutionException("Invalid value for " + name + ": " + value);
+            }
+            result.add(value);
+        }
+        return result;
+    }
+
+    /**
+     * Generates, compiles and benchmarks a variant of a parser. Failures are recorded in the variant.
+     *
+     * @param grammarInfo The grammar info describing the grammar file, must not be <code>null</code>.
+     * @param variant The variant to benchmark, must not be <code>null</code>.
+     * @param index The index of the variant, used to name its directory.
+     * @param classPath The class path of the parsers, must not be <code>null</code>.
+     */
+    private void benchmarkVariant(GrammarInfo grammarInfo, Variant variant, int index, List<String> classPath) {
+        File variantDirectory = new File(this.workDirectory, getParserClassName(grammarInfo) + "/" + index);
+        File sourceDirectory = new File(variantDirectory, "src");
+        File classesDirectory = new File(variantDirectory, "classes");
+        getLog().info("Benchmarking " + getParserClassName(grammarInfo) + " with " + variant.options);
+        try {
+            FileUtils.deleteDirectory(sourceDirectory);
+            JavaCC javacc = newJavaCC(variant.options);
+            javacc.setInputFile(grammarInfo.getGrammarFile());
+            javacc.setOutputDirectory(new File(sourceDirectory, grammarInfo.getParserDirectory()));
+            javacc.run();
+
+            File parserFile = new File(sourceDirectory, grammarInfo.getParserFile());
+            compileParsers(
+                    Collections.singletonList(parserFile), getSourcePath(sourceDirectory), classPath, classesDirectory);
+            try (URLClassLoader classLoader = newClassLoader(classesDirectory, classPath)) {
+                variant.result = runBenchmark(newBenchmark(classLoader, grammarInfo, parserFile));
+            }
+            getLog().info("  " + variant.result);
+        } catch (IOException | MojoExecutionException | MojoFailureException e) {
+            variant.failure = (e.getCause() != null && !(e instanceof IOException))
+                    ? e.getMessage() + ": " + e.getCause().getMessage()
+                    : e.getMessage();
+            getLog().warn("  Variant failed: " + variant.failure);
+            getLog().debug(e);
+        }
+    }
+
+    /**
+     * Creates a new facade to invoke JavaCC with the specified option values.
+     *
+     * @param options The option values, keyed by the names of the mojo parameters, must not be <code>null</code>.
+     * @return The facade for the tool invocation, never <code>null</code>.
+     */
+    private JavaCC newJavaCC(Map<String, String> options) {
+        JavaCC javacc = new JavaCC();
+        javacc.setLog(getLog());
+        javacc.setGrammarEncoding(getGrammarEncoding());
+        javacc.setJdkVersion(this.jdkVersion);
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            String value = option.getValue();
+            switch (option.getKey()) {
+                case "cacheTokens":
+                    javacc.setCacheTokens(Boolean.valueOf(value));
+                    break;
+                case "isStatic":
+                    javacc.setStatic(Boolean.valueOf(value));
+                    break;
+                case "keepLineColumn":
+                    javacc.setKeepLineColumn(Boolean.valueOf(value));
+                    break;
+                case "errorReporting":
+                    javacc.setErrorReporting(Boolean.valueOf(value));
+                    break;
+                case "javaUnicodeEscape":
+                    javacc.setJavaUnicodeEscape(Boolean.valueOf(value));
+                    break;
+                case "unicodeInput":
+                    javacc.setUnicodeInput(Boolean.valueOf(value));
+                    break;
+                case "lookAhead":
+                    javacc.setLookAhead(Integer.valueOf(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + option.getKey());
+            }
+        }
+        return javacc;
+    }
+
+    /**
+     * Gets the source roots for compiling a variant. The compile source roots of the project come first such that
+     * customized files take precedence over generated ones, like when the project is compiled.
+     *
+     * @param variantSourceDirectory The directory with the generated files of the variant, must not be
+     *            <code>null</code>.
+     * @return The source roots, never <code>null</code>.
+     */
+    private List<File> getSourcePath(File variantSourceDirectory) {
+        Set<File> sourcePath = new LinkedHashSet<>();
+        File generated = this.outputDirectory.getAbsoluteFile();
+        for (String root : getProject().getCompileSourceRoots()) {
+            File directory = new File(root).getAbsoluteFile();
+            if (!directory.equals(generated)) {
+                sourcePath.add(directory);
+            }
+        }
+        sourcePath.add(variantSourceDirectory.getAbsoluteFile());
+        return new ArrayList<>(sourcePath);
+    }
+
+    /**
+     * Ranks the successfully benchmarked variants by parses per second.
+     *
+     * @param variants The variants, must not be <code>null</code>.
+     * @return The successful variants, fastest first, never <code>null</code>.
+     */
+    static List<Variant> rank(List<Variant> variants) {
+        List<Variant> ranking = new ArrayList<>();
+        for (Variant variant : variants) {
+            if (variant.result != null) {
+                ranking.add(variant);
+            }
+        }
+        ranking.sort((v1, v2) -> Double.compare(v2.result.getParsesPerSecond(), v1.result.getParsesPerSecond()));
+        return ranking;
+    }
+
+    /**
+     * Logs the ranking of the variants of a parser.
+     *
+     * @param grammarInfo The grammar info describing the grammar file, must not be <code>null</code>.
+     * @param ranking The successful variants, fastest first, must not be <code>null</code>.
+     * @param variants All variants, must not be <code>null</code>.
+     */
+    private void logRanking(GrammarInfo grammarInfo, List<Variant> ranking, List<Variant> variants) {
+        getLog().info("Ranking of " + getParserClassName(grammarInfo) + ":");
+        for (int i = 0; i < ranking.size(); i++) {
+            Variant variant = ranking.get(i);
+            double relative =
+                    variant.result.getParsesPerSecond() / ranking.get(0).result.getParsesPerSecond();
+            getLog().info(String.format(
+                    Locale.ROOT, "  %2d. %5.1f%% %s %s", i + 1, relative * 100, variant.options, variant.result));
+        }
+        for (Variant variant : variants) {
+            if (variant.failure != null) {
+                getLog().info("   -. failed " + variant.options + " " + variant.failure);
+            }
+        }
+    }
+
+    /**
+     * Appends a JSON object describing the ranked variants of a parser to the specified buffer.
+     *
+     * @param json The buffer to append to, must not be <code>null</code>.
+     * @param grammarInfo The grammar info describing the grammar file, must not be <code>null</code>.
+     * @param ranking The successful variants, fastest first, must not be <code>null</code>.
+     * @param variants All variants, must not be <code>null</code>.
+     */
+    private static void appendJson(
+            StringBuilder json, GrammarInfo grammarInfo, List<Variant> ranking, List<Variant> variants) {
+        json.append("    {\n");
+        json.append("      \"grammar\": ").append(GrammarMetrics.quote(grammarInfo.getRelativeGrammarFile()));
+        json.append(",\n      \"parser\": ").append(GrammarMetrics.quote(getParserClassName(grammarInfo)));
+        json.append(",\n      \"variants\": [");
+        List<Variant> ordered = new ArrayList<>(ranking);
+        for (Variant variant : variants) {
+            if (variant.failure != null) {
+                ordered.add(variant);
+            }
+        }
+        String separator = "\n";
+        for (Variant variant : ordered) {
+            json.append(separator).append("        {\n");
+            if (variant.result != null) {
+                json.append("          \"rank\": ")
+                        .append(ranking.indexOf(variant) + 1)
+                        .append(",\n");
+            }
+            json.append("          \"options\": {");
+            String optionSeparator = " ";
+            for (Map.Entry<String, String> option : variant.options.entrySet()) {
+                json.append(optionSeparator)
+                        .append(GrammarMetrics.quote(option.getKey()))
+                        .append(": ");
+                json.append(GrammarMetrics.quote(option.getValue()));
+                optionSeparator = ", ";
+            }
+            json.append(variant.options.isEmpty() ? "},\n" : " },\n");
+            if (variant.result != null) {
+                json.append("          \"result\":\n");
+                variant.result.appendJson(json, "          ");
+                json.append('\n');
+            } else {
+                json.append("          \"failure\": ").append(GrammarMetrics.quote(String.valueOf(variant.failure)));
+                json.append('\n');
+            }
+            json.append("        }");
+            separator = ",\n";
+        }
+        json.append(ordered.isEmpty() ? "]\n" : "\n      ]\n");
+        json.append("    }");
+    }
+
+    /**
+     * Gets the plugin configuration that selects the options of the specified variant.
+     *
+     * @param variant The variant, must not be <code>null</code>.
+     * @return The configuration snippet, never <code>null</code>.
+     */
+    static String getConfigurationSnippet(Variant variant) {
+        StringBuilder snippet = new StringBuilder("<configuration>\n");
+        for (Map.Entry<String, String> option : variant.options.entrySet()) {
+            snippet.append("  <").append(option.getKey()).append('>').append(option.getValue());
+            snippet.append("</").append(option.getKey()).append(">\n");
+        }
+        return snippet.append("</configuration>").toString();
+    }
+
+    /**
+     * A combination of option values and its benchmark result.
+     */
+    static class Variant {
+
+        /**
+         * The option values, keyed by the names of the mojo parameters.
+         */
+        final Map<String, String> options;
+
+        /**
+         * The result of the benchmark, <code>null</code> if the variant failed.
+         */
+        ParserBenchmark.Result result;
+
+        /**
+         * The reason why the variant failed, <code>null</code> on success.
+         */
+        String failure;
+
+        /**
+         * Creates a new variant.
+         *
+         * @param options The option values, keyed by the names of the mojo parameters, must not be <code>null</code>.
+         */
+        Variant(Map<String, String> options) {
+            this.options = options;
+        }
+    }
+}
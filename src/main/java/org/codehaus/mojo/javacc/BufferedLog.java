@@ -0,0 +1,218 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * A logger that records messages in memory until they are flushed to another logger. This is used to keep the output
+ * of grammars that are processed concurrently together and in a deterministic order.
+ */
+class BufferedLog implements Log {
+
+    /**
+     * The logger to which the buffered messages are eventually flushed.
+     */
+    private final Log target;
+
+    /**
+     * The buffered messages in the order they were logged, guarded by <code>this</code>.
+     */
+    private final List<Message> messages = new ArrayList<>();
+
+    /**
+     * Creates a new buffering logger.
+     *
+     * @param target The logger to which the buffered messages are eventually flushed, must not be <code>null</code>.
+     */
+    public BufferedLog(Log target) {
+        this.target = target;
+    }
+
+    /**
+     * Writes all buffered messages to the target logger and clears the buffer.
+     */
+    public synchronized void flush() {
+        for (Message message : this.messages) {
+            message.writeTo(this.target);
+        }
+        this.messages.clear();
+    }
+
+    /**
+     * Adds the specified message to the buffer.
+     *
+     * @param level The level of the message.
+     * @param content The message text, may be <code>null</code>.
+     * @param error The exception to log, may be <code>null</code>.
+     */
+    private synchronized void add(Level level, CharSequence content, Throwable error) {
+        this.messages.add(new Message(level, content, error));
+    }
+
+    public boolean isDebugEnabled() {
+        return this.target.isDebugEnabled();
+    }
+
+    public void debug(CharSequence content) {
+        add(Level.DEBUG, content, null);
+    }
+
+    public void debug(CharSequence content, Throwable error) {
+        add(Level.DEBUG, content, error);
+    }
+
+    public void debug(Throwable error) {
+        add(Level.DEBUG, null, error);
+    }
+
+    public boolean isInfoEnabled() {
+        return this.target.isInfoEnabled();
+    }
+
+    public void info(CharSequence content) {
+        add(Level.INFO, content, null);
+    }
+
+    public void info(CharSequence content, Throwable error) {
+        add(Level.INFO, content, error);
+    }
+
+    public void info(Throwable error) {
+        add(Level.INFO, null, error);
+    }
+
+    public boolean isWarnEnabled() {
+        return this.target.isWarnEnabled();
+    }
+
+    public void warn(CharSequence content) {
+        add(Level.WARN, content, null);
+    }
+
+    public void warn(CharSequence content, Throwable error) {
+        add(Level.WARN, content, error);
+    }
+
+    public void warn(Throwable error) {
+        add(Level.WARN, null, error);
+    }
+
+    public boolean isErrorEnabled() {
+        return this.target.isErrorEnabled();
+    }
+
+    public void error(CharSequence content) {
+        add(Level.ERROR, content, null);
+    }
+
+    public void error(CharSequence content, Throwable error) {
+        add(Level.ERROR, content, error);
+    }
+
+    public void error(Throwable error) {
+        add(Level.ERROR, null, error);
+    }
+
+    /**
+     * The supported log levels.
+     */
+    private enum Level {
+        DEBUG,
+        INFO,
+        WARN,
+        ERROR
+    }
+
+    /**
+     * A single buffered log message.
+     */
+    private static class Message {
+
+        /**
+         * The level of the message.
+         */
+        private final Level level;
+
+        /**
+         * The message text, may be <code>null</code>.
+         */
+        private final CharSequence content;
+
+        /**
+         * The exception to log, may be <code>null</code>.
+         */
+        private final Throwable error;
+
+        /**
+         * Creates a new message.
+         *
+         * @param level The level of the message.
+         * @param content The message text, may be <code>null</code>.
+         * @param error The exception to log, may be <code>null</code>.
+         */
+        Message(Level level, CharSequence content, Throwable error) {
+            this.level = level;
+            this.content = content;
+            this.error = error;
+        }
+
+        /**
+         * Writes this message to the specified logger.
+         *
+         * @param log The logger to write to, must not be <code>null</code>.
+         */
+        void writeTo(Log log) {
+            switch (this.level) {
+                case DEBUG:
+                    if (this.content == null) {
+                        log.debug(this.error);
+                    } else {
+                        log.debug(this.content, this.error);
+                    }
+                    break;
+                case INFO:
+                    if (this.content == null) {
+                        log.info(this.error);
+                    } else {
+                        log.info(this.content, this.error);
+                    }
+                    break;
+                case WARN:
+                    if (this.content == null) {
+                        log.warn(this.error);
+                    } else {
+                        log.warn(this.content, this.error);
+                    }
+                    break;
+                default:
+                    if (this.content == null) {
+                        log.error(this.error);
+                    } else {
+                        log.error(this.content, this.error);
+                    }
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * A content-addressed cache for the files generated from grammar files, shared by all builds on a machine. An entry
+ * is keyed by a digest over everything that determines the generated files, i.e. the grammar file, its included files,
+ * the tool versions and the tool arguments. It holds one group of generated files per output package and compile
+ * source root, such that restoring an entry copies the files just like the plugin copies freshly generated files.
+ * Entries are written to a temporary directory first and renamed into place, so concurrent builds never observe
+ * partial entries. Optionally, the cache is backed by a {@link RemoteCache} shared between machines.
+ */
+class BuildCache {
+
+    /**
+     * The name of the file describing the groups of an entry.
+     */
+    private static final String GROUPS = "groups.properties";
+
+    /**
+     * The name of the directory holding entries under construction.
+     */
+    private static final String STAGING = "staging";
+
+    /**
+     * The base directory of the cache.
+     */
+    private final File directory;
+
+    /**
+     * The remote cache consulted on misses, may be <code>null</code>.
+     */
+    private RemoteCache remoteCache;
+
+    /**
+     * A flag whether new entries are uploaded to the remote cache.
+     */
+    private boolean remoteWritable;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param directory The base directory of the cache, must not be <code>null</code>.
+     */
+    public BuildCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the base directory of the cache.
+     *
+     * @return The base directory of the cache, never <code>null</code>.
+     */
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Sets the remote cache. On a miss in the local cache directory, the entry is downloaded from the remote cache
+     * into the local cache directory. If the remote cache is writable, entries committed to the local cache are
+     * uploaded to the remote cache, too.
+     *
+     * @param remoteCache The remote cache, may be <code>null</code>.
+     * @param writable A flag whether new entries are uploaded to the remote cache.
+     */
+    public void setRemoteCache(RemoteCache remoteCache, boolean writable) {
+        this.remoteCache = remoteCache;
+        this.remoteWritable = writable;
+    }
+
+    /**
+     * Gets the directory of the entry with the specified key.
+     *
+     * @param key The key of the entry, must not be <code>null</code>.
+     * @return The directory of the entry, never <code>null</code>.
+     */
+    File getEntryDirectory(String key) {
+        return new File(this.directory, key.substring(0, 2) + '/' + key);
+    }
+
+    /**
+     * Gets the groups of generated files of the entry with the specified key.
+     *
+     * @param key The key of the entry, must not be <code>null</code>.
+     * @return The groups of the entry or <code>null</code> if the cache holds no such entry.
+     * @throws IOException If the entry could not be read.
+     */
+    public List<Group> get(String key) throws IOException {
+        List<Group> groups = getLocal(key);
+        if (groups == null && this.remoteCache != null && fetch(key)) {
+            groups = getLocal(key);
+        }
+        return groups;
+    }
+
+    /**
+     * Gets the groups of generated files of the entry with the specified key from the local cache directory.
+     *
+     * @param key The key of the entry, must not be <code>null</code>.
+     * @return The groups of the entry or <code>null</code> if the local cache directory holds no such entry.
+     * @throws IOException If the entry could not be read.
+     */
+    private List<Group> getLocal(String key) throws IOException {
+        File entryDirectory = getEntryDirectory(key);
+        File groupsFile = new File(entryDirectory, GROUPS);
+        if (!groupsFile.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream is = new FileInputStream(groupsFile)) {
+            properties.load(is);
+        }
+        List<Group> groups = new ArrayList<>();
+        for (int i = 0; properties.containsKey(i + ".root"); i++) {
+            int root = Integer.parseInt(properties.getProperty(i + ".root"));
+            String packageName = properties.getProperty(i + ".package", "");
+            String updatePattern = properties.getProperty(i + ".pattern");
+            groups.add(new Group(new File(entryDirectory, String.valueOf(i)), root, packageName, updatePattern));
+        }
+        return groups;
+    }
+
+    /**
+     * Starts a new entry. The generated files are collected in a staging directory until the entry is committed.
+     *
+     * @return The new entry, never <code>null</code>.
+     * @throws IOException If the staging directory could not be created.
+     */
+    public Entry newEntry() throws IOException {
+        return new Entry(newStagingDirectory());
+    }
+
+    /**
+     * Creates a new, empty directory for an entry under construction.
+     *
+     * @return The new staging directory, never <code>null</code>.
+     * @throws IOException If the directory could not be created.
+     */
+    private File newStagingDirectory() throws IOException {
+        File stagingDirectory = new File(this.directory, STAGING + '/' + UUID.randomUUID());
+        if (!stagingDirectory.mkdirs()) {
+            throw new IOException("Failed to create directory " + stagingDirectory);
+        }
+        return stagingDirectory;
+    }
+
+    /**
+     * Renames a complete staging directory into the entry directory with the specified key. If another build added an
+     * entry with the same key in the meantime, that entry is kept.
+     *
+     * @param stagingDirectory The staging directory, must not be <code>null</code>.
+     * @param key The key of the entry, must not be <code>null</code>.
+     * @return <code>true</code> if the entry was added, <code>false</code> otherwise.
+     * @throws IOException If the entry could not be added.
+     */
+    private boolean install(File stagingDirectory, String key) throws IOException {
+        File entryDirectory = getEntryDirectory(key);
+        if (entryDirectory.exists()) {
+            return false;
+        }
+        Files.createDirectories(entryDirectory.getParentFile().toPath());
+        try {
+            Files.move(stagingDirectory.toPath(), entryDirectory.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (AtomicMoveNotSupportedException e) {
+            throw new IOException("Cache directory does not support atomic moves: " + getDirectory(), e);
+        } catch (IOException e) {
+            if (entryDirectory.exists()) {
+                // another build committed the same entry concurrently
+                return false;
+            }
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Downloads the entry with the specified key from the remote cache into the local cache directory.
+     *
+     * @param key The key of the entry, must not be <code>null</code>.
+     * @return <code>true</code> if the entry is now available in the local cache directory, <code>false</code> if the
+     *         remote cache holds no such entry.
+     * @throws IOException If the entry could not be downloaded or unpacked.
+     */
+    private boolean fetch(String key) throws IOException {
+        File stagingDirectory = newStagingDirectory();
+        try {
+            File archive = new File(stagingDirectory.getPath() + ".zip");
+            try {
+                if (!this.remoteCache.fetch(key, archive)) {
+                    return false;
+                }
+                unpack(archive, stagingDirectory);
+            } finally {
+                Files.deleteIfExists(archive.toPath());
+            }
+            install(stagingDirectory, key);
+            return getEntryDirectory(key).isDirectory();
+        } finally {
+            FileUtils.deleteDirectory(stagingDirectory);
+        }
+    }
+
+    /**
+     * Uploads the entry with the specified key from the local cache directory to the remote cache.
+     *
+     * @param key The key of the entry, must not be <code>null</code>.
+     * @throws IOException If the entry could not be packed or uploaded.
+     */
+    private void push(String key) throws IOException {
+        File archive = new File(this.directory, STAGING + '/' + UUID.randomUUID() + ".zip");
+        try {
+            pack(getEntryDirectory(key), archive);
+            this.remoteCache.store(key, archive);
+        } finally {
+            Files.deleteIfExists(archive.toPath());
+        }
+    }
+
+    /**
+     * Packs the files of an entry directory into a compressed archive.
+     *
+     * @param entryDirectory The entry directory, must not be <code>null</code>.
+     * @param archive The archive to create, must not be <code>null</code>.
+     * @throws IOException If the archive could not be created.
+     */
+    static void pack(File entryDirectory, File archive) throws IOException {
+        Files.createDirectories(archive.getParentFile().toPath());
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(archive))) {
+            for (String path : FileUtils.getFileNames(entryDirectory, "**", null, false)) {
+                zos.putNextEntry(new ZipEntry(path.replace(File.separatorChar, '/')));
+                Files.copy(new File(entryDirectory, path).toPath(), zos);
+                zos.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Unpacks a compressed archive created by {@link #pack(File, File)} into a directory. Entries whose names would
+     * resolve outside of the directory are rejected.
+     *
+     * @param archive The archive to unpack, must not be <code>null</code>.
+     * @param entryDirectory The directory to unpack the files into, must not be <code>null</code>.
+     * @throws IOException If the archive could not be unpacked or is invalid.
+     */
+    static void unpack(File archive, File entryDirectory) throws IOException {
+        Path base = entryDirectory.toPath().toAbsolutePath().normalize();
+        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(archive))) {
+            for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                Path target = base.resolve(entry.getName()).normalize();
+                if (!target.startsWith(base) || target.equals(base)) {
+                    throw new IOException("Invalid archive entry " + entry.getName() + " in " + archive);
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    Files.copy(zis, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets a string representation of this cache.
+     *
+     * @return A string representation of this cache.
+     */
+    public String toString() {
+        return String.valueOf(this.directory);
+    }
+
+    /**
+     * A group of generated files of an entry, i.e. the files generated into one package of one compile source root.
+     */
+    static class Group {
+
+        /**
+         * The directory holding the files of the group.
+         */
+        private final File directory;
+
+        /**
+         * The index of the compile source root into which the files are copied.
+         */
+        private final int root;
+
+        /**
+         * The name of the package of the files.
+         */
+        private final String packageName;
+
+        /**
+         * The glob pattern for the names of the files that are always updated, may be <code>null</code>.
+         */
+        private final String updatePattern;
+
+        /**
+         * Creates a new group.
+         *
+         * @param directory The directory holding the files of the group, must not be <code>null</code>.
+         * @param root The index of the compile source root into which the files are copied.
+         * @param packageName The name of the package of the files, must not be <code>null</code>.
+         * @param updatePattern The glob pattern for the names of the files that are always updated, may be
+         *            <code>null</code>.
+         */
+        Group(File directory, int root, String packageName, String updatePattern) {
+            this.directory = directory;
+            this.root = root;
+            this.packageName = packageName;
+            this.updatePattern = updatePattern;
+        }
+
+        /**
+         * Gets the directory holding the files of the group.
+         *
+         * @return The directory holding the files of the group, never <code>null</code>.
+         */
+        public File getDirectory() {
+            return this.directory;
+        }
+
+        /**
+         * Gets the index of the compile source root into which the files are copied.
+         *
+         * @return The index of the compile source root.
+         */
+        public int getRoot() {
+            return this.root;
+        }
+
+        /**
+         * Gets the name of the package of the files.
+         *
+         * @return The name of the package of the files, never <code>null</code>.
+         */
+        public String getPackageName() {
+            return this.packageName;
+        }
+
+        /**
+         * Gets the glob pattern for the names of the files that are always updated.
+         *
+         * @return The glob pattern or <code>null</code> if none.
+         */
+        public String getUpdatePattern() {
+            return this.updatePattern;
+        }
+    }
+
+    /**
+     * An entry under construction.
+     */
+    class Entry {
+
+        /**
+         * The staging directory of the entry.
+         */
+        private final File stagingDirectory;
+
+        /**
+         * The description of the groups added so far.
+         */
+        private final Properties groups = new Properties();
+
+        /**
+         * The number of groups added so far.
+         */
+        private int size;
+
+        /**
+         * A flag whether the entry is incomplete and must not be committed.
+         */
+        private boolean invalid;
+
+        /**
+         * Creates a new entry.
+         *
+         * @param stagingDirectory The staging directory of the entry, must not be <code>null</code>.
+         */
+        Entry(File stagingDirectory) {
+            this.stagingDirectory = stagingDirectory;
+        }
+
+        /**
+         * Adds a group of generated files to the entry.
+         *
+         * @param root The index of the compile source root into which the files are copied.
+         * @param packageName The name of the package of the files, must not be <code>null</code>.
+         * @param updatePattern The glob pattern for the names of the files that are always updated, may be
+         *            <code>null</code>.
+         * @param files The generated files, must not be <code>null</code>.
+         * @throws IOException If the files could not be copied into the entry.
+         */
+        public void addGroup(int root, String packageName, String updatePattern, Collection<File> files)
+                throws IOException {
+            File groupDirectory = new File(this.stagingDirectory, String.valueOf(this.size));
+            for (File file : files) {
+                FileUtils.copyFile(file, new File(groupDirectory, file.getName()));
+            }
+            this.groups.setProperty(this.size + ".root", String.valueOf(root));
+            this.groups.setProperty(this.size + ".package", packageName);
+            if (updatePattern != null) {
+                this.groups.setProperty(this.size + ".pattern", updatePattern);
+            }
+            this.size++;
+        }
+
+        /**
+         * Marks the entry as incomplete such that it will not be committed.
+         */
+        public void invalidate() {
+            this.invalid = true;
+        }
+
+        /**
+         * Adds the entry to the cache under the specified key unless it is incomplete. If another build added an entry
+         * with the same key in the meantime, that entry is kept. If the remote cache is writable, the added entry is
+         * uploaded to the remote cache, too.
+         *
+         * @param key The key of the entry, must not be <code>null</code>.
+         * @return <code>true</code> if the entry was added, <code>false</code> otherwise.
+         * @throws IOException If the entry could not be added or uploaded.
+         */
+        public boolean commit(String key) throws IOException {
+            if (this.invalid) {
+                return false;
+            }
+            try (OutputStream os = new FileOutputStream(new File(this.stagingDirectory, GROUPS))) {
+                this.groups.store(os, null);
+            }
+            if (!install(this.stagingDirectory, key)) {
+                return false;
+            }
+            if (remoteCache != null && remoteWritable) {
+                push(key);
+            }
+            return true;
+        }
+
+        /**
+         * Deletes the staging directory of the entry, if it still exists.
+         */
+        public void discard() {
+            try {
+                FileUtils.deleteDirectory(this.stagingDirectory);
+            } catch (IOException e) {
+                // ignore, the staging directory holds no valuable data
+            }
+        }
+    }
+}
@@ -0,0 +1,573 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.codehaus.plexus.util.FileUtils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Remembers what the previous build generated from each grammar file. The state is kept in a properties file below the
+ * build directory, keyed by the path of the grammar file relative to its source directory. All methods are thread-safe.
+ */
+class BuildState {
+
+    /**
+     * The key of the digest over the contents of a grammar file and its tool arguments.
+     */
+    static final String FINGERPRINT = "fingerprint";
+
+    /**
+     * The key of the digest over the tool arguments of a grammar file.
+     */
+    static final String OPTIONS = "options";
+
+    /**
+     * The key of the time at which the grammar file was last scanned before being processed.
+     */
+    static final String PROCESSED = "processed";
+
+    /**
+     * The key of the list of files generated from a grammar file.
+     */
+    static final String OUTPUTS = "outputs";
+
+    /**
+     * The key of the list of files included by a grammar file, directly or transitively, along with their digests.
+     */
+    static final String INPUTS = "inputs";
+
+    /**
+     * The key of the metadata scanned from the header of a grammar file, i.e. its size and timestamp along with the
+     * declared package and parser name.
+     */
+    static final String METADATA = "metadata";
+
+    /**
+     * The separator between the paths of the generated or included files.
+     */
+    private static final String PATH_SEPARATOR = "|";
+
+    /**
+     * The separator between the path of an included file and its digest.
+     */
+    private static final String DIGEST_SEPARATOR = "=";
+
+    /**
+     * The comment written to the state file.
+     */
+    private static final String HEADER = "javacc-maven-plugin build state, do not edit";
+
+    /**
+     * The digests of the class path roots computed by {@link #computeToolVersion(Class)}, keyed by class path root.
+     */
+    private static final Map<File, String> TOOL_VERSIONS = new HashMap<>();
+
+    /**
+     * The file the state is kept in.
+     */
+    private final File file;
+
+    /**
+     * The directory against which the paths of generated files are relativized, may be <code>null</code>.
+     */
+    private final File baseDirectory;
+
+    /**
+     * The recorded state.
+     */
+    private final Properties properties = new Properties();
+
+    /**
+     * The values to record once the corresponding grammar file has been processed successfully, keyed by grammar file.
+     */
+    private final Map<String, Map<String, String>> staged = new HashMap<>();
+
+    /**
+     * A flag whether the state has been modified since it was loaded.
+     */
+    private boolean modified;
+
+    /**
+     * Creates a new build state backed by the specified file, recording the paths of generated files as absolute paths.
+     *
+     * @param file The file the state is kept in, must not be <code>null</code>.
+     */
+    public BuildState(File file) {
+        this(file, null);
+    }
+
+    /**
+     * Creates a new build state backed by the specified file. The file is read if it exists, a corrupted file is
+     * treated like an empty state.
+     *
+     * @param file The file the state is kept in, must not be <code>null</code>.
+     * @param baseDirectory The directory against which the paths of generated files are relativized, may be
+     *            <code>null</code> to record absolute paths.
+     */
+    public BuildState(File file, File baseDirectory) {
+        this.file = file;
+        this.baseDirectory = (baseDirectory != null) ? baseDirectory.getAbsoluteFile() : null;
+        if (file.isFile()) {
+            try (InputStream is = new FileInputStream(file)) {
+                this.properties.load(is);
+            } catch (IOException | IllegalArgumentException e) {
+                this.properties.clear();
+                this.modified = true;
+            }
+        }
+    }
+
+    /**
+     * Gets the file the state is kept in.
+     *
+     * @return The file the state is kept in, never <code>null</code>.
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Gets a value recorded for the specified grammar file.
+     *
+     * @param grammar The path to the grammar file, relative to its source directory, must not be <code>null</code>.
+     * @param key The key of the value, e.g. {@link #FINGERPRINT}, must not be <code>null</code>.
+     * @return The recorded value or <code>null</code> if none was recorded.
+     */
+    public synchronized String get(String grammar, String key) {
+        return this.properties.getProperty(key(grammar) + '.' + key);
+    }
+
+    /**
+     * Records a value for the specified grammar file.
+     *
+     * @param grammar The path to the grammar file, relative to its source directory, must not be <code>null</code>.
+     * @param key The key of the value, e.g. {@link #FINGERPRINT}, must not be <code>null</code>.
+     * @param value The value to record, may be <code>null</code> to remove the value.
+     */
+    public synchronized void put(String grammar, String key, String value) {
+        set(key(grammar) + '.' + key, value);
+    }
+
+    /**
+     * Stages a value for the specified grammar file. The value is only recorded by {@link #commit(String)}, i.e. after
+     * the grammar file has been processed successfully.
+     *
+     * @param grammar The path to the grammar file, relative to its source directory, must not be <code>null</code>.
+     * @param key The key of the value, e.g. {@link #FINGERPRINT}, must not be <code>null</code>.
+     * @param value The value to record, may be <code>null</code> to remove the value.
+     */
+    public synchronized void stage(String grammar, String key, String value) {
+        this.staged.computeIfAbsent(key(grammar), k -> new HashMap<>()).put(key, value);
+    }
+
+    /**
+     * Records the values previously staged for the specified grammar file.
+     *
+     * @param grammar The path to the grammar file, relative to its source directory, must not be <code>null</code>.
+     */
+    public synchronized void commit(String grammar) {
+        Map<String, String> values = this.staged.remove(key(grammar));
+        if (values != null) {
+            for (Map.Entry<String, String> value : values.entrySet()) {
+                put(grammar, value.getKey(), value.getValue());
+            }
+        }
+    }
+
+    /**
+     * Gets the files recorded as generated from the specified grammar file.
+     *
+     * @param grammar The path to the grammar file, relative to its source directory, must not be <code>null</code>.
+     * @return The absolute paths to the generated files, never <code>null</code>.
+     */
+    public synchronized File[] getOutputs(String grammar) {
+        String value = get(grammar, OUTPUTS);
+        if (value == null || value.length() == 0) {
+            return new File[0];
+        }
+        String[] paths = value.split("\\" + PATH_SEPARATOR);
+        File[] outputs = new File[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            outputs[i] = toFile(paths[i]);
+        }
+        return outputs;
+    }
+
+    /**
+     * Stages the files generated from the specified grammar file, to be recorded by {@link #commit(String)}.
+     *
+     * @param grammar The path to the grammar file, relative to its source directory, must not be <code>null</code>.
+     * @param outputs The generated files, must not be <code>null</code>.
+     */
+    public synchronized void stageOutputs(String grammar, Collection<File> outputs) {
+        StringBuilder value = new StringBuilder();
+        for (File output : outputs) {
+            if (value.length() > 0) {
+                value.append(PATH_SEPARATOR);
+            }
+            value.append(toPath(output));
+        }
+        stage(grammar, OUTPUTS, value.toString());
+    }
+
+    /**
+     * Stages the files included by the specified grammar file, to be recorded by {@link #commit(String)}.
+     *
+     * @param grammar The path to the grammar file, relative to its source directory, must not be <code>null</code>.
+     * @param inputs The digests of the included files, keyed by the absolute path to the included file, must not be
+     *            <code>null</code>.
+     */
+    public synchronized void stageInputs(String grammar, Map<File, String> inputs) {
+        StringBuilder value = new StringBuilder();
+        for (Map.Entry<File, String> input : inputs.entrySet()) {
+            if (value.length() > 0) {
+                value.append(PATH_SEPARATOR);
+            }
+            value.append(toPath(input.getKey())).append(DIGEST_SEPARATOR).append(input.getValue());
+        }
+        stage(grammar, INPUTS, value.toString());
+    }
+
+    /**
+     * Gets the reverse dependency graph of the recorded grammar files, i.e. for each included file the grammar files
+     * that include it, directly or transitively, along with the digest of the included file recorded for that grammar.
+     *
+     * @return The grammar files and recorded digests, keyed by the absolute path to the included file, never
+     *         <code>null</code>.
+     */
+    public synchronized Map<File, Map<String, String>> getDependents() {
+        String suffix = '.' + INPUTS;
+        Map<File, Map<String, String>> dependents = new LinkedHashMap<>();
+        for (String key : this.properties.stringPropertyNames()) {
+            if (!key.endsWith(suffix)) {
+                continue;
+            }
+            String grammar = key.substring(0, key.length() - suffix.length());
+            for (String input : this.properties.getProperty(key).split("\\" + PATH_SEPARATOR)) {
+                int separator = input.lastIndexOf(DIGEST_SEPARATOR);
+                if (separator > 0) {
+                    File file = toFile(input.substring(0, separator));
+                    String digest = input.substring(separator + 1);
+                    dependents.computeIfAbsent(file, k -> new LinkedHashMap<>()).put(grammar, digest);
+                }
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Converts a file into the path recorded in the state file.
+     *
+     * @param file The file to convert, must not be <code>null</code>.
+     * @return The path relative to the base directory if possible, using forward slashes, never <code>null</code>.
+     */
+    private String toPath(File file) {
+        String path = file.getAbsolutePath();
+        if (this.baseDirectory != null) {
+            String basePath = this.baseDirectory.getPath() + File.separator;
+            if (path.startsWith(basePath)) {
+                path = path.substring(basePath.length());
+            }
+        }
+        return path.replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Converts a path recorded in the state file into a file.
+     *
+     * @param path The recorded path, must not be <code>null</code>.
+     * @return The absolute path to the file, never <code>null</code>.
+     */
+    private File toFile(String path) {
+        File file = new File(path.replace('/', File.separatorChar));
+        return file.isAbsolute() ? file : new File(this.baseDirectory, file.getPath());
+    }
+
+    /**
+     * Gets the key prefix for a grammar file. File separators are normalized such that the state file can be shared
+     * between platforms.
+     *
+     * @param grammar The path to the grammar file, relative to its source directory, must not be <code>null</code>.
+     * @return The key prefix for the grammar file, never <code>null</code>.
+     */
+    static String key(String grammar) {
+        return grammar.replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Sets or removes a property.
+     *
+     * @param key The key of the property, must not be <code>null</code>.
+     * @param value The value of the property, may be <code>null</code> to remove the property.
+     */
+    private void set(String key, String value) {
+        Object previous = (value != null) ? this.properties.setProperty(key, value) : this.properties.remove(key);
+        if (value != null ? !value.equals(previous) : previous != null) {
+            this.modified = true;
+        }
+    }
+
+    /**
+     * Writes the state back to its file if it was modified.
+     *
+     * @throws IOException If the state file could not be written.
+     */
+    public synchronized void save() throws IOException {
+        if (!this.modified) {
+            return;
+        }
+        File parent = this.file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Failed to create directory " + parent);
+        }
+        try (OutputStream os = new FileOutputStream(this.file)) {
+            this.properties.store(os, HEADER);
+        }
+        this.modified = false;
+    }
+
+    /**
+     * Computes the digest of the tool arguments for a grammar file.
+     *
+     * @param arguments The tool arguments that affect the output, must not be <code>null</code>.
+     * @return The digest as a hexadecimal string, never <code>null</code>.
+     */
+    public static String computeOptions(String[] arguments) {
+        MessageDigest digest = newDigest();
+        update(digest, arguments);
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Computes the fingerprint of a grammar file, i.e. a digest of its contents and of the arguments for the tools
+     * processing it.
+     *
+     * @param grammarFile The grammar file, must not be <code>null</code>.
+     * @param arguments The tool arguments that affect the output, must not be <code>null</code>.
+     * @return The fingerprint as a hexadecimal string, never <code>null</code>.
+     * @throws IOException If the grammar file could not be read.
+     */
+    public static String computeFingerprint(File grammarFile, String[] arguments) throws IOException {
+        MessageDigest digest = newDigest();
+        update(digest, grammarFile);
+        update(digest, arguments);
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Computes the version of the class path root providing the specified class, i.e. a digest of the contents of the
+     * JAR file or of all files below the class directory. The digest of a class path root is only computed once.
+     *
+     * @param type The class whose class path root should be described, must not be <code>null</code>.
+     * @return The name of the class and the digest of its class path root or just the name of the class if the class
+     *         path root is unknown, never <code>null</code>.
+     * @throws IOException If the class path root could not be read.
+     */
+    public static String computeToolVersion(Class<?> type) throws IOException {
+        String resource = type.getName().replace('.', '/') + ".class";
+        File root = UrlUtils.getResourceRoot(type.getClassLoader().getResource(resource), resource);
+        if (root == null) {
+            return type.getName();
+        }
+        synchronized (TOOL_VERSIONS) {
+            String digest = TOOL_VERSIONS.get(root);
+            if (digest == null) {
+                digest = root.isFile() ? computeFingerprint(root, new String[0]) : computeDirectoryDigest(root);
+                TOOL_VERSIONS.put(root, digest);
+            }
+            return type.getName() + "=" + digest;
+        }
+    }
+
+    /**
+     * Computes a digest of the relative paths and the contents of all files below a directory.
+     *
+     * @param directory The directory, must not be <code>null</code>.
+     * @return The digest as a hexadecimal string, never <code>null</code>.
+     * @throws IOException If the directory could not be read.
+     */
+    static String computeDirectoryDigest(File directory) throws IOException {
+        MessageDigest digest = newDigest();
+        List<String> paths = FileUtils.getFileNames(directory, "**", null, false);
+        Collections.sort(paths);
+        for (String path : paths) {
+            update(digest, new String[] {path.replace(File.separatorChar, '/')});
+            update(digest, new File(directory, path));
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Computes the digests of all files included by a grammar file, directly or transitively.
+     *
+     * @param grammarInfo The grammar info describing the grammar file, must not be <code>null</code>.
+     * @param grammarEncoding The file encoding of the grammar files, may be <code>null</code> to use the platform
+     *            default encoding.
+     * @return The digests of the included files in the order of their discovery, keyed by the absolute path to the
+     *         included file, never <code>null</code>. The digest of a missing file is <code>"-"</code>.
+     * @throws IOException If an included file could not be read.
+     */
+    public static Map<File, String> computeInputDigests(GrammarInfo grammarInfo, String grammarEncoding)
+            throws IOException {
+        return computeInputDigests(grammarInfo, grammarEncoding, new HashMap<>(), new HashMap<>());
+    }
+
+    /**
+     * Computes the digests of all files included by a grammar file, directly or transitively, reusing the digests and
+     * includes already determined for other grammar files that share included files.
+     *
+     * @param grammarInfo The grammar info describing the grammar file, must not be <code>null</code>.
+     * @param grammarEncoding The file encoding of the grammar files, may be <code>null</code> to use the platform
+     *            default encoding.
+     * @param digests The cache of file digests to use and update, must not be <code>null</code>.
+     * @param includes The cache of directly included files to use and update, must not be <code>null</code>.
+     * @return The digests of the included files in the order of their discovery, keyed by the absolute path to the
+     *         included file, never <code>null</code>. The digest of a missing file is <code>"-"</code>.
+     * @throws IOException If an included file could not be read.
+     */
+    static Map<File, String> computeInputDigests(
+            GrammarInfo grammarInfo, String grammarEncoding, Map<File, String> digests, Map<File, File[]> includes)
+            throws IOException {
+        File grammarFile = grammarInfo.getGrammarFile();
+        Map<File, String> inputs = new LinkedHashMap<>();
+        Deque<File> pending = new ArrayDeque<>(Arrays.asList(grammarInfo.getIncludes()));
+        while (!pending.isEmpty()) {
+            File input = pending.removeFirst();
+            if (input.equals(grammarFile) || inputs.containsKey(input)) {
+                continue;
+            }
+            inputs.put(input, computeInputDigest(input, digests));
+            File[] files = includes.get(input);
+            if (files == null) {
+                String[] paths = input.isFile() ? GrammarInfo.findIncludes(input, grammarEncoding) : new String[0];
+                files = new File[paths.length];
+                for (int i = 0; i < paths.length; i++) {
+                    files[i] = GrammarInfo.resolveInclude(input, paths[i]);
+                }
+                includes.put(input, files);
+            }
+            pending.addAll(Arrays.asList(files));
+        }
+        return inputs;
+    }
+
+    /**
+     * Computes the digest of an included file.
+     *
+     * @param input The absolute path to the included file, must not be <code>null</code>.
+     * @param digests The cache of file digests to use and update, must not be <code>null</code>.
+     * @return The digest of the file or <code>"-"</code> if the file does not exist, never <code>null</code>.
+     * @throws IOException If the file could not be read.
+     */
+    static String computeInputDigest(File input, Map<File, String> digests) throws IOException {
+        String digest = digests.get(input);
+        if (digest == null) {
+            digest = input.isFile() ? computeFingerprint(input, new String[0]) : "-";
+            digests.put(input, digest);
+        }
+        return digest;
+    }
+
+    /**
+     * Updates the specified digest with the contents of the given file.
+     *
+     * @param digest The digest to update, must not be <code>null</code>.
+     * @param file The file to read, must not be <code>null</code>.
+     * @throws IOException If the file could not be read.
+     */
+    private static void update(MessageDigest digest, File file) throws IOException {
+        byte[] buffer = new byte[8192];
+        try (InputStream is = new FileInputStream(file)) {
+            for (int n = is.read(buffer); n >= 0; n = is.read(buffer)) {
+                digest.update(buffer, 0, n);
+            }
+        }
+    }
+
+    /**
+     * Updates the specified digest with the given tool arguments.
+     *
+     * @param digest The digest to update, must not be <code>null</code>.
+     * @param arguments The tool arguments, must not be <code>null</code>.
+     */
+    private static void update(MessageDigest digest, String[] arguments) {
+        for (String argument : arguments) {
+            digest.update((byte) 0);
+            digest.update(argument.getBytes(UTF_8));
+        }
+    }
+
+    /**
+     * Creates the message digest used for fingerprints.
+     *
+     * @return The message digest, never <code>null</code>.
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+    }
+
+    /**
+     * Converts the specified bytes into a hexadecimal string.
+     *
+     * @param bytes The bytes to convert, must not be <code>null</code>.
+     * @return The hexadecimal string, never <code>null</code>.
+     */
+    static String toHex(byte[] bytes) {
+        StringBuilder buffer = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            buffer.append(Character.forDigit((b >> 4) & 0xF, 16));
+            buffer.append(Character.forDigit(b & 0xF, 16));
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Gets a string representation of this build state.
+     *
+     * @return A string representation of this build state.
+     */
+    public String toString() {
+        return String.valueOf(this.file);
+    }
+}
@@ -0,0 +1,104 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A remote cache that keeps the archives of the entries in a directory, e.g. on a network filesystem shared by
+ * several machines. Archives are written under a temporary name and renamed into place.
+ */
+class DirectoryRemoteCache implements RemoteCache {
+
+    /**
+     * The directory holding the archives.
+     */
+    private final File directory;
+
+    /**
+     * Creates a new remote cache.
+     *
+     * @param directory The directory holding the archives, must not be <code>null</code>.
+     */
+    public DirectoryRemoteCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the archive file of the entry with the specified key.
+     *
+     * @param key The key of the entry, must not be <code>null</code>.
+     * @return The archive file, never <code>null</code>.
+     */
+    private File getArchive(String key) {
+        return new File(this.directory, key.substring(0, 2) + '/' + key + ".zip");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean fetch(String key, File archive) throws IOException {
+        File file = getArchive(key);
+        if (!file.isFile()) {
+            return false;
+        }
+        Files.copy(file.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void store(String key, File archive) throws IOException {
+        Path target = getArchive(key).toPath();
+        if (Files.exists(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), key, ".tmp");
+        try {
+            Files.copy(archive.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // another build stored the same entry concurrently
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Gets a string representation of this remote cache.
+     *
+     * @return A string representation of this remote cache.
+     */
+    public String toString() {
+        return String.valueOf(this.directory);
+    }
+}
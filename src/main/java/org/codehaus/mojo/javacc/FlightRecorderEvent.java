@@ -0,0 +1,438 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Emits custom events to the JDK Flight Recorder, such that the phases of the plugin show up in a recording next to
+ * garbage collection and I/O. The plugin targets Java 8, so the JFR API is accessed reflectively and the event types
+ * are defined dynamically via <code>jdk.jfr.EventFactory</code>. As long as the flight recorder has not been
+ * initialized, e.g. by <code>-XX:StartFlightRecording</code> or <code>jcmd JFR.start</code>, the event types are not
+ * even defined. Whenever an event type is not enabled by a running recording, {@link #begin(Type)} returns a shared
+ * inactive event without allocating anything.
+ */
+final class FlightRecorderEvent {
+
+    /**
+     * The event emitted when a source directory is scanned for stale grammar files.
+     */
+    static final Type GRAMMAR_SCAN = new Type(
+            "GrammarScan",
+            "Grammar Scan",
+            "Scan of a source directory for stale grammar files",
+            new String[] {"sourceDirectory", "grammarCount"},
+            new Class<?>[] {String.class, int.class});
+
+    /**
+     * The event emitted when a tool like JavaCC, JJTree, JTB or JJDoc is run.
+     */
+    static final Type TOOL_INVOCATION = new Type(
+            "ToolInvocation",
+            "Tool Invocation",
+            "Invocation of JavaCC, JJTree, JTB or JJDoc",
+            new String[] {"tool", "grammar", "exitCode"},
+            new Class<?>[] {String.class, String.class, int.class});
+
+    /**
+     * The event emitted when generated files are copied or moved to a compile source root.
+     */
+    static final Type OUTPUT_COPY = new Type(
+            "OutputCopy",
+            "Output Copy",
+            "Transfer of generated files to a compile source root",
+            new String[] {"grammar", "sourceRoot", "fileCount"},
+            new Class<?>[] {String.class, String.class, int.class});
+
+    /**
+     * The event emitted when a tool is run in a forked JVM.
+     */
+    static final Type FORKED_JVM_LAUNCH = new Type(
+            "ForkedJvmLaunch",
+            "Forked JVM Launch",
+            "Execution of a tool in a forked or pooled JVM",
+            new String[] {"mainClass", "pooled", "exitCode"},
+            new Class<?>[] {String.class, boolean.class, int.class});
+
+    /**
+     * The shared event returned while the flight recorder is not initialized.
+     */
+    private static final FlightRecorderEvent INACTIVE = new FlightRecorderEvent(null, null);
+
+    /**
+     * The method <code>jdk.jfr.FlightRecorder.isInitialized()</code>, <code>null</code> if JFR is unavailable.
+     */
+    private static final Method IS_INITIALIZED = findIsInitialized();
+
+    /**
+     * A flag whether the flight recorder has been initialized. Once initialized, it stays so for the life of the JVM.
+     */
+    private static volatile boolean initialized;
+
+    /**
+     * The type of this event, <code>null</code> if inactive.
+     */
+    private final Type type;
+
+    /**
+     * The underlying <code>jdk.jfr.Event</code>, <code>null</code> if inactive.
+     */
+    private final Object event;
+
+    /**
+     * Creates a new event.
+     *
+     * @param type The type of the event, may be <code>null</code> if inactive.
+     * @param event The underlying <code>jdk.jfr.Event</code>, may be <code>null</code> if inactive.
+     */
+    private FlightRecorderEvent(Type type, Object event) {
+        this.type = type;
+        this.event = event;
+    }
+
+    /**
+     * Looks up the method to check whether the flight recorder is initialized. Only the class
+     * <code>jdk.jfr.FlightRecorder</code> is loaded, it does not start the flight recorder.
+     *
+     * @return The method or <code>null</code> if the JVM lacks JFR.
+     */
+    private static Method findIsInitialized() {
+        try {
+            return Class.forName("jdk.jfr.FlightRecorder").getMethod("isInitialized");
+        } catch (Exception | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Determines whether the flight recorder is initialized, i.e. whether events can be recorded at all. Note that the
+     * flight recorder stays initialized after all recordings have been stopped.
+     *
+     * @return <code>true</code> if the flight recorder is initialized, <code>false</code> otherwise.
+     */
+    static boolean isRecording() {
+        if (initialized) {
+            return true;
+        }
+        if (IS_INITIALIZED == null) {
+            return false;
+        }
+        try {
+            initialized = Boolean.TRUE.equals(IS_INITIALIZED.invoke(null));
+        } catch (Exception e) {
+            return false;
+        }
+        return initialized;
+    }
+
+    /**
+     * Begins an event of the specified type.
+     *
+     * @param type The type of the event, must not be <code>null</code>.
+     * @return The begun event, never <code>null</code>. If the event type is not enabled by a running recording, the
+     *         returned event is inactive and ignores all calls.
+     */
+    static FlightRecorderEvent begin(Type type) {
+        if (!isRecording() || !type.isEnabled()) {
+            return INACTIVE;
+        }
+        Object event = type.newEvent();
+        if (event == null) {
+            return INACTIVE;
+        }
+        FlightRecorderEvent result = new FlightRecorderEvent(type, event);
+        result.invoke(type.begin);
+        return result;
+    }
+
+    /**
+     * Determines whether this event is recorded. Callers may use this to skip computing expensive field values.
+     *
+     * @return <code>true</code> if this event is recorded, <code>false</code> otherwise.
+     */
+    boolean isActive() {
+        return this.event != null;
+    }
+
+    /**
+     * Sets a field of this event.
+     *
+     * @param name The name of the field, must be one of the fields of the event type.
+     * @param value The value of the field, may be <code>null</code>.
+     * @return This event, never <code>null</code>.
+     */
+    FlightRecorderEvent set(String name, Object value) {
+        if (this.event != null) {
+            int index = this.type.fieldNames.indexOf(name);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown field " + name + " of event " + this.type.name);
+            }
+            invoke(this.type.set, index, value);
+        }
+        return this;
+    }
+
+    /**
+     * Ends and commits this event.
+     */
+    void commit() {
+        if (this.event != null) {
+            invoke(this.type.end);
+            invoke(this.type.commit);
+        }
+    }
+
+    /**
+     * Invokes a method of the underlying event, ignoring failures since events are purely diagnostic.
+     *
+     * @param method The method to invoke, may be <code>null</code>.
+     * @param args The arguments for the method, must not be <code>null</code>.
+     */
+    private void invoke(Method method, Object... args) {
+        if (method != null) {
+            try {
+                method.invoke(this.event, args);
+            } catch (Exception e) {
+                // ignore, recording is best effort
+            }
+        }
+    }
+
+    /**
+     * A dynamically defined event type.
+     */
+    static final class Type {
+
+        /**
+         * The simple name of the event type.
+         */
+        private final String name;
+
+        /**
+         * The human-readable label of the event type.
+         */
+        private final String label;
+
+        /**
+         * The description of the event type.
+         */
+        private final String description;
+
+        /**
+         * The names of the fields of the event type.
+         */
+        private final List<String> fieldNames;
+
+        /**
+         * The types of the fields of the event type.
+         */
+        private final Class<?>[] fieldTypes;
+
+        /**
+         * The <code>jdk.jfr.EventFactory</code> of this type, lazily created.
+         */
+        private Object factory;
+
+        /**
+         * A flag whether the creation of the event factory failed.
+         */
+        private boolean unavailable;
+
+        /**
+         * The underlying <code>jdk.jfr.EventType</code>, lazily resolved.
+         */
+        private Object eventType;
+
+        /**
+         * The method <code>jdk.jfr.EventType.isEnabled()</code>, lazily resolved.
+         */
+        private Method isEnabled;
+
+        /**
+         * The method <code>jdk.jfr.EventFactory.newEvent()</code>, lazily resolved.
+         */
+        private Method newEvent;
+
+        /**
+         * The method <code>jdk.jfr.Event.begin()</code>, lazily resolved.
+         */
+        private Method begin;
+
+        /**
+         * The method <code>jdk.jfr.Event.end()</code>, lazily resolved.
+         */
+        private Method end;
+
+        /**
+         * The method <code>jdk.jfr.Event.commit()</code>, lazily resolved.
+         */
+        private Method commit;
+
+        /**
+         * The method <code>jdk.jfr.Event.set(int, Object)</code>, lazily resolved.
+         */
+        private Method set;
+
+        /**
+         * Creates a new event type.
+         *
+         * @param name The simple name of the event type, must not be <code>null</code>.
+         * @param label The human-readable label of the event type, must not be <code>null</code>.
+         * @param description The description of the event type, must not be <code>null</code>.
+         * @param fieldNames The names of the fields, must not be <code>null</code>.
+         * @param fieldTypes The types of the fields, must not be <code>null</code>.
+         */
+        Type(String name, String label, String description, String[] fieldNames, Class<?>[] fieldTypes) {
+            this.name = name;
+            this.label = label;
+            this.description = description;
+            this.fieldNames = Collections.unmodifiableList(Arrays.asList(fieldNames));
+            this.fieldTypes = fieldTypes;
+        }
+
+        /**
+         * Gets the fully qualified name of the event type as shown in recordings.
+         *
+         * @return The name of the event type, never <code>null</code>.
+         */
+        String getName() {
+            return "org.codehaus.mojo.javacc." + this.name;
+        }
+
+        /**
+         * Defines the event type unless already done.
+         *
+         * @return <code>true</code> if the event type is defined, <code>false</code> if it could not be defined.
+         */
+        private boolean define() {
+            if (this.factory == null && !this.unavailable) {
+                try {
+                    this.factory = createFactory();
+                } catch (Exception | LinkageError e) {
+                    this.unavailable = true;
+                }
+            }
+            return this.factory != null;
+        }
+
+        /**
+         * Determines whether this event type is enabled by a running recording. The state is queried from the flight
+         * recorder on each call, which merely reads a flag, such that stopping or starting a recording takes effect
+         * immediately.
+         *
+         * @return <code>true</code> if this event type is enabled, <code>false</code> otherwise.
+         */
+        synchronized boolean isEnabled() {
+            if (!define()) {
+                return false;
+            }
+            try {
+                return Boolean.TRUE.equals(this.isEnabled.invoke(this.eventType));
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        /**
+         * Creates a new instance of the underlying <code>jdk.jfr.Event</code>.
+         *
+         * @return The new event or <code>null</code> if the event type could not be defined.
+         */
+        synchronized Object newEvent() {
+            if (!define()) {
+                return null;
+            }
+            try {
+                return this.newEvent.invoke(this.factory);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        /**
+         * Defines the event type via <code>jdk.jfr.EventFactory</code>.
+         *
+         * @return The event factory, never <code>null</code>.
+         * @throws Exception If the event type could not be defined.
+         */
+        private Object createFactory() throws Exception {
+            ClassLoader loader = ClassLoader.getSystemClassLoader();
+            Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement", true, loader);
+            Constructor<?> annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+            Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor", true, loader);
+            Constructor<?> valueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+            Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory", true, loader);
+            Class<?> eventClass = Class.forName("jdk.jfr.Event", true, loader);
+
+            List<Object> annotations = new ArrayList<>();
+            annotations.add(annotationElement.newInstance(annotation("jdk.jfr.Name"), getName()));
+            annotations.add(annotationElement.newInstance(annotation("jdk.jfr.Label"), this.label));
+            annotations.add(annotationElement.newInstance(annotation("jdk.jfr.Description"), this.description));
+            annotations.add(
+                    annotationElement.newInstance(annotation("jdk.jfr.Category"), new String[] {"Maven", "JavaCC"}));
+            annotations.add(annotationElement.newInstance(annotation("jdk.jfr.StackTrace"), Boolean.FALSE));
+
+            List<Object> fields = new ArrayList<>();
+            for (int i = 0; i < this.fieldTypes.length; i++) {
+                fields.add(valueDescriptor.newInstance(
+                        this.fieldTypes[i], this.fieldNames.get(i), Collections.emptyList()));
+            }
+
+            Object eventFactory = eventFactoryClass
+                    .getMethod("create", List.class, List.class)
+                    .invoke(null, annotations, fields);
+            this.eventType = eventFactoryClass.getMethod("getEventType").invoke(eventFactory);
+            this.isEnabled = Class.forName("jdk.jfr.EventType", true, loader).getMethod("isEnabled");
+            this.newEvent = eventFactoryClass.getMethod("newEvent");
+            this.begin = eventClass.getMethod("begin");
+            this.end = eventClass.getMethod("end");
+            this.commit = eventClass.getMethod("commit");
+            this.set = eventClass.getMethod("set", int.class, Object.class);
+            return eventFactory;
+        }
+
+        /**
+         * Loads a JFR annotation type.
+         *
+         * @param className The name of the annotation type, must not be <code>null</code>.
+         * @return The annotation type, never <code>null</code>.
+         * @throws ClassNotFoundException If the annotation type is unavailable.
+         */
+        private static Class<? extends Annotation> annotation(String className) throws ClassNotFoundException {
+            return Class.forName(className, true, ClassLoader.getSystemClassLoader())
+                    .asSubclass(Annotation.class);
+        }
+
+        /**
+         * Gets a string representation of this event type.
+         *
+         * @return A string representation of this event type.
+         */
+        public String toString() {
+            return getName();
+        }
+    }
+}
@@ -59,6 +59,11 @@ class ForkedJvm {
      */
     private File workingDirectory;
 
+    /**
+     * The options for the forked JVM itself, given as strings.
+     */
+    private final List<String> jvmArgs = new ArrayList<>();
+
     /**
      * The class path entries for the forked JVM, given as strings.
      */
@@ -74,6 +79,16 @@ class ForkedJvm {
      */
     private final List<String> cmdLineArgs = new ArrayList<>();
 
+    /**
+     * The pool of reusable JVMs to run the main class in, may be <code>null</code> to fork a new JVM.
+     */
+    private ForkedJvmPool pool;
+
+    /**
+     * The handler for the files left in the working directory by the main class, may be <code>null</code>.
+     */
+    private WorkingDirectoryHandler workingDirectoryHandler;
+
     /**
      * Creates a new configuration to fork a JVM.
      */
@@ -100,6 +115,39 @@ class ForkedJvm {
         this.workingDirectory = directory;
     }
 
+    /**
+     * Gets the working directory of the forked JVM. After a run in a pooled JVM, this is the private working directory
+     * of the worker that ran the main class.
+     *
+     * @return The working directory of the forked JVM or <code>null</code> if the working directory of the current JVM
+     *         is inherited.
+     */
+    public File getWorkingDirectory() {
+        return this.workingDirectory;
+    }
+
+    /**
+     * Sets the pool of reusable JVMs in which the main class should be run. A pooled JVM uses its own working
+     * directory, i.e. the directory given by {@link #setWorkingDirectory(File)} is replaced by the directory of the
+     * worker when running.
+     *
+     * @param pool The pool of reusable JVMs, may be <code>null</code> to fork a new JVM.
+     */
+    public void setPool(ForkedJvmPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the handler for the files the main class left in the working directory. The handler is invoked right after
+     * the main class terminated. For a pooled JVM, this happens before the worker is handed to the next job, such that
+     * the handler has exclusive access to the working directory of the worker.
+     *
+     * @param handler The handler for the working directory, may be <code>null</code>.
+     */
+    public void setWorkingDirectoryHandler(WorkingDirectoryHandler handler) {
+        this.workingDirectoryHandler = handler;
+    }
+
     /**
      * Sets the stream consumer used to handle messages from <code>System.out</code>.
      *
@@ -118,6 +166,30 @@ class ForkedJvm {
         this.systemErr = consumer;
     }
 
+    /**
+     * Adds the specified option to the command line of the forked JVM, e.g. <code>-Xmx256m</code>.
+     *
+     * @param argument The option to add, may be <code>null</code>.
+     */
+    public void addJvmArgument(String argument) {
+        if (argument != null) {
+            this.jvmArgs.add(argument);
+        }
+    }
+
+    /**
+     * Adds the specified options to the command line of the forked JVM.
+     *
+     * @param arguments The options to add, may be <code>null</code>.
+     */
+    public void addJvmArguments(String[] arguments) {
+        if (arguments != null) {
+            for (String argument : arguments) {
+                addJvmArgument(argument);
+            }
+        }
+    }
+
     /**
      * Adds the specified path to the class path of the forked JVM.
      *
@@ -283,6 +355,8 @@ class ForkedJvm {
             cli.setWorkingDirectory(this.workingDirectory.getAbsolutePath());
         }
 
+        cli.addArguments(this.jvmArgs.toArray(new String[0]));
+
         String classPath = String.join(File.pathSeparator, classPathEntries);
         if (classPath.length() > 0) {
             cli.addArguments(new String[] {"-cp", classPath});
@@ -298,13 +372,42 @@ class ForkedJvm {
     }
 
     /**
-     * Forks a JVM using the previously set parameters.
+     * Forks a JVM using the previously set parameters. If a pool has been set, the main class is run in a pooled JVM
+     * instead.
      *
      * @return The exit code of the forked JVM.
      * @throws Exception If the JVM could not be forked.
      */
     public int run() throws Exception {
-        return CommandLineUtils.executeCommandLine(createCommandLine(), this.systemOut, this.systemErr);
+        int exitCode = -1;
+        FlightRecorderEvent event = FlightRecorderEvent.begin(FlightRecorderEvent.FORKED_JVM_LAUNCH);
+        try {
+            if (this.pool != null) {
+                ForkedJvmPool.Result result = this.pool.run(
+                        this.jvmArgs,
+                        this.classPathEntries,
+                        this.mainClass,
+                        getArguments(),
+                        this.systemOut,
+                        this.systemErr,
+                        this.workingDirectoryHandler);
+                this.workingDirectory = result.getWorkingDirectory();
+                exitCode = result.getExitCode();
+            } else {
+                exitCode = CommandLineUtils.executeCommandLine(createCommandLine(), this.systemOut, this.systemErr);
+                if (this.workingDirectoryHandler != null) {
+                    this.workingDirectoryHandler.handle(this.workingDirectory);
+                }
+            }
+            return exitCode;
+        } finally {
+            if (event.isActive()) {
+                event.set("mainClass", this.mainClass);
+                event.set("pooled", this.pool != null);
+                event.set("exitCode", exitCode);
+                event.commit();
+            }
+        }
     }
 
     /**
@@ -315,4 +418,19 @@ class ForkedJvm {
     public String toString() {
         return String.valueOf(createCommandLine());
     }
+
+    /**
+     * Processes the files that the main class left in the working directory of the forked JVM.
+     */
+    interface WorkingDirectoryHandler {
+
+        /**
+         * Processes the working directory after the main class terminated.
+         *
+         * @param workingDirectory The working directory of the forked JVM, may be <code>null</code> if the working
+         *            directory of the current JVM was inherited.
+         * @throws Exception If the files could not be processed.
+         */
+        void handle(File workingDirectory) throws Exception;
+    }
 }
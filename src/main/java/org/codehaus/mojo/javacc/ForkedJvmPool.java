@@ -0,0 +1,466 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Keeps a bounded number of forked JVMs alive and reuses them for subsequent tool invocations. This saves the startup
+ * and warm-up cost of a new JVM per grammar file. The workers are grouped by their JVM options and class path, each
+ * group holds at most the configured number of workers. A worker that terminated abnormally, e.g. because the tool called
+ * <code>System.exit()</code>, is replaced by a new one on the next request.
+ *
+ * @see ForkedJvmWorker
+ */
+class ForkedJvmPool implements Closeable {
+
+    /**
+     * The maximum number of workers per combination of JVM options and class path.
+     */
+    private final int size;
+
+    /**
+     * The directory in which the working directories of the workers are created, may be <code>null</code>.
+     */
+    private final File directory;
+
+    /**
+     * The executable used to fork the JVMs.
+     */
+    private final String executable;
+
+    /**
+     * The slots for the workers, keyed by the options of the worker JVMs including their class path. A slot is in the
+     * queue while it is not used by a job.
+     */
+    private final Map<List<String>, BlockingQueue<Slot>> slots = new HashMap<>();
+
+    /**
+     * All slots that have been created.
+     */
+    private final List<Slot> allSlots = new ArrayList<>();
+
+    /**
+     * A flag whether the pool has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Creates a new pool.
+     *
+     * @param size The maximum number of workers per combination of JVM options and class path, must be positive.
+     * @param directory The directory in which a private working directory is created for each worker, may be
+     *            <code>null</code> to let the workers inherit the working directory of the current JVM.
+     */
+    public ForkedJvmPool(int size, File directory) {
+        if (size < 1) {
+            throw new IllegalArgumentException("pool size must be positive: " + size);
+        }
+        this.size = size;
+        this.directory = directory;
+        this.executable = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    }
+
+    /**
+     * Runs the specified main class in one of the pooled JVMs. Waits for a worker if all workers for the JVM options and
+     * class path are busy.
+     *
+     * @param jvmArguments The options for the worker JVM, must not be <code>null</code>.
+     * @param classPathEntries The class path entries the main class needs, must not be <code>null</code>.
+     * @param mainClass The qualified name of the main class, must not be <code>null</code>.
+     * @param args The command line arguments for the main class, must not be <code>null</code>.
+     * @param systemOut The consumer for <code>System.out</code> messages, may be <code>null</code>.
+     * @param systemErr The consumer for <code>System.err</code> messages, may be <code>null</code>.
+     * @param handler The handler for the files left in the working directory of the worker, may be <code>null</code>.
+     *            It is invoked before the worker is released, i.e. no other job can use the working directory meanwhile.
+     * @return The result of the invocation, never <code>null</code>.
+     * @throws Exception If no worker could be started, the communication with the worker failed or the handler failed.
+     */
+    public Result run(
+            List<String> jvmArguments,
+            Collection<String> classPathEntries,
+            String mainClass,
+            String[] args,
+            StreamConsumer systemOut,
+            StreamConsumer systemErr,
+            ForkedJvm.WorkingDirectoryHandler handler)
+            throws Exception {
+        List<String> options = new ArrayList<>(jvmArguments);
+        options.add("-cp");
+        options.add(getClassPath(classPathEntries));
+        BlockingQueue<Slot> queue = getSlots(options);
+        Slot slot = queue.take();
+        try {
+            if (slot.worker == null || !slot.worker.isAlive()) {
+                if (slot.worker != null) {
+                    slot.worker.stop();
+                }
+                slot.worker = null;
+                synchronized (this) {
+                    if (this.closed) {
+                        throw new IllegalStateException("pool has been closed");
+                    }
+                }
+                slot.worker = new Worker(this.executable, options, slot.workingDirectory);
+            }
+            int exitCode = slot.worker.run(mainClass, args, systemOut, systemErr);
+            if (handler != null) {
+                handler.handle(slot.workingDirectory);
+            }
+            return new Result(exitCode, slot.workingDirectory);
+        } finally {
+            queue.put(slot);
+        }
+    }
+
+    /**
+     * Gets the class path for the workers, including the source of the worker class itself.
+     *
+     * @param classPathEntries The class path entries requested by the caller, must not be <code>null</code>.
+     * @return The class path, never <code>null</code>.
+     */
+    private static String getClassPath(Collection<String> classPathEntries) {
+        List<String> entries = new ArrayList<>(classPathEntries);
+        String resource = ForkedJvmWorker.class.getName().replace('.', '/') + ".class";
+        File workerSource =
+                UrlUtils.getResourceRoot(ForkedJvmWorker.class.getClassLoader().getResource(resource), resource);
+        if (workerSource != null && !entries.contains(workerSource.getAbsolutePath())) {
+            entries.add(workerSource.getAbsolutePath());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    /**
+     * Gets the worker slots for the specified JVM options, creating them on first access.
+     *
+     * @param options The options of the worker JVMs including their class path, must not be <code>null</code>.
+     * @return The queue of free slots, never <code>null</code>.
+     */
+    private synchronized BlockingQueue<Slot> getSlots(List<String> options) {
+        if (this.closed) {
+            throw new IllegalStateException("pool has been closed");
+        }
+        BlockingQueue<Slot> queue = this.slots.get(options);
+        if (queue == null) {
+            queue = new LinkedBlockingQueue<>();
+            for (int i = 0; i < this.size; i++) {
+                File workingDirectory = null;
+                if (this.directory != null) {
+                    workingDirectory = new File(this.directory, "worker-" + (this.allSlots.size() + 1));
+                }
+                Slot slot = new Slot(workingDirectory);
+                this.allSlots.add(slot);
+                queue.add(slot);
+            }
+            this.slots.put(options, queue);
+        }
+        return queue;
+    }
+
+    /**
+     * Stops all workers and deletes their working directories.
+     */
+    public void close() {
+        List<Slot> stopping;
+        synchronized (this) {
+            this.closed = true;
+            stopping = new ArrayList<>(this.allSlots);
+        }
+        for (Slot slot : stopping) {
+            Worker worker = slot.worker;
+            if (worker != null) {
+                worker.stop();
+            }
+        }
+    }
+
+    /**
+     * Gets a string representation of this pool.
+     *
+     * @return A string representation of this pool.
+     */
+    public String toString() {
+        return "ForkedJvmPool[size=" + this.size + "]";
+    }
+
+    /**
+     * The outcome of a job run by a pooled JVM.
+     */
+    static class Result {
+
+        /**
+         * The exit code of the job.
+         */
+        private final int exitCode;
+
+        /**
+         * The working directory of the worker that ran the job, may be <code>null</code>.
+         */
+        private final File workingDirectory;
+
+        /**
+         * Creates a new result.
+         *
+         * @param exitCode The exit code of the job.
+         * @param workingDirectory The working directory of the worker, may be <code>null</code>.
+         */
+        Result(int exitCode, File workingDirectory) {
+            this.exitCode = exitCode;
+            this.workingDirectory = workingDirectory;
+        }
+
+        /**
+         * Gets the exit code of the job.
+         *
+         * @return The exit code of the job.
+         */
+        public int getExitCode() {
+            return this.exitCode;
+        }
+
+        /**
+         * Gets the working directory of the worker that ran the job.
+         *
+         * @return The working directory of the worker or <code>null</code> if the worker inherited the working
+         *         directory of the current JVM.
+         */
+        public File getWorkingDirectory() {
+            return this.workingDirectory;
+        }
+    }
+
+    /**
+     * A place for one worker of the pool.
+     */
+    private static class Slot {
+
+        /**
+         * The private working directory for the worker, may be <code>null</code>.
+         */
+        final File workingDirectory;
+
+        /**
+         * The current worker or <code>null</code> if none has been started yet.
+         */
+        volatile Worker worker;
+
+        /**
+         * Creates a new slot.
+         *
+         * @param workingDirectory The private working directory for the worker, may be <code>null</code>.
+         */
+        Slot(File workingDirectory) {
+            this.workingDirectory = workingDirectory;
+        }
+    }
+
+    /**
+     * A forked JVM running {@link ForkedJvmWorker}.
+     */
+    private static class Worker {
+
+        /**
+         * The worker process.
+         */
+        private final Process process;
+
+        /**
+         * The protocol lines written by the worker.
+         */
+        private final BufferedReader output;
+
+        /**
+         * The job requests sent to the worker.
+         */
+        private final Writer input;
+
+        /**
+         * The private working directory of the worker, may be <code>null</code>.
+         */
+        private final File workingDirectory;
+
+        /**
+         * The consumer for unframed error output of the worker process, may be <code>null</code>.
+         */
+        private volatile StreamConsumer errorConsumer;
+
+        /**
+         * Starts a new worker.
+         *
+         * @param executable The JVM executable, must not be <code>null</code>.
+         * @param options The options of the worker JVM including its class path, must not be <code>null</code>.
+         * @param workingDirectory The working directory of the worker, may be <code>null</code>.
+         * @throws IOException If the worker could not be started.
+         */
+        Worker(String executable, List<String> options, File workingDirectory) throws IOException {
+            if (workingDirectory != null && !workingDirectory.isDirectory() && !workingDirectory.mkdirs()) {
+                throw new IOException("Failed to create working directory " + workingDirectory);
+            }
+            List<String> command = new ArrayList<>();
+            command.add(executable);
+            command.addAll(options);
+            command.add(ForkedJvmWorker.class.getName());
+            ProcessBuilder builder = new ProcessBuilder(command);
+            builder.directory(workingDirectory);
+            this.process = builder.start();
+            this.workingDirectory = workingDirectory;
+            this.output = new BufferedReader(new InputStreamReader(this.process.getInputStream(), UTF_8));
+            this.input = new OutputStreamWriter(this.process.getOutputStream(), UTF_8);
+
+            Thread errorPump = new Thread(this::pumpErrors, "javacc-worker-stderr");
+            errorPump.setDaemon(true);
+            errorPump.start();
+        }
+
+        /**
+         * Forwards the output of the worker process to <code>System.err</code>, i.e. messages from the JVM itself, to
+         * the consumer of the current job. Unlike the framed output of the job, the JVM writes these messages in the
+         * platform encoding.
+         */
+        private void pumpErrors() {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(this.process.getErrorStream()))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    StreamConsumer consumer = this.errorConsumer;
+                    if (consumer != null) {
+                        consumer.consumeLine(line);
+                    }
+                }
+            } catch (IOException e) {
+                // the worker terminated
+            }
+        }
+
+        /**
+         * Runs a job and waits for its completion.
+         *
+         * @param mainClass The qualified name of the main class, must not be <code>null</code>.
+         * @param args The command line arguments for the main class, must not be <code>null</code>.
+         * @param systemOut The consumer for <code>System.out</code> messages, may be <code>null</code>.
+         * @param systemErr The consumer for <code>System.err</code> messages, may be <code>null</code>.
+         * @return The exit code of the job.
+         * @throws IOException If the communication with the worker failed.
+         * @throws InterruptedException If the thread was interrupted while waiting for a terminated worker.
+         */
+        int run(String mainClass, String[] args, StreamConsumer systemOut, StreamConsumer systemErr)
+                throws IOException, InterruptedException {
+            this.errorConsumer = systemErr;
+            try {
+                StringBuilder job = new StringBuilder(ForkedJvmWorker.RUN);
+                job.append(' ').append(ForkedJvmWorker.encode(mainClass));
+                for (String arg : args) {
+                    job.append(' ').append(ForkedJvmWorker.encode(arg));
+                }
+                job.append('\n');
+                try {
+                    this.input.write(job.toString());
+                    this.input.flush();
+                } catch (IOException e) {
+                    // the worker already terminated, report its exit value below
+                }
+
+                for (String line = this.output.readLine(); line != null; line = this.output.readLine()) {
+                    if (line.startsWith(ForkedJvmWorker.EXIT)) {
+                        return Integer.parseInt(line.substring(ForkedJvmWorker.EXIT.length()));
+                    } else if (line.startsWith(ForkedJvmWorker.ERR)) {
+                        consume(systemErr, line.substring(ForkedJvmWorker.ERR.length()));
+                    } else if (line.startsWith(ForkedJvmWorker.OUT)) {
+                        consume(systemOut, line.substring(ForkedJvmWorker.OUT.length()));
+                    } else {
+                        consume(systemOut, line);
+                    }
+                }
+
+                // the job terminated the worker, e.g. by calling System.exit()
+                return this.process.waitFor();
+            } finally {
+                this.errorConsumer = null;
+            }
+        }
+
+        /**
+         * Passes a line of output to a consumer.
+         *
+         * @param consumer The consumer, may be <code>null</code> to discard the line.
+         * @param line The line of output, must not be <code>null</code>.
+         * @throws IOException If the consumer failed.
+         */
+        private static void consume(StreamConsumer consumer, String line) throws IOException {
+            if (consumer != null) {
+                consumer.consumeLine(line);
+            }
+        }
+
+        /**
+         * Checks whether the worker process is still running.
+         *
+         * @return <code>true</code> if the worker process is still running, <code>false</code> otherwise.
+         */
+        boolean isAlive() {
+            try {
+                this.process.exitValue();
+                return false;
+            } catch (IllegalThreadStateException e) {
+                return true;
+            }
+        }
+
+        /**
+         * Stops the worker by closing its input and deletes its working directory.
+         */
+        void stop() {
+            try {
+                this.input.close();
+            } catch (IOException e) {
+                // already gone
+            }
+            try {
+                this.process.waitFor();
+            } catch (InterruptedException e) {
+                this.process.destroy();
+                Thread.currentThread().interrupt();
+            }
+            if (this.workingDirectory != null) {
+                try {
+                    FileUtils.deleteDirectory(this.workingDirectory);
+                } catch (IOException e) {
+                    // best effort
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The entry point of a long-lived JVM forked by {@link ForkedJvmPool}. The worker reads one job per line from
+ * <code>System.in</code> and runs the requested main class in a fresh class loader such that tools with static state
+ * start from scratch. The output of the job and its exit code are written to <code>System.out</code> using a simple
+ * line-based protocol:
+ * <ul>
+ * <li>Job: <code>RUN &lt;main class&gt; &lt;argument&gt;*</code>, each token URL-encoded and separated by a space</li>
+ * <li>Output of the job to <code>System.out</code>: <code>O &lt;line&gt;</code></li>
+ * <li>Output of the job to <code>System.err</code>: <code>E &lt;line&gt;</code></li>
+ * <li>End of the job: <code>X &lt;exit code&gt;</code></li>
+ * </ul>
+ * The output of the job is encoded in UTF-8, regardless of the platform encoding. A line that the job did not terminate
+ * is only sent once the job has ended.
+ * If the main class declares a method <code>static int mainProgram(String[])</code>, this method is preferred over
+ * <code>main()</code> and its return value is used as the exit code. If the job calls <code>System.exit()</code>, the
+ * worker terminates and the pool uses the exit value of the process instead.
+ */
+class ForkedJvmWorker {
+
+    /**
+     * The command to run a job.
+     */
+    static final String RUN = "RUN";
+
+    /**
+     * The prefix of lines the job printed to <code>System.out</code>.
+     */
+    static final String OUT = "O ";
+
+    /**
+     * The prefix of lines the job printed to <code>System.err</code>.
+     */
+    static final String ERR = "E ";
+
+    /**
+     * The prefix of the line reporting the exit code of the job.
+     */
+    static final String EXIT = "X ";
+
+    /**
+     * Runs jobs until the standard input is closed.
+     *
+     * @param args The command line arguments, ignored.
+     * @throws IOException If the communication with the pool failed.
+     */
+    public static void main(String[] args) throws IOException {
+        PrintStream protocol = System.out;
+        FramingOutputStream out = new FramingOutputStream(protocol, OUT);
+        FramingOutputStream err = new FramingOutputStream(protocol, ERR);
+        PrintStream jobOut = new PrintStream(out, true, UTF_8.name());
+        PrintStream jobErr = new PrintStream(err, true, UTF_8.name());
+        System.setOut(jobOut);
+        System.setErr(jobErr);
+
+        URL[] classPath = getClassPath();
+        BufferedReader jobs = new BufferedReader(new InputStreamReader(System.in, UTF_8));
+        for (String job = jobs.readLine(); job != null; job = jobs.readLine()) {
+            String[] tokens = job.split(" ");
+            if (tokens.length < 2 || !RUN.equals(tokens[0])) {
+                continue;
+            }
+            String mainClass = decode(tokens[1]);
+            String[] jobArgs = new String[tokens.length - 2];
+            for (int i = 0; i < jobArgs.length; i++) {
+                jobArgs[i] = decode(tokens[i + 2]);
+            }
+
+            int exitCode = runJob(classPath, mainClass, jobArgs);
+
+            jobOut.flush();
+            jobErr.flush();
+            out.finish();
+            err.finish();
+            synchronized (protocol) {
+                protocol.print(EXIT + exitCode + "\n");
+                protocol.flush();
+            }
+        }
+    }
+
+    /**
+     * Runs the specified main class in a new class loader.
+     *
+     * @param classPath The class path for the class loader, must not be <code>null</code>.
+     * @param mainClass The qualified name of the main class, must not be <code>null</code>.
+     * @param args The command line arguments for the main class, must not be <code>null</code>.
+     * @return The exit code of the job.
+     */
+    private static int runJob(URL[] classPath, String mainClass, String[] args) {
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        try (URLClassLoader classLoader =
+                new URLClassLoader(classPath, ClassLoader.getSystemClassLoader().getParent())) {
+            thread.setContextClassLoader(classLoader);
+            Class<?> type = classLoader.loadClass(mainClass);
+            Method method;
+            try {
+                method = type.getMethod("mainProgram", String[].class);
+                if (Modifier.isStatic(method.getModifiers()) && method.getReturnType() == int.class) {
+                    return (Integer) method.invoke(null, (Object) args);
+                }
+            } catch (NoSuchMethodException e) {
+                // fall back to main()
+            }
+            method = type.getMethod("main", String[].class);
+            method.invoke(null, (Object) args);
+            return 0;
+        } catch (InvocationTargetException e) {
+            e.getCause().printStackTrace();
+            return 1;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 1;
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    /**
+     * Gets the class path of this JVM.
+     *
+     * @return The class path of this JVM, never <code>null</code>.
+     * @throws IOException If a class path entry could not be converted to a URL.
+     */
+    private static URL[] getClassPath() throws IOException {
+        List<URL> urls = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            if (entry.length() > 0) {
+                urls.add(new File(entry).toURI().toURL());
+            }
+        }
+        return urls.toArray(new URL[0]);
+    }
+
+    /**
+     * Encodes a token of a job request.
+     *
+     * @param token The token to encode, must not be <code>null</code>.
+     * @return The encoded token, never <code>null</code>.
+     */
+    static String encode(String token) {
+        try {
+            return URLEncoder.encode(token, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decodes a token of a job request.
+     *
+     * @param token The token to decode, must not be <code>null</code>.
+     * @return The decoded token, never <code>null</code>.
+     */
+    static String decode(String token) {
+        try {
+            return URLDecoder.decode(token, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes each line of output as a protocol line with a fixed prefix. Flushing does not end the current line, such
+     * that output written in several chunks arrives as a single line. A partial line is only written by
+     * {@link #finish()}.
+     */
+    private static class FramingOutputStream extends OutputStream {
+
+        /**
+         * The stream to write the protocol lines to.
+         */
+        private final PrintStream protocol;
+
+        /**
+         * The prefix for the protocol lines.
+         */
+        private final byte[] prefix;
+
+        /**
+         * The bytes of the current line.
+         */
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        /**
+         * Creates a new stream.
+         *
+         * @param protocol The stream to write the protocol lines to, must not be <code>null</code>.
+         * @param prefix The prefix for the protocol lines, must not be <code>null</code>.
+         */
+        FramingOutputStream(PrintStream protocol, String prefix) {
+            this.protocol = protocol;
+            this.prefix = prefix.getBytes(UTF_8);
+        }
+
+        public synchronized void write(int b) {
+            if (b == '\n') {
+                writeLine();
+            } else if (b != '\r') {
+                this.line.write(b);
+            }
+        }
+
+        /**
+         * Writes the pending partial line, if any, to the protocol stream. This is called at the end of a job, such that
+         * the last line of the job is not lost if it lacks a line terminator.
+         */
+        synchronized void finish() {
+            if (this.line.size() > 0) {
+                writeLine();
+            }
+        }
+
+        /**
+         * Writes the current line to the protocol stream.
+         */
+        private void writeLine() {
+            synchronized (this.protocol) {
+                this.protocol.write(this.prefix, 0, this.prefix.length);
+                this.protocol.write(this.line.toByteArray(), 0, this.line.size());
+                this.protocol.write('\n');
+                this.protocol.flush();
+            }
+            this.line.reset();
+        }
+    }
+}
@@ -22,7 +22,15 @@ package org.codehaus.mojo.javacc;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
 import org.codehaus.plexus.util.DirectoryScanner;
 
@@ -34,6 +42,17 @@ import org.codehaus.plexus.util.DirectoryScanner;
  */
 class GrammarDirectoryScanner {
 
+    /**
+     * The separator between the fields of the metadata recorded for a grammar file.
+     */
+    private static final String METADATA_SEPARATOR = "|";
+
+    /**
+     * The time in milliseconds a grammar file must not have been modified before the scan for its metadata to be
+     * recorded, covering the timestamp granularity of common file systems.
+     */
+    private static final long METADATA_GRANULARITY = 2000;
+
     /**
      * The directory scanner used to scan the source directory for files.
      */
@@ -64,6 +83,50 @@ class GrammarDirectoryScanner {
      */
     private int staleMillis;
 
+    /**
+     * The state of the previous build used to detect changed tool arguments and contents of grammar files, may be
+     * <code>null</code> if only timestamps should be checked.
+     */
+    private BuildState buildState;
+
+    /**
+     * The function providing the tool arguments for a grammar file, may be <code>null</code> if the grammar files are
+     * processed without any arguments besides the paths.
+     */
+    private Function<GrammarInfo, String[]> toolArguments;
+
+    /**
+     * A flag whether stale target files are detected by comparing the digest of the grammar file with the one recorded
+     * in the build state instead of comparing timestamps.
+     */
+    private boolean digest;
+
+    /**
+     * The names of the files in the directories listed during the current scan, keyed by directory.
+     */
+    private final Map<File, Set<String>> directoryListings = new HashMap<>();
+
+    /**
+     * The files directly included by the grammar files and fragments read during the current scan, keyed by the
+     * absolute path to the including file.
+     */
+    private final Map<File, File[]> includes = new HashMap<>();
+
+    /**
+     * The digests of the included files computed during the current scan, keyed by the absolute path to the file.
+     */
+    private final Map<File, String> inputDigests = new HashMap<>();
+
+    /**
+     * The keys of the grammar files whose included files changed since they were recorded in the build state.
+     */
+    private final Set<String> changedDependents = new HashSet<>();
+
+    /**
+     * The time at which the current scan started.
+     */
+    private long scanTime;
+
     /**
      * A set of grammar infos describing the included grammar files, must never be <code>null</code>.
      */
@@ -153,6 +216,33 @@ class GrammarDirectoryScanner {
         this.staleMillis = milliseconds;
     }
 
+    /**
+     * Sets the state of the previous build. A grammar file is considered stale if its tool arguments or the contents of
+     * any file it includes, directly or transitively, differ from those recorded in the build state. The digests
+     * computed during the scan are staged in the build state and need to be committed once the grammar file has been
+     * processed.
+     *
+     * @param state The state of the previous build, may be <code>null</code> if only timestamps should be checked.
+     * @param arguments The function providing the tool arguments for a grammar file, may be <code>null</code> if the
+     *            grammar files are processed without any arguments besides the paths.
+     */
+    public void setBuildState(BuildState state, Function<GrammarInfo, String[]> arguments) {
+        this.buildState = state;
+        this.toolArguments = arguments;
+    }
+
+    /**
+     * Sets whether stale target files are detected by digest instead of timestamp. A grammar file is then considered
+     * stale if the digest of its contents and tool arguments differs from the one recorded in the build state or if
+     * any of its target files is missing. Requires a build state.
+     *
+     * @param digest <code>true</code> to detect stale target files by digest, <code>false</code> to compare
+     *            timestamps.
+     */
+    public void setDigest(boolean digest) {
+        this.digest = digest;
+    }
+
     /**
      * Scans the source directory for grammar files that match at least one inclusion pattern but no exclusion pattern,
      * optionally performing timestamp checking to exclude grammars whose corresponding parser files are up to date.
@@ -160,29 +250,209 @@ class GrammarDirectoryScanner {
      * @throws IOException If a grammar file could not be analyzed for metadata.
      */
     public void scan() throws IOException {
+        FlightRecorderEvent event = FlightRecorderEvent.begin(FlightRecorderEvent.GRAMMAR_SCAN);
+        try {
+            doScan();
+        } finally {
+            if (event.isActive()) {
+                event.set("sourceDirectory", String.valueOf(this.scanner.getBasedir()));
+                event.set("grammarCount", this.includedGrammars.size());
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Scans the source directory for grammar files that match at least one inclusion pattern but no exclusion pattern,
+     * optionally restricted to those grammar files that are stale.
+     *
+     * @throws IOException If a grammar file could not be analyzed for metadata.
+     */
+    private void doScan() throws IOException {
         this.includedGrammars.clear();
+        this.directoryListings.clear();
+        this.includes.clear();
+        this.inputDigests.clear();
+        this.changedDependents.clear();
+        this.scanTime = System.currentTimeMillis();
+        if (this.buildState != null) {
+            findChangedDependents();
+        }
         this.scanner.scan();
 
         String[] includedFiles = this.scanner.getIncludedFiles();
         for (String includedFile : includedFiles) {
-            GrammarInfo grammarInfo =
-                    new GrammarInfo(this.scanner.getBasedir(), includedFile, this.parserPackage, this.grammarEncoding);
-            if (this.outputDirectory != null) {
-                File sourceFile = grammarInfo.getGrammarFile();
-                File[] targetFiles = getTargetFiles(this.outputDirectory, includedFile, grammarInfo);
-                for (File targetFile : targetFiles) {
-                    if (!targetFile.exists()
-                            || targetFile.lastModified() + this.staleMillis < sourceFile.lastModified()) {
-                        this.includedGrammars.add(grammarInfo);
-                        break;
-                    }
-                }
-            } else {
+            GrammarInfo grammarInfo = newGrammarInfo(includedFile);
+            if (this.outputDirectory == null || isStale(includedFile, grammarInfo)) {
                 this.includedGrammars.add(grammarInfo);
             }
         }
     }
 
+    /**
+     * Creates the grammar info for the specified grammar file. If a build state is available, the declared package and
+     * parser name are taken from the metadata recorded for the grammar file as long as its size and timestamp did not
+     * change, such that unchanged grammar files need not be read at all.
+     *
+     * @param grammarFile The path to the grammar file, relative to the scanned source directory, must not be
+     *            <code>null</code>.
+     * @return The grammar info, never <code>null</code>.
+     * @throws IOException If the grammar file could not be read.
+     */
+    private GrammarInfo newGrammarInfo(String grammarFile) throws IOException {
+        File sourceDirectory = this.scanner.getBasedir();
+        if (this.buildState == null) {
+            return new GrammarInfo(sourceDirectory, grammarFile, this.parserPackage, this.grammarEncoding);
+        }
+
+        File file = new File(sourceDirectory, grammarFile);
+        long lastModified = file.lastModified();
+        String stamp = file.length() + METADATA_SEPARATOR + lastModified + METADATA_SEPARATOR;
+        String metadata = this.buildState.get(grammarFile, BuildState.METADATA);
+        if (metadata != null && metadata.startsWith(stamp)) {
+            String[] header = metadata.substring(stamp.length()).split(Pattern.quote(METADATA_SEPARATOR), -1);
+            if (header.length == 2) {
+                return new GrammarInfo(
+                        sourceDirectory, grammarFile, this.parserPackage, this.grammarEncoding, header[0], header[1]);
+            }
+        }
+
+        GrammarHeaderScanner header = GrammarHeaderScanner.scan(file, this.grammarEncoding);
+        // a file modified within the timestamp granularity might change again without changing its timestamp
+        if (lastModified + METADATA_GRANULARITY < this.scanTime) {
+            metadata = stamp + header.getPackageName() + METADATA_SEPARATOR + header.getParserName();
+            this.buildState.put(grammarFile, BuildState.METADATA, metadata);
+        }
+        return new GrammarInfo(
+                sourceDirectory,
+                grammarFile,
+                this.parserPackage,
+                this.grammarEncoding,
+                header.getPackageName(),
+                header.getParserName());
+    }
+
+    /**
+     * Determines whether the target files of the specified grammar file need to be regenerated.
+     *
+     * @param grammarFile The path to the grammar file, relative to the scanned source directory, must not be
+     *            <code>null</code>.
+     * @param grammarInfo The grammar info describing the grammar file, must not be <code>null</code>.
+     * @return <code>true</code> if the grammar file needs to be processed, <code>false</code> otherwise.
+     * @throws IOException If the grammar file could not be read.
+     */
+    private boolean isStale(String grammarFile, GrammarInfo grammarInfo) throws IOException {
+        File sourceFile = grammarInfo.getGrammarFile();
+        File[] targetFiles = getTargetFiles(this.outputDirectory, grammarFile, grammarInfo);
+        if (this.buildState == null) {
+            return !exist(targetFiles) || isOlder(targetFiles, 0, sourceFile);
+        }
+
+        String grammar = grammarInfo.getRelativeGrammarFile();
+        String[] arguments = (this.toolArguments != null) ? this.toolArguments.apply(grammarInfo) : new String[0];
+        String options = BuildState.computeOptions(arguments);
+        this.buildState.stage(grammar, BuildState.OPTIONS, options);
+        String recordedOptions = this.buildState.get(grammar, BuildState.OPTIONS);
+
+        boolean stale = !exist(targetFiles)
+                || !exist(this.buildState.getOutputs(grammar))
+                || this.changedDependents.contains(BuildState.key(grammar));
+        if (this.digest) {
+            String fingerprint = BuildState.computeFingerprint(sourceFile, arguments);
+            this.buildState.stage(grammar, BuildState.FINGERPRINT, fingerprint);
+            stale = stale || !fingerprint.equals(this.buildState.get(grammar, BuildState.FINGERPRINT));
+        } else {
+            // the outputs of a previous plugin version without recorded options are assumed to match the options
+            // unchanged target files are not rewritten, so the time of processing counts as their timestamp
+            String processed = this.buildState.get(grammar, BuildState.PROCESSED);
+            stale = stale
+                    || (recordedOptions != null && !recordedOptions.equals(options))
+                    || isOlder(targetFiles, parseTime(processed), sourceFile);
+            this.buildState.stage(grammar, BuildState.PROCESSED, Long.toString(this.scanTime));
+        }
+
+        if (stale || recordedOptions == null) {
+            this.buildState.stageInputs(
+                    grammar,
+                    BuildState.computeInputDigests(
+                            grammarInfo, this.grammarEncoding, this.inputDigests, this.includes));
+        }
+        if (!stale && recordedOptions == null) {
+            this.buildState.commit(grammar);
+        }
+        return stale;
+    }
+
+    /**
+     * Determines the grammar files whose included files changed since the build state was recorded. Using the reverse
+     * dependency graph, each included file is only checked once, no matter how many grammar files include it.
+     *
+     * @throws IOException If an included file could not be read.
+     */
+    private void findChangedDependents() throws IOException {
+        for (Map.Entry<File, Map<String, String>> dependents :
+                this.buildState.getDependents().entrySet()) {
+            String digest = BuildState.computeInputDigest(dependents.getKey(), this.inputDigests);
+            for (Map.Entry<String, String> dependent : dependents.getValue().entrySet()) {
+                if (!digest.equals(dependent.getValue())) {
+                    this.changedDependents.add(dependent.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines whether all of the specified files exist. Each directory is only listed once per scan such that many
+     * generated files can be checked without querying the file system for each of them.
+     *
+     * @param files The files to check, must not be <code>null</code>.
+     * @return <code>true</code> if all files exist, <code>false</code> otherwise.
+     */
+    private boolean exist(File[] files) {
+        for (File file : files) {
+            Set<String> names = this.directoryListings.computeIfAbsent(file.getParentFile(), directory -> {
+                String[] list = (directory != null) ? directory.list() : null;
+                return (list != null) ? new HashSet<>(Arrays.asList(list)) : Collections.<String>emptySet();
+            });
+            if (!names.contains(file.getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a time recorded in the build state.
+     *
+     * @param time The recorded time, may be <code>null</code>.
+     * @return The time in milliseconds or <code>0</code> if not recorded or invalid.
+     */
+    private static long parseTime(String time) {
+        try {
+            return (time != null) ? Long.parseLong(time) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Determines whether any of the target files is older than the grammar file.
+     *
+     * @param targetFiles The target files of the grammar file, must not be <code>null</code>.
+     * @param processed The time at which the grammar file was last processed, <code>0</code> if unknown.
+     * @param sourceFile The grammar file, must not be <code>null</code>.
+     * @return <code>true</code> if the grammar file needs to be processed, <code>false</code> otherwise.
+     */
+    private boolean isOlder(File[] targetFiles, long processed, File sourceFile) {
+        long sourceTime = sourceFile.lastModified();
+        for (File targetFile : targetFiles) {
+            if (Math.max(targetFile.lastModified(), processed) + this.staleMillis < sourceTime) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Determines the output files corresponding to the specified grammar file.
      *
@@ -0,0 +1,301 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * Extracts the parser name and the package declaration from the header of a grammar file. The file is read through a
+ * small buffer that is reused by all scans of the current thread and reading stops as soon as the package declaration
+ * following <code>PARSER_BEGIN</code> has been seen, such that scanning does not depend on the size of the grammar.
+ * Comments, string literals and character literals are skipped.
+ */
+class GrammarHeaderScanner {
+
+    /**
+     * The size of the character buffer used to read grammar files.
+     */
+    private static final int BUFFER_SIZE = 2048;
+
+    /**
+     * The character buffers, one per thread.
+     */
+    private static final ThreadLocal<char[]> BUFFERS = ThreadLocal.withInitial(() -> new char[BUFFER_SIZE]);
+
+    /**
+     * The marker for the end of the input.
+     */
+    private static final int EOF = -1;
+
+    /**
+     * The reader to scan.
+     */
+    private final Reader reader;
+
+    /**
+     * The buffer holding the characters read from the reader.
+     */
+    private final char[] buffer;
+
+    /**
+     * The index of the next character in the buffer.
+     */
+    private int position;
+
+    /**
+     * The number of valid characters in the buffer.
+     */
+    private int limit;
+
+    /**
+     * A character that was read ahead and needs to be delivered again, or {@link #EOF} if none.
+     */
+    private int pushback = EOF;
+
+    /**
+     * The buffer used to assemble tokens.
+     */
+    private final StringBuilder token = new StringBuilder(64);
+
+    /**
+     * The simple name of the parser as given by <code>PARSER_BEGIN</code>.
+     */
+    private String parserName = "";
+
+    /**
+     * The declared package of the parser.
+     */
+    private String packageName = "";
+
+    /**
+     * Creates a new scanner for the specified reader.
+     *
+     * @param reader The reader to scan, must not be <code>null</code>.
+     * @param buffer The buffer to read into, must not be <code>null</code>.
+     */
+    GrammarHeaderScanner(Reader reader, char[] buffer) {
+        this.reader = reader;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Scans the header of the specified grammar file.
+     *
+     * @param grammarFile The grammar file to scan, must not be <code>null</code>.
+     * @param grammarEncoding The file encoding of the grammar file, may be <code>null</code> to use the platform
+     *            default encoding.
+     * @return The scanner holding the extracted information, never <code>null</code>.
+     * @throws IOException If reading the grammar file failed.
+     */
+    public static GrammarHeaderScanner scan(File grammarFile, String grammarEncoding) throws IOException {
+        Charset charset = (grammarEncoding != null) ? Charset.forName(grammarEncoding) : Charset.defaultCharset();
+        try (Reader reader = new InputStreamReader(new FileInputStream(grammarFile), charset)) {
+            GrammarHeaderScanner scanner = new GrammarHeaderScanner(reader, BUFFERS.get());
+            scanner.scan();
+            return scanner;
+        }
+    }
+
+    /**
+     * Scans the input until the package declaration following <code>PARSER_BEGIN</code> has been processed or the end
+     * of the input has been reached.
+     *
+     * @throws IOException If reading the input failed.
+     */
+    void scan() throws IOException {
+        for (String token = nextToken(); token != null; token = nextToken()) {
+            if ("package".equals(token) && this.packageName.isEmpty()) {
+                this.packageName = nextQualifiedName();
+            } else if ("PARSER_BEGIN".equals(token)) {
+                if (!"(".equals(nextToken())) {
+                    continue;
+                }
+                String name = nextToken();
+                if (name == null || !")".equals(nextToken())) {
+                    return;
+                }
+                this.parserName = name;
+                if (this.packageName.isEmpty() && "package".equals(nextToken())) {
+                    this.packageName = nextQualifiedName();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the simple name of the parser as given by <code>PARSER_BEGIN</code>.
+     *
+     * @return The simple name of the parser or an empty string if not found, never <code>null</code>.
+     */
+    public String getParserName() {
+        return this.parserName;
+    }
+
+    /**
+     * Gets the declared package of the parser.
+     *
+     * @return The declared package or an empty string if not found, never <code>null</code>.
+     */
+    public String getPackageName() {
+        return this.packageName;
+    }
+
+    /**
+     * Reads a qualified name terminated by a semicolon, e.g. the name in a package declaration.
+     *
+     * @return The qualified name or an empty string if the input does not contain a well-formed name, never
+     *         <code>null</code>.
+     * @throws IOException If reading the input failed.
+     */
+    private String nextQualifiedName() throws IOException {
+        StringBuilder name = new StringBuilder(64);
+        for (String token = nextToken(); token != null; token = nextToken()) {
+            if (";".equals(token)) {
+                return (name.length() > 0 && name.charAt(name.length() - 1) != '.') ? name.toString() : "";
+            }
+            boolean separator = ".".equals(token);
+            boolean expectSeparator = name.length() > 0 && name.charAt(name.length() - 1) != '.';
+            if (separator != expectSeparator || (!separator && !Character.isJavaIdentifierStart(token.charAt(0)))) {
+                return "";
+            }
+            name.append(token);
+        }
+        return "";
+    }
+
+    /**
+     * Reads the next token, i.e. an identifier or a single other character. Whitespace, comments, string literals and
+     * character literals are skipped.
+     *
+     * @return The next token or <code>null</code> at the end of the input.
+     * @throws IOException If reading the input failed.
+     */
+    String nextToken() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == EOF) {
+                return null;
+            } else if (Character.isWhitespace(c)) {
+                continue;
+            } else if (c == '/') {
+                int next = read();
+                if (next == '/') {
+                    skipLineComment();
+                    continue;
+                } else if (next == '*') {
+                    skipBlockComment();
+                    continue;
+                }
+                unread(next);
+                return "/";
+            } else if (c == '"' || c == '\'') {
+                skipLiteral(c);
+                continue;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                this.token.setLength(0);
+                while (c != EOF && Character.isJavaIdentifierPart(c)) {
+                    this.token.append((char) c);
+                    c = read();
+                }
+                unread(c);
+                return this.token.toString();
+            }
+            return String.valueOf((char) c);
+        }
+    }
+
+    /**
+     * Skips the remainder of a line comment.
+     *
+     * @throws IOException If reading the input failed.
+     */
+    private void skipLineComment() throws IOException {
+        for (int c = read(); c != EOF && c != '\n' && c != '\r'; c = read()) {
+            // skip
+        }
+    }
+
+    /**
+     * Skips the remainder of a block comment.
+     *
+     * @throws IOException If reading the input failed.
+     */
+    private void skipBlockComment() throws IOException {
+        int previous = EOF;
+        for (int c = read(); c != EOF; c = read()) {
+            if (previous == '*' && c == '/') {
+                return;
+            }
+            previous = c;
+        }
+    }
+
+    /**
+     * Skips the remainder of a string or character literal.
+     *
+     * @param quote The quote character that started the literal.
+     * @throws IOException If reading the input failed.
+     */
+    private void skipLiteral(int quote) throws IOException {
+        for (int c = read(); c != EOF && c != quote && c != '\n' && c != '\r'; c = read()) {
+            if (c == '\\') {
+                read();
+            }
+        }
+    }
+
+    /**
+     * Reads the next character from the input.
+     *
+     * @return The next character or {@link #EOF} at the end of the input.
+     * @throws IOException If reading the input failed.
+     */
+    private int read() throws IOException {
+        if (this.pushback != EOF) {
+            int c = this.pushback;
+            this.pushback = EOF;
+            return c;
+        }
+        if (this.position >= this.limit) {
+            this.limit = this.reader.read(this.buffer, 0, this.buffer.length);
+            this.position = 0;
+            if (this.limit <= 0) {
+                this.limit = 0;
+                return EOF;
+            }
+        }
+        return this.buffer[this.position++];
+    }
+
+    /**
+     * Pushes back a character such that it is returned by the next call to {@link #read()}.
+     *
+     * @param c The character to push back, may be {@link #EOF}.
+     */
+    private void unread(int c) {
+        this.pushback = c;
+    }
+}
@@ -19,8 +19,14 @@ package org.codehaus.mojo.javacc;
  * under the License.
  */
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,6 +40,11 @@ import org.codehaus.plexus.util.FileUtils;
  */
 class GrammarInfo {
 
+    /**
+     * The pattern matching an <code>INCLUDE</code> directive, capturing the path of the included file.
+     */
+    private static final Pattern INCLUDE = Pattern.compile("(?m)^\\s*INCLUDE\\s*\\(?\\s*\"([^\"\\r\\n]+)\"");
+
     /**
      * The absolute path to the base directory in which the grammar file resides.
      */
@@ -64,6 +75,17 @@ class GrammarInfo {
      */
     private final String parserFile;
 
+    /**
+     * The file encoding of the grammar file, may be <code>null</code> for the platform default encoding.
+     */
+    private final String grammarEncoding;
+
+    /**
+     * The paths of the files included by the grammar via <code>INCLUDE</code> directives, as given in the grammar.
+     * Lazily initialized since the includes are only required for grammars that need to be processed.
+     */
+    private String[] includes;
+
     /**
      * Creates a new info from the specified grammar file.
      *
@@ -104,6 +126,33 @@ class GrammarInfo {
      */
     public GrammarInfo(File sourceDir, String inputFile, String packageName, String grammarEncoding)
             throws IOException {
+        this(sourceDir, inputFile, packageName, grammarEncoding, null, null);
+    }
+
+    /**
+     * Creates a new info from the specified grammar file and its previously scanned header.
+     *
+     * @param sourceDir The absolute path to the base directory in which the grammar file resides, must not be
+     *            <code>null</code>.
+     * @param inputFile The path to the grammar file (relative to the source directory), must not be <code>null</code>.
+     * @param packageName The package name for the generated parser, may be <code>null</code> to use the package
+     *            declaration from the grammar file.
+     * @param grammarEncoding The file encoding to use for reading the grammar file, may be <code>null</code> to use
+     *            the platform default encoding.
+     * @param declaredPackage The package declared by the grammar file, may be <code>null</code> to scan the grammar
+     *            file.
+     * @param declaredParserName The parser name declared by the grammar file, may be <code>null</code> to scan the
+     *            grammar file.
+     * @throws IOException If reading the grammar file failed.
+     */
+    GrammarInfo(
+            File sourceDir,
+            String inputFile,
+            String packageName,
+            String grammarEncoding,
+            String declaredPackage,
+            String declaredParserName)
+            throws IOException {
         if (!sourceDir.isAbsolute()) {
             throw new IllegalArgumentException("source directory is not absolute: " + sourceDir);
         }
@@ -118,24 +167,25 @@ class GrammarInfo {
             throw new IllegalArgumentException("input file is not relative to source directory:" + inputFile);
         }
 
-        // Read the grammar file using the specified encoding, or platform default if not specified
-        String grammar;
-        if (grammarEncoding != null) {
-            grammar = FileUtils.fileRead(getGrammarFile(), grammarEncoding);
-        } else {
-            grammar = FileUtils.fileRead(getGrammarFile());
+        this.grammarEncoding = grammarEncoding;
+
+        // Scan the header of the grammar file using the specified encoding, or platform default if not specified
+        if (declaredPackage == null || declaredParserName == null) {
+            GrammarHeaderScanner header = GrammarHeaderScanner.scan(getGrammarFile(), grammarEncoding);
+            declaredPackage = header.getPackageName();
+            declaredParserName = header.getParserName();
         }
 
         // TODO: Once the parameter "packageName" from the javacc mojo has been deleted, remove our parameter, too.
         if (packageName == null) {
-            this.parserPackage = findPackageName(grammar);
+            this.parserPackage = declaredPackage;
         } else {
             this.parserPackage = packageName;
         }
 
         this.parserDirectory = this.parserPackage.replace('.', File.separatorChar);
 
-        String name = findParserName(grammar);
+        String name = declaredParserName;
         if (name.length() == 0) {
             this.parserName = FileUtils.removeExtension(inFile.getName());
         } else {
@@ -150,33 +200,61 @@ class GrammarInfo {
     }
 
     /**
-     * Extracts the declared package name from the specified grammar file.
+     * Extracts the paths of the included files from the specified grammar file, i.e. the arguments of directives like
+     * <code>INCLUDE("Tokens.jj");</code> or <code>INCLUDE "Tokens.jj"</code>. The file is read line by line such that
+     * its contents never need to be held in memory as a whole.
      *
-     * @param grammar The contents of the grammar file, must not be <code>null</code>.
-     * @return The declared package name or an empty string if not found.
+     * @param grammarFile The grammar file to read, must not be <code>null</code>.
+     * @param grammarEncoding The file encoding of the grammar file, may be <code>null</code> to use the platform
+     *            default encoding.
+     * @return The paths of the included files as given in the grammar file, never <code>null</code>.
+     * @throws IOException If reading the grammar file failed.
      */
-    private String findPackageName(String grammar) {
-        final String packageDeclaration = "package\\s+([^\\s.;]+(\\.[^\\s.;]+)*)\\s*;";
-        Matcher matcher = Pattern.compile(packageDeclaration).matcher(grammar);
-        if (matcher.find()) {
-            return matcher.group(1);
+    static String[] findIncludes(File grammarFile, String grammarEncoding) throws IOException {
+        Charset charset = (grammarEncoding != null) ? Charset.forName(grammarEncoding) : Charset.defaultCharset();
+        List<String> paths = new ArrayList<>();
+        try (BufferedReader reader =
+                new BufferedReader(new InputStreamReader(new FileInputStream(grammarFile), charset))) {
+            Matcher matcher = INCLUDE.matcher("");
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.indexOf("INCLUDE") >= 0 && matcher.reset(line).find()) {
+                    paths.add(matcher.group(1));
+                }
+            }
         }
-        return "";
+        return paths.toArray(new String[0]);
     }
 
     /**
-     * Extracts the simple parser name from the specified grammar file.
+     * Resolves the path of an included file against the directory of the including file.
      *
-     * @param grammar The contents of the grammar file, must not be <code>null</code>.
-     * @return The parser name or an empty string if not found.
+     * @param includingFile The absolute path to the including file, must not be <code>null</code>.
+     * @param path The path of the included file as given in the including file, must not be <code>null</code>.
+     * @return The absolute, normalized path to the included file, never <code>null</code>.
      */
-    private String findParserName(String grammar) {
-        final String parserBegin = "PARSER_BEGIN\\s*\\(\\s*([^\\s\\)]+)\\s*\\)";
-        Matcher matcher = Pattern.compile(parserBegin).matcher(grammar);
-        if (matcher.find()) {
-            return matcher.group(1);
+    static File resolveInclude(File includingFile, String path) {
+        File file = new File(path);
+        if (!file.isAbsolute()) {
+            file = new File(includingFile.getParentFile(), path);
+        }
+        return file.toPath().normalize().toFile();
+    }
+
+    /**
+     * Gets the files directly included by the grammar file via <code>INCLUDE</code> directives.
+     *
+     * @return The absolute paths to the included files, never <code>null</code>.
+     * @throws IOException If reading the grammar file failed.
+     */
+    public File[] getIncludes() throws IOException {
+        if (this.includes == null) {
+            this.includes = findIncludes(getGrammarFile(), this.grammarEncoding);
+        }
+        File[] files = new File[this.includes.length];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = resolveInclude(getGrammarFile(), this.includes[i]);
         }
-        return "";
+        return files;
     }
 
     /**
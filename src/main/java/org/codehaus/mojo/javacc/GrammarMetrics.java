@@ -0,0 +1,291 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Collects the timings of the phases in which a grammar file is processed, e.g. the tool invocations and the copying
+ * of the generated files. CPU times are measured for the threads of the plugin, i.e. they do not include the CPU time
+ * spent in forked JVMs. CPU times are only measured if thread CPU time measurement is already enabled in the JVM, the
+ * plugin never changes this JVM-wide setting itself.
+ */
+class GrammarMetrics {
+
+    /**
+     * The bean used to measure the CPU time of the current thread, may be <code>null</code> if unsupported.
+     */
+    private static final ThreadMXBean THREADS = getThreadBean();
+
+    /**
+     * The path to the grammar file, relative to the project base directory.
+     */
+    private final String grammar;
+
+    /**
+     * The wall and CPU times in nanoseconds of the phases, keyed by phase name, in the order of the first occurrence.
+     */
+    private final Map<String, long[]> phases = new LinkedHashMap<>();
+
+    /**
+     * The total wall time in nanoseconds.
+     */
+    private long wallTime;
+
+    /**
+     * The total CPU time in nanoseconds.
+     */
+    private long cpuTime;
+
+    /**
+     * The number of generated files copied to the compile source roots.
+     */
+    private int filesCopied;
+
+    /**
+     * The number of bytes of the generated files copied to the compile source roots.
+     */
+    private long bytesWritten;
+
+    /**
+     * A flag whether the generated files were restored from the build cache.
+     */
+    private boolean cached;
+
+    /**
+     * Creates new metrics.
+     *
+     * @param grammar The path to the grammar file, relative to the project base directory, must not be
+     *            <code>null</code>.
+     */
+    public GrammarMetrics(String grammar) {
+        this.grammar = grammar;
+    }
+
+    /**
+     * Gets the bean used to measure the CPU time of threads.
+     *
+     * @return The bean or <code>null</code> if the JVM does not support measuring the CPU time of the current thread.
+     */
+    private static ThreadMXBean getThreadBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean.isCurrentThreadCpuTimeSupported()) {
+                return bean;
+            }
+        } catch (RuntimeException e) {
+            // CPU time is optional
+        }
+        return null;
+    }
+
+    /**
+     * Gets the CPU time of the current thread.
+     *
+     * @return The CPU time of the current thread in nanoseconds or <code>0</code> if unsupported or disabled.
+     */
+    public static long currentCpuTime() {
+        return (THREADS != null && THREADS.isThreadCpuTimeEnabled())
+                ? Math.max(0, THREADS.getCurrentThreadCpuTime())
+                : 0;
+    }
+
+    /**
+     * Gets the path to the grammar file.
+     *
+     * @return The path to the grammar file, relative to the project base directory, never <code>null</code>.
+     */
+    public String getGrammar() {
+        return this.grammar;
+    }
+
+    /**
+     * Records a phase that started at the specified times and ends now. The times of repeated phases are summed up.
+     *
+     * @param name The name of the phase, must not be <code>null</code>.
+     * @param startTime The start time of the phase as given by {@link System#nanoTime()}.
+     * @param startCpuTime The start time of the phase as given by {@link #currentCpuTime()}.
+     */
+    public synchronized void addPhase(String name, long startTime, long startCpuTime) {
+        long[] times = this.phases.get(name);
+        if (times == null) {
+            times = new long[2];
+            this.phases.put(name, times);
+        }
+        times[0] += System.nanoTime() - startTime;
+        times[1] += Math.max(0, currentCpuTime() - startCpuTime);
+    }
+
+    /**
+     * Gets the wall times of the recorded phases.
+     *
+     * @return The wall times in nanoseconds of the phases, keyed by phase name, never <code>null</code>.
+     */
+    public synchronized Map<String, Long> getPhases() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : this.phases.entrySet()) {
+            result.put(entry.getKey(), entry.getValue()[0]);
+        }
+        return result;
+    }
+
+    /**
+     * Records the total time spent on the grammar, starting at the specified times and ending now.
+     *
+     * @param startTime The start time as given by {@link System#nanoTime()}.
+     * @param startCpuTime The start time as given by {@link #currentCpuTime()}.
+     */
+    public synchronized void setTotal(long startTime, long startCpuTime) {
+        this.wallTime = System.nanoTime() - startTime;
+        this.cpuTime = Math.max(0, currentCpuTime() - startCpuTime);
+    }
+
+    /**
+     * Gets the total wall time spent on the grammar.
+     *
+     * @return The total wall time in nanoseconds.
+     */
+    public synchronized long getWallTime() {
+        return this.wallTime;
+    }
+
+    /**
+     * Records a generated file that was copied to a compile source root.
+     *
+     * @param bytes The size of the file in bytes.
+     */
+    public synchronized void addFile(long bytes) {
+        this.filesCopied++;
+        this.bytesWritten += bytes;
+    }
+
+    /**
+     * Gets the number of generated files copied to the compile source roots.
+     *
+     * @return The number of copied files.
+     */
+    public synchronized int getFilesCopied() {
+        return this.filesCopied;
+    }
+
+    /**
+     * Gets the number of bytes of the generated files copied to the compile source roots.
+     *
+     * @return The number of bytes written.
+     */
+    public synchronized long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    /**
+     * Marks the generated files as restored from the build cache.
+     */
+    public synchronized void setCached() {
+        this.cached = true;
+    }
+
+    /**
+     * Appends a JSON object describing these metrics to the specified buffer.
+     *
+     * @param json The buffer to append to, must not be <code>null</code>.
+     * @param indent The indentation of the object, must not be <code>null</code>.
+     */
+    public synchronized void appendJson(StringBuilder json, String indent) {
+        json.append(indent).append("{\n");
+        json.append(indent)
+                .append("  \"grammar\": ")
+                .append(quote(this.grammar))
+                .append(",\n");
+        json.append(indent)
+                .append("  \"wallTimeMillis\": ")
+                .append(millis(this.wallTime))
+                .append(",\n");
+        json.append(indent)
+                .append("  \"cpuTimeMillis\": ")
+                .append(millis(this.cpuTime))
+                .append(",\n");
+        json.append(indent)
+                .append("  \"filesCopied\": ")
+                .append(this.filesCopied)
+                .append(",\n");
+        json.append(indent)
+                .append("  \"bytesWritten\": ")
+                .append(this.bytesWritten)
+                .append(",\n");
+        json.append(indent).append("  \"cached\": ").append(this.cached).append(",\n");
+        json.append(indent).append("  \"phases\": [");
+        String separator = "\n";
+        for (Map.Entry<String, long[]> entry : this.phases.entrySet()) {
+            json.append(separator).append(indent).append("    { \"name\": ").append(quote(entry.getKey()));
+            json.append(", \"wallTimeMillis\": ").append(millis(entry.getValue()[0]));
+            json.append(", \"cpuTimeMillis\": ")
+                    .append(millis(entry.getValue()[1]))
+                    .append(" }");
+            separator = ",\n";
+        }
+        json.append(this.phases.isEmpty() ? "]\n" : "\n" + indent + "  ]\n");
+        json.append(indent).append('}');
+    }
+
+    /**
+     * Formats a duration in milliseconds with microsecond precision.
+     *
+     * @param nanos The duration in nanoseconds.
+     * @return The formatted duration, never <code>null</code>.
+     */
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000000.0);
+    }
+
+    /**
+     * Quotes a string for use in JSON.
+     *
+     * @param value The string to quote, must not be <code>null</code>.
+     * @return The quoted string, never <code>null</code>.
+     */
+    static String quote(String value) {
+        StringBuilder buffer = new StringBuilder(value.length() + 2);
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer.append('\\').append(c);
+            } else if (c < 0x20) {
+                buffer.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                buffer.append(c);
+            }
+        }
+        return buffer.append('"').toString();
+    }
+
+    /**
+     * Gets a string representation of these metrics.
+     *
+     * @return A string representation of these metrics.
+     */
+    public synchronized String toString() {
+        return this.grammar + " (" + millis(this.wallTime) + " ms)";
+    }
+}
@@ -0,0 +1,171 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+
+/**
+ * A remote cache that transfers the archives of the entries via HTTP, i.e. <code>GET</code> and <code>PUT</code>
+ * requests for <code>&lt;base-url&gt;/&lt;key&gt;.zip</code>. Any web server or artifact repository accepting plain
+ * uploads can serve as backend. Credentials may be given as user info of the base URL and are sent using basic
+ * authentication.
+ */
+class HttpRemoteCache implements RemoteCache {
+
+    /**
+     * The timeout in milliseconds for connecting to the server and for reading responses.
+     */
+    private static final int TIMEOUT = 30000;
+
+    /**
+     * The base URL of the remote cache, always ending with a slash.
+     */
+    private final URL baseUrl;
+
+    /**
+     * The value of the <code>Authorization</code> header, may be <code>null</code>.
+     */
+    private final String authorization;
+
+    /**
+     * Creates a new remote cache.
+     *
+     * @param baseUrl The base URL of the remote cache, must not be <code>null</code>.
+     * @throws IOException If the URL is malformed.
+     */
+    public HttpRemoteCache(URL baseUrl) throws IOException {
+        String spec = baseUrl.toExternalForm();
+        this.baseUrl = spec.endsWith("/") ? baseUrl : new URL(spec + '/');
+        String userInfo = baseUrl.getUserInfo();
+        if (userInfo != null) {
+            userInfo = URLDecoder.decode(userInfo, "UTF-8");
+            this.authorization =
+                    "Basic " + Base64.getEncoder().encodeToString(userInfo.getBytes(StandardCharsets.UTF_8));
+        } else {
+            this.authorization = null;
+        }
+    }
+
+    /**
+     * Opens a connection to the archive of the entry with the specified key.
+     *
+     * @param key The key of the entry, must not be <code>null</code>.
+     * @param method The HTTP method of the request, must not be <code>null</code>.
+     * @return The connection, never <code>null</code>.
+     * @throws IOException If the connection could not be opened.
+     */
+    private HttpURLConnection openConnection(String key, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(this.baseUrl, key + ".zip").openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        connection.setUseCaches(false);
+        if (this.authorization != null) {
+            connection.setRequestProperty("Authorization", this.authorization);
+        }
+        return connection;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean fetch(String key, File archive) throws IOException {
+        HttpURLConnection connection = openConnection(key, "GET");
+        try {
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                discard(connection.getErrorStream());
+                return false;
+            } else if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected HTTP status " + status + " for " + connection.getURL());
+            }
+            try (InputStream is = connection.getInputStream()) {
+                Files.copy(is, archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void store(String key, File archive) throws IOException {
+        HttpURLConnection connection = openConnection(key, "PUT");
+        try {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(archive.length());
+            connection.setRequestProperty("Content-Type", "application/zip");
+            try (OutputStream os = connection.getOutputStream();
+                    InputStream is = new FileInputStream(archive)) {
+                byte[] buffer = new byte[8192];
+                for (int n = is.read(buffer); n >= 0; n = is.read(buffer)) {
+                    os.write(buffer, 0, n);
+                }
+            }
+            int status = connection.getResponseCode();
+            if (status < 200 || status >= 300) {
+                throw new IOException("Unexpected HTTP status " + status + " for " + connection.getURL());
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Reads and closes the specified response stream, such that the connection can be reused.
+     *
+     * @param is The stream to discard, may be <code>null</code>.
+     * @throws IOException If the stream could not be read.
+     */
+    private static void discard(InputStream is) throws IOException {
+        if (is != null) {
+            try (InputStream stream = is) {
+                byte[] buffer = new byte[1024];
+                while (stream.read(buffer) >= 0) {
+                    // skip
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets a string representation of this remote cache, omitting any credentials.
+     *
+     * @return A string representation of this remote cache.
+     */
+    public String toString() {
+        URL url = this.baseUrl;
+        return url.getProtocol() + "://" + url.getHost() + ((url.getPort() >= 0) ? ":" + url.getPort() : "")
+                + url.getPath();
+    }
+}
@@ -25,7 +25,6 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.codehaus.plexus.util.StringUtils;
-import org.codehaus.plexus.util.cli.StreamConsumer;
 
 /**
  * Provides a facade for the mojos to invoke JJDoc.
@@ -150,24 +149,74 @@ class JJDoc extends ToolFacade {
             outputDirectory.mkdirs();
         }
 
+        if (getClassLoaderPool() != null) {
+            return executeInProcess(args);
+        }
+
         // fork jjdoc because of calls to System.exit()
         ForkedJvm jvm = new ForkedJvm();
         jvm.setMainClass(org.javacc.jjdoc.JJDocMain.class);
         jvm.addArguments(args);
         jvm.setSystemOut(new MojoLogStreamConsumer(false));
         jvm.setSystemErr(new MojoLogStreamConsumer(true));
+        jvm.setPool(getForkedJvmPool());
         if (getLog().isDebugEnabled()) {
             getLog().debug("Forking: " + jvm);
         }
         return jvm.run();
     }
 
+    /**
+     * Runs JJDoc within the current JVM, using an isolated class loader from the class loader pool. The output of JJDoc
+     * is logged just like the output of a forked JVM. No trap for <code>System.exit()</code> is needed since the method
+     * <code>mainProgram()</code> reports errors by its return value.
+     *
+     * @param args The command line arguments for JJDoc, must not be <code>null</code>.
+     * @return The exit code of JJDoc.
+     * @throws Exception If JJDoc failed.
+     */
+    private int executeInProcess(String[] args) throws Exception {
+        return ToolSandbox.run(
+                () -> (Integer) getClassLoaderPool().invoke("org.javacc.jjdoc.JJDocMain", "mainProgram", args),
+                new MojoLogStreamConsumer(false),
+                new MojoLogStreamConsumer(true));
+    }
+
     /**
      * Assembles the command line arguments for the invocation of JJDoc according to the configuration.
      *
      * @return A string array that represents the arguments to use for JJDoc.
      */
     private String[] generateArguments() {
+        List<String> argsList = generateOptionArguments();
+
+        if (this.outputFile != null) {
+            argsList.add("-OUTPUT_FILE=" + this.outputFile.getAbsolutePath());
+        }
+
+        if (this.inputFile != null) {
+            argsList.add(this.inputFile.getAbsolutePath());
+        }
+
+        return argsList.toArray(new String[0]);
+    }
+
+    /**
+     * Gets the command line arguments for the options of JJDoc, i.e. all arguments except for the input file and the
+     * output file. These arguments determine the generated documentation for a given grammar file.
+     *
+     * @return A string array that represents the option arguments to use for JJDoc, never <code>null</code>.
+     */
+    public String[] getOptionArguments() {
+        return generateOptionArguments().toArray(new String[0]);
+    }
+
+    /**
+     * Assembles the command line arguments for the options of JJDoc according to the configuration.
+     *
+     * @return The list of option arguments, never <code>null</code>.
+     */
+    private List<String> generateOptionArguments() {
         List<String> argsList = new ArrayList<>();
 
         if (StringUtils.isNotEmpty(this.grammarEncoding)) {
@@ -186,19 +235,11 @@ class JJDoc extends ToolFacade {
             argsList.add("-ONE_TABLE=" + this.oneTable);
         }
 
-        if (this.outputFile != null) {
-            argsList.add("-OUTPUT_FILE=" + this.outputFile.getAbsolutePath());
-        }
-
         if (StringUtils.isNotEmpty(this.cssHref)) {
             argsList.add("-CSS=" + this.cssHref);
         }
 
-        if (this.inputFile != null) {
-            argsList.add(this.inputFile.getAbsolutePath());
-        }
-
-        return argsList.toArray(new String[0]);
+        return argsList;
     }
 
     /**
@@ -211,49 +252,13 @@ class JJDoc extends ToolFacade {
     }
 
     /**
-     * Consume and log command line output from the JJDoc process.
+     * {@inheritDoc} Plain lines written by JJDoc to <code>System.out</code> are only logged at the debug level.
      */
-    class MojoLogStreamConsumer implements StreamConsumer {
-
-        /**
-         * The line prefix used by JJDoc to report errors.
-         */
-        private static final String ERROR_PREFIX = "Error: ";
-
-        /**
-         * The line prefix used by JJDoc to report warnings.
-         */
-        private static final String WARN_PREFIX = "Warning: ";
-
-        /**
-         * Determines if the stream consumer is being used for <code>System.out</code> or <code>System.err</code>.
-         */
-        private final boolean err;
-
-        /**
-         * Single param constructor.
-         *
-         * @param error If set to <code>true</code>, all consumed lines will be logged at the error level.
-         */
-        public MojoLogStreamConsumer(boolean error) {
-            this.err = error;
-        }
-
-        /**
-         * Consume a line of text.
-         *
-         * @param line The line to consume.
-         */
-        public void consumeLine(String line) {
-            if (line.startsWith(ERROR_PREFIX)) {
-                getLog().error(line.substring(ERROR_PREFIX.length()));
-            } else if (line.startsWith(WARN_PREFIX)) {
-                getLog().warn(line.substring(WARN_PREFIX.length()));
-            } else if (this.err) {
-                getLog().error(line);
-            } else {
-                getLog().debug(line);
-            }
+    protected void logOutput(String line, boolean error) {
+        if (error || line.startsWith(ERROR_PREFIX) || line.startsWith(WARN_PREFIX)) {
+            super.logOutput(line, error);
+        } else {
+            getLog().debug(line);
         }
     }
 }
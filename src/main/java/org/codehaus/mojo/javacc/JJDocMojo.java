@@ -20,14 +20,19 @@ package org.codehaus.mojo.javacc;
  */
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
 
 import org.apache.maven.doxia.sink.Sink;
+import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.Execute;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -149,6 +154,67 @@ public class JJDocMojo extends AbstractMavenReport {
     @Parameter(property = "javacc.oneTable", defaultValue = "true")
     private boolean oneTable;
 
+    /**
+     * A flag whether the JVM forked to run JJDoc should be kept alive and reused for the subsequent grammar files.
+     * This saves the startup cost of a new JVM per grammar file. Set to <code>false</code> to fork a new JVM for each
+     * grammar file.
+     *
+     * @since 3.3
+     */
+    @Parameter(property = "javacc.reuseForks", defaultValue = "true")
+    private boolean reuseForks = true;
+
+    /**
+     * The maximum number of grammar files to document concurrently. A value of <code>1</code> documents the grammars
+     * one after the other, a value of <code>0</code> or less uses the number of available processors. The report
+     * lists the grammar files in the same order regardless of this setting.
+     *
+     * @since 3.3
+     */
+    @Parameter(property = "javacc.parallelism", defaultValue = "1")
+    private int parallelism = 1;
+
+    /**
+     * A flag whether JJDoc should be run in a forked JVM. Set to <code>false</code> to run JJDoc within the build JVM,
+     * using an isolated class loader that is reused for all grammar files.
+     *
+     * @since 3.3
+     */
+    @Parameter(property = "javacc.fork", defaultValue = "true")
+    private boolean fork = true;
+
+    /**
+     * The base directory of the project.
+     *
+     * @since 3.3
+     */
+    @Parameter(defaultValue = "${basedir}", readonly = true)
+    private File basedir;
+
+    /**
+     * The build directory of the project, holding the state used to detect grammar files whose documentation is up
+     * to date.
+     *
+     * @since 3.3
+     */
+    @Parameter(defaultValue = "${project.build.directory}", readonly = true)
+    private File buildDirectory;
+
+    /**
+     * The state of the previous report generation, recording the fingerprints of the documented grammar files.
+     */
+    private BuildState buildState;
+
+    /**
+     * The pool of reusable JVMs used to run JJDoc while the report is generated, may be <code>null</code>.
+     */
+    private ForkedJvmPool forkedJvmPool;
+
+    /**
+     * The pool of class loaders used to run JJDoc in-process while the report is generated, may be <code>null</code>.
+     */
+    private ToolClassLoaderPool jjdocClassLoaderPool;
+
     /**
      * Get the output directory of the report if run directly from the command line.
      *
@@ -258,6 +324,52 @@ public class JJDocMojo extends AbstractMavenReport {
         Sink sink = getSink();
         createReportHeader(getBundle(locale), sink);
 
+        List<JJDocTask> tasks = scanForTasks();
+        int threads = Math.max(1, Math.min(ParallelTasks.getThreadCount(this.parallelism), tasks.size()));
+        if (!this.fork) {
+            this.jjdocClassLoaderPool = new ToolClassLoaderPool(threads, org.javacc.jjdoc.JJDocMain.class);
+        } else if (this.reuseForks) {
+            this.forkedJvmPool = new ForkedJvmPool(threads, null);
+        }
+        this.buildState =
+                new BuildState(new File(this.buildDirectory, "javacc-maven-plugin/jjdoc.properties"), this.basedir);
+        try {
+            runTasks(tasks, threads);
+        } finally {
+            try {
+                this.buildState.save();
+            } catch (IOException e) {
+                getLog().warn("Failed to save JJDoc state: " + this.buildState.getFile(), e);
+            }
+            this.buildState = null;
+            if (this.forkedJvmPool != null) {
+                this.forkedJvmPool.close();
+                this.forkedJvmPool = null;
+            }
+            if (this.jjdocClassLoaderPool != null) {
+                this.jjdocClassLoaderPool.close();
+                this.jjdocClassLoaderPool = null;
+            }
+        }
+
+        for (JJDocTask task : tasks) {
+            createReportLink(sink, task.sourceDirectory, task.grammarInfo.getGrammarFile(), task.outputFileName);
+        }
+
+        createReportFooter(sink);
+        sink.flush();
+        sink.close();
+    }
+
+    /**
+     * Scans all source directories for grammar files to document. The tasks are ordered like the rows of the report
+     * table, i.e. by source directory and then by grammar file.
+     *
+     * @return The tasks to run JJDoc on the grammar files, never <code>null</code>.
+     * @throws MavenReportException If the source directories could not be scanned.
+     */
+    private List<JJDocTask> scanForTasks() throws MavenReportException {
+        List<JJDocTask> tasks = new ArrayList<>();
         File[] sourceDirs = getSourceDirectories();
         for (File sourceDir : sourceDirs) {
             GrammarInfo[] grammarInfos = scanForGrammars(sourceDir);
@@ -267,31 +379,121 @@ public class JJDocMojo extends AbstractMavenReport {
             } else {
                 Arrays.sort(grammarInfos, GrammarInfoComparator.getInstance());
                 for (GrammarInfo grammarInfo : grammarInfos) {
-                    File grammarFile = grammarInfo.getGrammarFile();
-
                     String relativeOutputFileName = grammarInfo.getRelativeGrammarFile();
                     relativeOutputFileName =
                             relativeOutputFileName.replaceAll("(?i)\\.(jj|jjt|jtb)$", getOutputFileExtension());
+                    tasks.add(new JJDocTask(sourceDir, grammarInfo, relativeOutputFileName));
+                }
+            }
+        }
+        return tasks;
+    }
 
-                    File jjdocOutputFile = new File(getJJDocOutputDirectory(), relativeOutputFileName);
+    /**
+     * Runs JJDoc on the grammar files of the specified tasks. With more than one thread, the log output of each
+     * grammar file is buffered and reported in the order of the tasks, and all grammar files are documented before
+     * the failures are reported.
+     *
+     * @param tasks The tasks to run, must not be <code>null</code>.
+     * @param threads The number of grammar files to document concurrently.
+     * @throws MavenReportException If JJDoc failed for any grammar file.
+     */
+    private void runTasks(List<JJDocTask> tasks, int threads) throws MavenReportException {
+        if (threads <= 1) {
+            for (JJDocTask task : tasks) {
+                runTask(task, getLog());
+            }
+            return;
+        }
 
-                    JJDoc jjdoc = newJJDoc();
-                    jjdoc.setInputFile(grammarFile);
-                    jjdoc.setOutputFile(jjdocOutputFile);
-                    try {
-                        jjdoc.run();
-                    } catch (Exception e) {
-                        throw new MavenReportException("Failed to create BNF documentation: " + grammarFile, e);
-                    }
+        getLog().debug("Documenting grammars using " + threads + " threads");
+        Throwable[] failures;
+        try {
+            failures = ParallelTasks.run(tasks, threads, getLog(), "Failed to document grammar");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MavenReportException("Interrupted while documenting grammars", e);
+        }
 
-                    createReportLink(sink, sourceDir, grammarFile, relativeOutputFileName);
-                }
+        List<Throwable> failed = new ArrayList<>();
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < failures.length; i++) {
+            if (failures[i] != null) {
+                failed.add(failures[i]);
+                message.append("\n  ").append(tasks.get(i)).append(": ").append(failures[i].getMessage());
             }
         }
+        if (failed.size() == 1 && failed.get(0) instanceof MavenReportException) {
+            throw (MavenReportException) failed.get(0);
+        }
+        if (!failed.isEmpty()) {
+            MavenReportException exception = new MavenReportException("Failed to create BNF documentation for "
+                    + failed.size() + " of " + tasks.size() + " grammars:" + message);
+            for (Throwable failure : failed) {
+                exception.addSuppressed(failure);
+            }
+            throw exception;
+        }
+    }
 
-        createReportFooter(sink);
-        sink.flush();
-        sink.close();
+    /**
+     * Runs JJDoc on the grammar file of the specified task. The grammar file is skipped if its documentation exists
+     * and was generated from the same contents of the grammar file and its included files, using the same options.
+     *
+     * @param task The task to run, must not be <code>null</code>.
+     * @param log The logger for the output of JJDoc, must not be <code>null</code>.
+     * @throws MavenReportException If JJDoc failed.
+     */
+    private void runTask(JJDocTask task, Log log) throws MavenReportException {
+        File grammarFile = task.grammarInfo.getGrammarFile();
+        File jjdocOutputFile = new File(getJJDocOutputDirectory(), task.outputFileName);
+
+        JJDoc jjdoc = newJJDoc();
+        jjdoc.setLog(log);
+        jjdoc.setInputFile(grammarFile);
+        jjdoc.setOutputFile(jjdocOutputFile);
+
+        String grammar = this.basedir.toURI().relativize(grammarFile.toURI()).getPath();
+        String fingerprint;
+        try {
+            fingerprint = computeFingerprint(task.grammarInfo, jjdoc.getOptionArguments(), jjdocOutputFile);
+        } catch (IOException e) {
+            throw new MavenReportException("Failed to read grammar file: " + grammarFile, e);
+        }
+        if (jjdocOutputFile.isFile() && fingerprint.equals(this.buildState.get(grammar, BuildState.FINGERPRINT))) {
+            log.debug("Skipping up-to-date BNF documentation: " + jjdocOutputFile);
+            return;
+        }
+
+        try {
+            jjdoc.run();
+        } catch (Exception e) {
+            throw new MavenReportException("Failed to create BNF documentation: " + grammarFile, e);
+        }
+        this.buildState.put(grammar, BuildState.FINGERPRINT, fingerprint);
+    }
+
+    /**
+     * Computes the fingerprint of the documentation for a grammar file. It covers the contents of the grammar file and
+     * of the files it includes, directly or transitively, the JJDoc options, the location of the output file and the
+     * versions of JJDoc and this plugin.
+     *
+     * @param grammarInfo The grammar info describing the grammar file, must not be <code>null</code>.
+     * @param options The option arguments for JJDoc, must not be <code>null</code>.
+     * @param outputFile The output file of JJDoc, must not be <code>null</code>.
+     * @return The fingerprint, never <code>null</code>.
+     * @throws IOException If a grammar file or the JAR of a tool could not be read.
+     */
+    private String computeFingerprint(GrammarInfo grammarInfo, String[] options, File outputFile) throws IOException {
+        List<String> arguments = new ArrayList<>(Arrays.asList(options));
+        arguments.add("-OUTPUT_FILE=" + outputFile.getAbsolutePath());
+        arguments.add(BuildState.computeToolVersion(org.javacc.jjdoc.JJDocMain.class));
+        arguments.add(BuildState.computeToolVersion(JJDocMojo.class));
+        for (Map.Entry<File, String> input : BuildState.computeInputDigests(grammarInfo, this.grammarEncoding)
+                .entrySet()) {
+            arguments.add("INCLUDE=" + input.getKey() + "=" + input.getValue());
+        }
+        return BuildState.computeFingerprint(grammarInfo.getGrammarFile(), arguments.toArray(new String[0]));
     }
 
     /**
@@ -390,6 +592,8 @@ public class JJDocMojo extends AbstractMavenReport {
         jjdoc.setText(this.text);
         jjdoc.setBnf(this.bnf);
         jjdoc.setOneTable(this.oneTable);
+        jjdoc.setForkedJvmPool(this.forkedJvmPool);
+        jjdoc.setClassLoaderPool(this.jjdocClassLoaderPool);
         return jjdoc;
     }
 
@@ -484,4 +688,59 @@ public class JJDocMojo extends AbstractMavenReport {
             return paths1[paths1.length - 1].compareToIgnoreCase(paths2[paths1.length - 1]);
         }
     }
+
+    /**
+     * The invocation of JJDoc for a grammar file along with the data for its row in the report table.
+     */
+    private class JJDocTask implements ParallelTasks.Task {
+
+        /**
+         * The source directory in which the grammar file resides.
+         */
+        private final File sourceDirectory;
+
+        /**
+         * The grammar info describing the grammar file to document.
+         */
+        private final GrammarInfo grammarInfo;
+
+        /**
+         * The path to the output file, relative to the JJDoc output directory.
+         */
+        private final String outputFileName;
+
+        /**
+         * Creates a new task.
+         *
+         * @param sourceDirectory The source directory in which the grammar file resides, must not be
+         *            <code>null</code>.
+         * @param grammarInfo The grammar info describing the grammar file, must not be <code>null</code>.
+         * @param outputFileName The path to the output file, relative to the JJDoc output directory, must not be
+         *            <code>null</code>.
+         */
+        JJDocTask(File sourceDirectory, GrammarInfo grammarInfo, String outputFileName) {
+            this.sourceDirectory = sourceDirectory;
+            this.grammarInfo = grammarInfo;
+            this.outputFileName = outputFileName;
+        }
+
+        /**
+         * Runs JJDoc on the grammar file.
+         *
+         * @param log The logger for the output of JJDoc, must not be <code>null</code>.
+         * @throws MavenReportException If JJDoc failed.
+         */
+        public void run(Log log) throws MavenReportException {
+            runTask(this, log);
+        }
+
+        /**
+         * Gets the path to the grammar file.
+         *
+         * @return The path to the grammar file, never <code>null</code>.
+         */
+        public String toString() {
+            return this.grammarInfo.getGrammarFile().toString();
+        }
+    }
 }
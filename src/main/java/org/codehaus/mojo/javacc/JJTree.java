@@ -335,7 +335,18 @@ class JJTree extends ToolFacade {
             this.outputDirectory.mkdirs();
         }
 
-        return new org.javacc.jjtree.JJTree().main(args);
+        if (getClassLoaderPool() != null) {
+            // grammars are processed concurrently, capture the console output such that it ends up in the log of the
+            // grammar, in order
+            return ToolSandbox.run(
+                    () -> (Integer) getClassLoaderPool().invoke("org.javacc.jjtree.JJTree", "main", args),
+                    new MojoLogStreamConsumer(false),
+                    new MojoLogStreamConsumer(true));
+        }
+
+        synchronized (JavaCC.STATIC_STATE_LOCK) {
+            return new org.javacc.jjtree.JJTree().main(args);
+        }
     }
 
     /**
@@ -346,6 +357,35 @@ class JJTree extends ToolFacade {
      * @return A string array that represents the arguments to use for JJTree.
      */
     private String[] generateArguments() {
+        List<String> argsList = generateOptionArguments();
+
+        if (this.outputDirectory != null) {
+            argsList.add("-OUTPUT_DIRECTORY=" + this.outputDirectory.getAbsolutePath());
+        }
+
+        if (this.inputFile != null) {
+            argsList.add(this.inputFile.getAbsolutePath());
+        }
+
+        return argsList.toArray(new String[0]);
+    }
+
+    /**
+     * Gets the command line arguments for the options of JJTree, i.e. all arguments except for the input file and the
+     * output directory. These arguments determine the generated code for a given grammar file.
+     *
+     * @return A string array that represents the option arguments to use for JJTree, never <code>null</code>.
+     */
+    public String[] getOptionArguments() {
+        return generateOptionArguments().toArray(new String[0]);
+    }
+
+    /**
+     * Assembles the command line arguments for the options of JJTree according to the configuration.
+     *
+     * @return The list of option arguments, never <code>null</code>.
+     */
+    private List<String> generateOptionArguments() {
         List<String> argsList = new ArrayList<>();
 
         if (StringUtils.isNotEmpty(this.grammarEncoding)) {
@@ -416,15 +456,7 @@ class JJTree extends ToolFacade {
             argsList.add("-VISITOR_EXCEPTION=" + this.visitorException);
         }
 
-        if (this.outputDirectory != null) {
-            argsList.add("-OUTPUT_DIRECTORY=" + this.outputDirectory.getAbsolutePath());
-        }
-
-        if (this.inputFile != null) {
-            argsList.add(this.inputFile.getAbsolutePath());
-        }
-
-        return argsList.toArray(new String[0]);
+        return argsList;
     }
 
     /**
@@ -20,6 +20,9 @@ package org.codehaus.mojo.javacc;
  */
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -301,16 +304,17 @@ public class JJTreeJavaCCMojo extends AbstractJavaCCMojo {
         javacc.setInputFile(jjtree.getOutputFile());
         javacc.setOutputDirectory(parserDirectory);
         javacc.run();
+        generateCharStream(grammarInfo, parserDirectory);
 
-        // copy output from JJTree
-        copyGrammarOutput(
+        // move output from JJTree
+        moveGrammarOutput(
                 getInterimDirectory(),
                 (nodePackageName != null) ? nodePackageName : grammarInfo.getParserPackage(),
                 jjDirectory,
                 grammarInfo.getParserName() + "TreeConstants*");
 
-        // copy parser files from JavaCC
-        copyGrammarOutput(
+        // move parser files from JavaCC
+        moveGrammarOutput(
                 getOutputDirectory(),
                 grammarInfo.getParserPackage(),
                 parserDirectory,
@@ -325,6 +329,21 @@ public class JJTreeJavaCCMojo extends AbstractJavaCCMojo {
         deleteTempDirectory(tempDirectory);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected String[] getToolArguments(GrammarInfo grammarInfo) {
+        JJTree jjtree = newJJTree();
+        jjtree.setNodePackage(grammarInfo.resolvePackageName(this.nodePackage));
+
+        List<String> arguments = new ArrayList<>();
+        arguments.add("jjtree");
+        arguments.addAll(Arrays.asList(jjtree.getOptionArguments()));
+        arguments.add("javacc");
+        arguments.addAll(Arrays.asList(super.getToolArguments(grammarInfo)));
+        return arguments.toArray(new String[0]);
+    }
+
     /**
      * Creates a new facade to invoke JJTree. Most options for the invocation are derived from the current values of the
      * corresponding mojo parameters. The caller is responsible to set the input file, output directory and package on
@@ -335,6 +354,8 @@ public class JJTreeJavaCCMojo extends AbstractJavaCCMojo {
     protected JJTree newJJTree() {
         JJTree jjtree = new JJTree();
         jjtree.setLog(getLog());
+        jjtree.setClassLoaderPool(getToolClassLoaderPool());
+        jjtree.setMetrics(getGrammarMetrics());
         jjtree.setGrammarEncoding(getGrammarEncoding());
         jjtree.setJdkVersion(getJdkVersion());
         jjtree.setStatic(getIsStatic());
@@ -21,13 +21,13 @@ package org.codehaus.mojo.javacc;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
 import org.codehaus.plexus.util.FileUtils;
-import org.codehaus.plexus.util.cli.StreamConsumer;
 
 /**
  * Provides a facade for the mojos to invoke JTB.
@@ -48,6 +48,11 @@ class JTB extends ToolFacade {
      */
     private static final String VISITOR = "visitor";
 
+    /**
+     * The line prefix used by JTB to report infos.
+     */
+    private static final String INFO_PREFIX = "JTB: ";
+
     /**
      * The input grammar.
      */
@@ -128,6 +133,11 @@ class JTB extends ToolFacade {
      */
     private Boolean generateObjectDepthFirst;
 
+    /**
+     * The options for the JVM forked to run JTB, may be <code>null</code>.
+     */
+    private String[] jvmArguments;
+
     /**
      * Sets the absolute path to the grammar file to pass into JTB for preprocessing.
      *
@@ -368,6 +378,15 @@ class JTB extends ToolFacade {
         this.generateObjectDepthFirst = value;
     }
 
+    /**
+     * Sets the options for the JVM forked to run JTB. They apply to pooled JVMs as well.
+     *
+     * @param value The options for the forked JVM, e.g. <code>-Xmx256m</code>, may be <code>null</code>.
+     */
+    public void setJvmArguments(String[] value) {
+        this.jvmArguments = value;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -378,18 +397,40 @@ class JTB extends ToolFacade {
             this.outputDirectory.mkdirs();
         }
 
-        // fork JTB because of its lack to re-initialize its static parser
+        // fork JTB because of its lack to re-initialize its static parser; it also writes its node and visitor files
+        // relative to the working directory and aborts via System.exit(), so it cannot share the build JVM safely
         ForkedJvm jvm = new ForkedJvm();
         jvm.setMainClass("EDU.purdue.jtb.JTB");
+        jvm.addJvmArguments(this.jvmArguments);
         jvm.addArguments(args);
         jvm.setSystemOut(new MojoLogStreamConsumer(false));
         jvm.setSystemErr(new MojoLogStreamConsumer(true));
+        jvm.setPool(getForkedJvmPool());
+        // move the output while the pooled JVM is still reserved, another job would write into the same directory
+        jvm.setWorkingDirectoryHandler(this::moveJavaFiles);
+        // unless a pooled JVM with its own working directory is used, start the JVM in a fresh working directory such
+        // that concurrent invocations, e.g. from the modules of a parallel reactor build, cannot pick up each other's
+        // output
+        File workingDirectory = null;
+        if (getForkedJvmPool() == null) {
+            workingDirectory = createWorkingDirectory();
+            jvm.setWorkingDirectory(workingDirectory);
+        }
         if (getLog().isDebugEnabled()) {
             getLog().debug("Forking: " + jvm);
         }
-        int exitcode = jvm.run();
-
-        moveJavaFiles();
+        int exitcode;
+        try {
+            exitcode = jvm.run();
+        } finally {
+            if (workingDirectory != null) {
+                try {
+                    FileUtils.deleteDirectory(workingDirectory);
+                } catch (IOException e) {
+                    getLog().warn("Failed to delete JTB working directory: " + workingDirectory, e);
+                }
+            }
+        }
 
         if (exitcode == 0 && this.generateObjectDepthFirst != null && this.generateObjectDepthFirst) {
             generateObjectDepthFirstVisitor();
@@ -398,12 +439,58 @@ class JTB extends ToolFacade {
         return exitcode;
     }
 
+    /**
+     * Creates a private working directory for a forked JTB process. The directory is created next to the output file
+     * if possible, i.e. below the build directory of the project, and in the temporary directory otherwise.
+     *
+     * @return The absolute path to the new working directory, never <code>null</code>.
+     * @throws IOException If the directory could not be created.
+     */
+    private File createWorkingDirectory() throws IOException {
+        if (this.outputDirectory != null && this.outputDirectory.isDirectory()) {
+            return Files.createTempDirectory(this.outputDirectory.toPath(), "jtb-")
+                    .toFile();
+        }
+        return Files.createTempDirectory("jtb-").toFile();
+    }
+
     /**
      * Assembles the command line arguments for the invocation of JTB according to the configuration.
      *
      * @return A string array that represents the command line arguments to use for JTB.
      */
     private String[] generateArguments() {
+        List<String> argsList = generateOptionArguments();
+
+        File outputFile = getOutputFile();
+        if (outputFile != null) {
+            argsList.add("-o");
+            argsList.add(outputFile.getAbsolutePath());
+        }
+
+        if (this.inputFile != null) {
+            argsList.add(this.inputFile.getAbsolutePath());
+        }
+
+        return argsList.toArray(new String[0]);
+    }
+
+    /**
+     * Gets the command line arguments for the options of JTB, i.e. all arguments except for the input file and the
+     * output file. These arguments determine the generated code for a given grammar file.
+     *
+     * @return A string array that represents the option arguments to use for JTB, never <code>null</code>.
+     */
+    public String[] getOptionArguments() {
+        return generateOptionArguments().toArray(new String[0]);
+    }
+
+    /**
+     * Assembles the command line arguments for the options of JTB according to the configuration.
+     *
+     * @return The list of option arguments, never <code>null</code>.
+     */
+    private List<String> generateOptionArguments() {
         List<String> argsList = new ArrayList<>();
 
         argsList.add("-np");
@@ -445,17 +532,7 @@ class JTB extends ToolFacade {
             argsList.add("-printer");
         }
 
-        File outputFile = getOutputFile();
-        if (outputFile != null) {
-            argsList.add("-o");
-            argsList.add(outputFile.getAbsolutePath());
-        }
-
-        if (this.inputFile != null) {
-            argsList.add(this.inputFile.getAbsolutePath());
-        }
-
-        return argsList.toArray(new String[0]);
+        return argsList;
     }
 
     /**
@@ -525,18 +602,35 @@ class JTB extends ToolFacade {
      * working directory represents the parent package of the configured node/visitor packages which does not meet our
      * needs.
      *
+     * @param workingDirectory The private working directory in which JTB was run, must not be <code>null</code>.
      * @throws IOException If the move failed.
+     * @throws IllegalStateException If JTB was run in the working directory of the current JVM.
      */
-    private void moveJavaFiles() throws IOException {
-        File nodeSrcDir = new File(getLastPackageName(getEffectiveNodePackageName())).getAbsoluteFile();
+    private void moveJavaFiles(File workingDirectory) throws IOException {
+        if (workingDirectory == null) {
+            // the files of other builds sharing the working directory could be moved as well
+            throw new IllegalStateException("JTB must be run in a private working directory");
+        }
+        File nodeSrcDir = resolve(workingDirectory, getLastPackageName(getEffectiveNodePackageName()));
         File nodeDstDir = getEffectiveNodeDirectory();
         moveDirectory(nodeSrcDir, nodeDstDir);
 
-        File visitorSrcDir = new File(getLastPackageName(getEffectiveVisitorPackageName())).getAbsoluteFile();
+        File visitorSrcDir = resolve(workingDirectory, getLastPackageName(getEffectiveVisitorPackageName()));
         File visitorDstDir = getEffectiveVisitorDirectory();
         moveDirectory(visitorSrcDir, visitorDstDir);
     }
 
+    /**
+     * Resolves a relative path against the working directory of JTB.
+     *
+     * @param workingDirectory The working directory in which JTB was run, must not be <code>null</code>.
+     * @param path The relative path to resolve, must not be <code>null</code>.
+     * @return The absolute path, never <code>null</code>.
+     */
+    private static File resolve(File workingDirectory, String path) {
+        return new File(workingDirectory, path).getAbsoluteFile();
+    }
+
     /**
      * <p>Moves all Java files generated by JTB from the specified source directory to the given target directory. Existing
      * files in the target directory will be overwritten. Note that this move assumes a flat source directory, i.e.
@@ -590,44 +684,18 @@ class JTB extends ToolFacade {
     }
 
     /**
-     * Consume and log command line output from the JJDoc process.
+     * {@inheritDoc} JTB does not use the error and warning prefixes, its informational output is logged at the debug
+     * level.
      */
-    class MojoLogStreamConsumer implements StreamConsumer {
-
-        /**
-         * The line prefix used by JTB to report infos.
-         */
-        private static final String INFO_PREFIX = "JTB: ";
-
-        /**
-         * Determines if the stream consumer is being used for <code>System.out</code> or <code>System.err</code>.
-         */
-        private final boolean err;
-
-        /**
-         * Single param constructor.
-         *
-         * @param error If set to <code>true</code>, all consumed lines will be logged at the error level.
-         */
-        public MojoLogStreamConsumer(boolean error) {
-            this.err = error;
-        }
-
-        /**
-         * Consume a line of text.
-         *
-         * @param line The line to consume.
-         */
-        public void consumeLine(String line) {
-            if (line.startsWith("JTB version")) {
-                getLog().debug(line);
-            } else if (line.startsWith(INFO_PREFIX)) {
-                getLog().debug(line.substring(INFO_PREFIX.length()));
-            } else if (this.err && line.length() > 0) {
-                getLog().error(line);
-            } else {
-                getLog().debug(line);
-            }
+    protected void logOutput(String line, boolean error) {
+        if (line.startsWith("JTB version")) {
+            getLog().debug(line);
+        } else if (line.startsWith(INFO_PREFIX)) {
+            getLog().debug(line.substring(INFO_PREFIX.length()));
+        } else if (error && line.length() > 0) {
+            getLog().error(line);
+        } else {
+            getLog().debug(line);
         }
     }
 }
@@ -20,6 +20,9 @@ package org.codehaus.mojo.javacc;
  */
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -196,6 +199,71 @@ public class JTBJavaCCMojo extends AbstractJavaCCMojo {
     @Parameter(property = "javacc.lastModGranularityMs", defaultValue = "0")
     private int staleMillis;
 
+    /**
+     * A flag whether the JVMs forked to run JTB should be kept alive and reused for the subsequent grammar files. At
+     * most as many JVMs as grammars are processed concurrently are kept, each one running in its own working directory
+     * below the build directory. Set to <code>false</code> to fork a new JVM for each grammar file.
+     *
+     * @since 3.3
+     */
+    @Parameter(property = "javacc.reuseForks", defaultValue = "true")
+    private boolean reuseForks = true;
+
+    /**
+     * Additional options for the JVMs forked to run JTB, e.g. <code>-Xmx256m</code>. The options are used for the
+     * reused JVMs as well as for a JVM forked for a single grammar file.
+     *
+     * @since 3.3
+     */
+    @Parameter
+    private String[] jvmArgs;
+
+    /**
+     * The pool of reusable JVMs used to run JTB during the execution of this mojo, may be <code>null</code> if it has not
+     * been needed yet.
+     */
+    private ForkedJvmPool forkedJvmPool;
+
+    /**
+     * The directory holding the working directories of the reusable JVMs, may be <code>null</code>.
+     */
+    private File forkedJvmDirectory;
+
+    /**
+     * {@inheritDoc}
+     */
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        try {
+            super.execute();
+        } finally {
+            synchronized (this) {
+                if (this.forkedJvmPool != null) {
+                    this.forkedJvmPool.close();
+                    this.forkedJvmPool = null;
+                    deleteTempDirectory(this.forkedJvmDirectory);
+                    this.forkedJvmDirectory = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the pool of reusable JVMs to run JTB. The pool and the directory for its JVMs are created when the first
+     * grammar file is processed, so an execution where all grammars are up to date does not set them up.
+     *
+     * @return The pool of reusable JVMs or <code>null</code> if a new JVM should be forked for each grammar file.
+     */
+    private synchronized ForkedJvmPool getForkedJvmPool() {
+        if (!this.reuseForks) {
+            return null;
+        }
+        if (this.forkedJvmPool == null) {
+            this.forkedJvmDirectory = getTempDirectory();
+            this.forkedJvmPool = new ForkedJvmPool(getParallelism(), this.forkedJvmDirectory);
+        }
+        return this.forkedJvmPool;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -280,6 +348,7 @@ public class JTBJavaCCMojo extends AbstractJavaCCMojo {
         jtb.setVisitorDirectory(visitorDirectory);
         jtb.setNodePackageName(nodePackage);
         jtb.setVisitorPackageName(visitorPackage);
+        jtb.setForkedJvmPool(getForkedJvmPool());
         jtb.run();
 
         // generate parser files
@@ -287,15 +356,16 @@ public class JTBJavaCCMojo extends AbstractJavaCCMojo {
         javacc.setInputFile(jtb.getOutputFile());
         javacc.setOutputDirectory(parserDirectory);
         javacc.run();
+        generateCharStream(grammarInfo, parserDirectory);
 
-        // copy tree node files from JTB
-        copyGrammarOutput(getInterimDirectory(), nodePackage, nodeDirectory, "!Node*");
+        // move tree node files from JTB
+        moveGrammarOutput(getInterimDirectory(), nodePackage, nodeDirectory, "!Node*");
 
-        // copy visitor files from JTB
-        copyGrammarOutput(getInterimDirectory(), visitorPackage, visitorDirectory, "");
+        // move visitor files from JTB
+        moveGrammarOutput(getInterimDirectory(), visitorPackage, visitorDirectory, "");
 
-        // copy parser files from JavaCC
-        copyGrammarOutput(
+        // move parser files from JavaCC
+        moveGrammarOutput(
                 getOutputDirectory(),
                 grammarInfo.getParserPackage(),
                 parserDirectory,
@@ -310,6 +380,23 @@ public class JTBJavaCCMojo extends AbstractJavaCCMojo {
         deleteTempDirectory(tempDirectory);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected String[] getToolArguments(GrammarInfo grammarInfo) {
+        JTB jtb = newJTB();
+        jtb.setNodePackageName(grammarInfo.resolvePackageName(getNodePackageName()));
+        jtb.setVisitorPackageName(grammarInfo.resolvePackageName(getVisitorPackageName()));
+
+        List<String> arguments = new ArrayList<>();
+        arguments.add("jtb");
+        arguments.addAll(Arrays.asList(jtb.getOptionArguments()));
+        arguments.add("generateObjectDepthFirst=" + this.generateObjectDepthFirst);
+        arguments.add("javacc");
+        arguments.addAll(Arrays.asList(super.getToolArguments(grammarInfo)));
+        return arguments.toArray(new String[0]);
+    }
+
     /**
      * Gets the effective package name for the AST node files.
      *
@@ -359,6 +446,8 @@ public class JTBJavaCCMojo extends AbstractJavaCCMojo {
         jtb.setSpecialTokens(this.specialTokens);
         jtb.setSupressErrorChecking(this.supressErrorChecking);
         jtb.setGenerateObjectDepthFirst(this.generateObjectDepthFirst);
+        jtb.setJvmArguments(this.jvmArgs);
+        jtb.setMetrics(getGrammarMetrics());
         return jtb;
     }
 }
@@ -35,6 +35,12 @@ import org.codehaus.plexus.util.StringUtils;
  */
 class JavaCC extends ToolFacade {
 
+    /**
+     * The lock that guards the static state of the JavaCC classes loaded along with this plugin. JavaCC and JJTree share
+     * this state so in-process invocations of both tools must not overlap unless they use isolated class loaders.
+     */
+    static final Object STATIC_STATE_LOCK = new Object();
+
     /**
      * The input grammar.
      */
@@ -445,7 +451,18 @@ class JavaCC extends ToolFacade {
             this.outputDirectory.mkdirs();
         }
 
-        return org.javacc.parser.Main.mainProgram(args);
+        if (getClassLoaderPool() != null) {
+            // grammars are processed concurrently, capture the console output such that it ends up in the log of the
+            // grammar, in order
+            return ToolSandbox.run(
+                    () -> (Integer) getClassLoaderPool().invoke("org.javacc.parser.Main", "mainProgram", args),
+                    new MojoLogStreamConsumer(false),
+                    new MojoLogStreamConsumer(true));
+        }
+
+        synchronized (STATIC_STATE_LOCK) {
+            return org.javacc.parser.Main.mainProgram(args);
+        }
     }
 
     /**
@@ -456,6 +473,35 @@ class JavaCC extends ToolFacade {
      * @return A string array that represents the command line arguments to use for JavaCC.
      */
     private String[] generateArguments() {
+        List<String> argsList = generateOptionArguments();
+
+        if (this.outputDirectory != null) {
+            argsList.add("-OUTPUT_DIRECTORY=" + this.outputDirectory.getAbsolutePath());
+        }
+
+        if (this.inputFile != null) {
+            argsList.add(this.inputFile.getAbsolutePath());
+        }
+
+        return argsList.toArray(new String[0]);
+    }
+
+    /**
+     * Gets the command line arguments for the options of JavaCC, i.e. all arguments except for the input file and the
+     * output directory. These arguments determine the generated code for a given grammar file.
+     *
+     * @return A string array that represents the option arguments to use for JavaCC, never <code>null</code>.
+     */
+    public String[] getOptionArguments() {
+        return generateOptionArguments().toArray(new String[0]);
+    }
+
+    /**
+     * Assembles the command line arguments for the options of JavaCC according to the configuration.
+     *
+     * @return The list of option arguments, never <code>null</code>.
+     */
+    private List<String> generateOptionArguments() {
         List<String> argsList = new ArrayList<>();
 
         if (StringUtils.isNotEmpty(this.grammarEncoding)) {
@@ -562,15 +608,7 @@ class JavaCC extends ToolFacade {
             argsList.add("-SUPPORT_CLASS_VISIBILITY_PUBLIC=" + this.supportClassVisibilityPublic);
         }
 
-        if (this.outputDirectory != null) {
-            argsList.add("-OUTPUT_DIRECTORY=" + this.outputDirectory.getAbsolutePath());
-        }
-
-        if (this.inputFile != null) {
-            argsList.add(this.inputFile.getAbsolutePath());
-        }
-
-        return argsList.toArray(new String[0]);
+        return argsList;
     }
 
     /**
@@ -159,9 +159,10 @@ public class JavaCCMojo extends AbstractJavaCCMojo {
         javacc.setInputFile(jjFile);
         javacc.setOutputDirectory(parserDirectory);
         javacc.run();
+        generateCharStream(grammarInfo, parserDirectory);
 
-        // copy parser files from JavaCC
-        copyGrammarOutput(
+        // move parser files from JavaCC
+        moveGrammarOutput(
                 getOutputDirectory(),
                 grammarInfo.getParserPackage(),
                 parserDirectory,
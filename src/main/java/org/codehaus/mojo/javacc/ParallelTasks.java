@@ -0,0 +1,118 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Runs the tasks of a mojo, e.g. one per grammar file, on a fixed number of threads. The log output of each task is
+ * buffered and flushed in the order of the tasks, such that the build log does not depend on the scheduling of the
+ * threads. Every task runs to completion even if other tasks fail.
+ *
+ * @since 3.3
+ */
+class ParallelTasks {
+
+    /**
+     * A task whose log output is buffered while it runs concurrently with other tasks.
+     */
+    interface Task {
+
+        /**
+         * Runs the task on the calling thread.
+         *
+         * @param log The logger for the output of the task, must not be <code>null</code>.
+         * @throws Exception If the task failed.
+         */
+        void run(Log log) throws Exception;
+    }
+
+    /**
+     * Prevents instantiation.
+     */
+    private ParallelTasks() {
+        // hide
+    }
+
+    /**
+     * Gets the effective number of threads for the specified value of a <code>parallelism</code> parameter.
+     *
+     * @param parallelism The configured number of threads, <code>0</code> or less to use the number of available
+     *            processors.
+     * @return The number of threads to use, always positive.
+     */
+    public static int getThreadCount(int parallelism) {
+        if (parallelism < 1) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return parallelism;
+    }
+
+    /**
+     * Runs the specified tasks and waits for all of them. Once a task and all tasks before it have finished, its
+     * buffered output is flushed to the specified logger, followed by an error message if the task failed.
+     *
+     * @param tasks The tasks to run, must not be <code>null</code>. The string representation of a task names it in
+     *            error messages.
+     * @param threads The number of threads to use, must be positive.
+     * @param log The logger to flush the output of the tasks to, must not be <code>null</code>.
+     * @param failureMessage The text logged in front of the name of a failed task, must not be <code>null</code>.
+     * @return The failures of the tasks, indexed like the tasks, with <code>null</code> elements for successful tasks.
+     * @throws InterruptedException If the calling thread was interrupted while waiting for the tasks.
+     */
+    public static Throwable[] run(List<? extends Task> tasks, int threads, Log log, String failureMessage)
+            throws InterruptedException {
+        Throwable[] failures = new Throwable[tasks.size()];
+        List<BufferedLog> logs = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Task task : tasks) {
+                BufferedLog taskLog = new BufferedLog(log);
+                logs.add(taskLog);
+                futures.add(executor.submit(() -> {
+                    task.run(taskLog);
+                    return null;
+                }));
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    failures[i] = e.getCause();
+                }
+                logs.get(i).flush();
+                if (failures[i] != null) {
+                    log.error(failureMessage + " " + tasks.get(i) + ": " + failures[i].getMessage());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,718 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Measures the throughput and the allocations of a generated parser on a corpus of inputs, in the manner of a JMH
+ * benchmark in throughput mode: after some warmup iterations, the corpus is parsed round-robin for a fixed time per
+ * measurement iteration. Unlike JMH, the benchmark runs in the current JVM, so the parser should be loaded by a class
+ * loader of its own. Allocations are measured for the current thread if the JVM supports it.
+ */
+class ParserBenchmark {
+
+    /**
+     * The pattern used to find the start production in the source of a parser generated by JavaCC, i.e. the first
+     * public production without parameters.
+     */
+    private static final Pattern PRODUCTION = Pattern.compile(
+            "^\\s*(?:static\\s+)?final\\s+public\\s+[\\w.$<>\\[\\], ]+?\\s+(\\w+)\\s*\\(\\s*\\)"
+                    + "\\s*throws\\s+ParseException",
+            Pattern.MULTILINE);
+
+    /**
+     * The bean used to measure the allocations of the current thread, may be <code>null</code> if unsupported.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = getThreadBean();
+
+    /**
+     * The fully qualified name of the parser class.
+     */
+    private final String parserName;
+
+    /**
+     * The name of the production invoked to parse an input.
+     */
+    private final String productionName;
+
+    /**
+     * The constructor of the parser taking a <code>java.io.Reader</code> or, if the parser was generated with the
+     * option <code>USER_CHAR_STREAM</code>, a <code>CharStream</code>.
+     */
+    private final Constructor<?> constructor;
+
+    /**
+     * The static <code>ReInit()</code> method of a static parser taking the same input as the constructor or
+     * <code>null</code> if the parser is not static.
+     */
+    private final Method reInit;
+
+    /**
+     * The constructor of the class <code>NioCharStream</code> taking a <code>CharSequence</code> if the parser reads
+     * from a <code>CharStream</code>, <code>null</code> if the parser reads from a <code>java.io.Reader</code>.
+     */
+    private final Constructor<?> charStreamConstructor;
+
+    /**
+     * The production invoked to parse an input.
+     */
+    private final Method production;
+
+    /**
+     * The <code>getNextToken()</code> method of the parser.
+     */
+    private final Method nextToken;
+
+    /**
+     * The inputs of the corpus.
+     */
+    private final List<Input> inputs = new ArrayList<>();
+
+    /**
+     * A flag whether a static parser has already been constructed, which JavaCC allows only once.
+     */
+    private boolean initialized;
+
+    /**
+     * The index of the input to parse next.
+     */
+    private int next;
+
+    /**
+     * The last result returned by the production, retained to keep the JIT from eliminating the parsing.
+     */
+    private Object sink;
+
+    /**
+     * Creates a new benchmark for the specified parser.
+     *
+     * @param parserClass The parser class generated by JavaCC, must not be <code>null</code>.
+     * @param productionName The name of the production to invoke, must not be <code>null</code>. The production
+     *            must not take parameters.
+     * @throws NoSuchMethodException If the parser has no constructor taking a <code>java.io.Reader</code> and no
+     *             generated <code>NioCharStream</code> to read from instead, or does not declare the production.
+     */
+    public ParserBenchmark(Class<?> parserClass, String productionName) throws NoSuchMethodException {
+        this.parserName = parserClass.getName();
+        this.productionName = productionName;
+        Class<?> inputType = Reader.class;
+        Constructor<?> streamConstructor = null;
+        if (!hasConstructor(parserClass, Reader.class)) {
+            // a parser generated with USER_CHAR_STREAM only reads from a CharStream like the generated NioCharStream
+            String prefix =
+                    parserClass.getName().substring(0, parserClass.getName().lastIndexOf('.') + 1);
+            try {
+                inputType = parserClass.getClassLoader().loadClass(prefix + "CharStream");
+                streamConstructor = parserClass
+                        .getClassLoader()
+                        .loadClass(prefix + "NioCharStream")
+                        .getConstructor(CharSequence.class);
+            } catch (ClassNotFoundException e) {
+                throw new NoSuchMethodException(
+                        parserClass.getName() + " neither reads from a java.io.Reader nor from " + e.getMessage());
+            }
+        }
+        this.charStreamConstructor = streamConstructor;
+        this.constructor = parserClass.getConstructor(inputType);
+        Method method = parserClass.getMethod("ReInit", inputType);
+        this.reInit = Modifier.isStatic(method.getModifiers()) ? method : null;
+        this.production = parserClass.getMethod(productionName);
+        this.nextToken = parserClass.getMethod("getNextToken");
+    }
+
+    /**
+     * Determines whether the specified class has a public constructor with the specified parameter.
+     *
+     * @param type The class to inspect, must not be <code>null</code>.
+     * @param parameterType The type of the parameter, must not be <code>null</code>.
+     * @return <code>true</code> if the constructor exists, <code>false</code> otherwise.
+     */
+    private static boolean hasConstructor(Class<?> type, Class<?> parameterType) {
+        try {
+            type.getConstructor(parameterType);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the bean used to measure the allocations of threads.
+     *
+     * @return The bean or <code>null</code> if the JVM does not support measuring allocations.
+     */
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        try {
+            Object bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+                if (threads.isThreadAllocatedMemorySupported()) {
+                    if (!threads.isThreadAllocatedMemoryEnabled()) {
+                        threads.setThreadAllocatedMemoryEnabled(true);
+                    }
+                    return threads;
+                }
+            }
+        } catch (RuntimeException | LinkageError e) {
+            // allocation measurement is optional
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of bytes allocated by the current thread so far.
+     *
+     * @return The number of allocated bytes or <code>-1</code> if unsupported.
+     */
+    static long currentAllocatedBytes() {
+        return (THREADS != null)
+                ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId())
+                : -1;
+    }
+
+    /**
+     * Finds the start production of a parser generated by JavaCC, i.e. the first public production that does not take
+     * parameters. JavaCC emits the productions in the order of the grammar, so this is usually the first production of
+     * the grammar.
+     *
+     * @param parserFile The source file of the parser, must not be <code>null</code>.
+     * @param encoding The encoding of the source file, may be <code>null</code> to use the platform default.
+     * @return The name of the start production or <code>null</code> if none was found.
+     * @throws IOException If the source file could not be read.
+     */
+    public static String findStartProduction(File parserFile, String encoding) throws IOException {
+        Matcher matcher = PRODUCTION.matcher(FileUtils.fileRead(parserFile, encoding));
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Compiles the specified source files of generated parsers with the compiler of the current JVM.
+     *
+     * @param sourceFiles The source files to compile, must not be <code>null</code>.
+     * @param sourcePath The source roots searched for further types needed by the parsers, must not be
+     *            <code>null</code>.
+     * @param classPath The class path elements needed by the parsers, must not be <code>null</code>.
+     * @param outputDirectory The directory to write the class files to, must not be <code>null</code>.
+     * @param encoding The encoding of the source files, may be <code>null</code> to use the platform default.
+     * @throws IOException If the compiler is not available or the compilation failed.
+     */
+    public static void compile(
+            List<File> sourceFiles,
+            List<File> sourcePath,
+            List<String> classPath,
+            File outputDirectory,
+            String encoding)
+            throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException("No Java compiler available, the build must be run with a JDK instead of a JRE");
+        }
+
+        List<String> options = new ArrayList<>();
+        options.addAll(Arrays.asList("-d", outputDirectory.getAbsolutePath()));
+        options.addAll(Arrays.asList("-sourcepath", join(sourcePath)));
+        options.addAll(Arrays.asList("-classpath", String.join(File.pathSeparator, classPath)));
+        options.addAll(Arrays.asList("-implicit:class", "-proc:none", "-nowarn"));
+        if (encoding != null) {
+            options.addAll(Arrays.asList("-encoding", encoding));
+        }
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        boolean success;
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(sourceFiles);
+            FileUtils.forceMkdir(outputDirectory);
+            success = compiler.getTask(null, fileManager, diagnostics, options, null, units)
+                    .call();
+        }
+        if (!success) {
+            StringBuilder message = new StringBuilder("Failed to compile parsers:");
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    message.append("\n  ").append(diagnostic);
+                }
+            }
+            throw new IOException(message.toString());
+        }
+    }
+
+    /**
+     * Joins the specified files to a path.
+     *
+     * @param files The files to join, must not be <code>null</code>.
+     * @return The path, never <code>null</code>.
+     */
+    private static String join(List<File> files) {
+        StringBuilder path = new StringBuilder();
+        for (File file : files) {
+            if (path.length() > 0) {
+                path.append(File.pathSeparatorChar);
+            }
+            path.append(file.getAbsolutePath());
+        }
+        return path.toString();
+    }
+
+    /**
+     * Gets the fully qualified name of the parser class.
+     *
+     * @return The name of the parser class, never <code>null</code>.
+     */
+    public String getParserName() {
+        return this.parserName;
+    }
+
+    /**
+     * Gets the name of the production invoked to parse an input.
+     *
+     * @return The name of the production, never <code>null</code>.
+     */
+    public String getProductionName() {
+        return this.productionName;
+    }
+
+    /**
+     * Adds an input to the corpus. The input is parsed and tokenized once to check that the parser accepts it and to
+     * count its tokens.
+     *
+     * @param name The name of the input used in error messages, must not be <code>null</code>.
+     * @param text The input, must not be <code>null</code>.
+     * @param bytes The size of the input in bytes, as stored in its file.
+     * @throws IOException If the parser rejected the input.
+     */
+    public void addInput(String name, String text, long bytes) throws IOException {
+        int tokens = 0;
+        try {
+            parse(text);
+            Object parser = newParser(text);
+            Field kind = null;
+            while (true) {
+                Object token = this.nextToken.invoke(parser);
+                if (kind == null) {
+                    kind = token.getClass().getField("kind");
+                }
+                if (kind.getInt(token) == 0) {
+                    break;
+                }
+                tokens++;
+            }
+        } catch (InvocationTargetException e) {
+            throw new IOException("Failed to parse " + name + ": " + e.getCause(), e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Failed to parse " + name + ": " + e, e);
+        }
+        this.inputs.add(new Input(text, bytes, tokens));
+    }
+
+    /**
+     * Gets the number of inputs in the corpus.
+     *
+     * @return The number of inputs.
+     */
+    public int getInputCount() {
+        return this.inputs.size();
+    }
+
+    /**
+     * Runs the benchmark. The corpus must contain at least one input.
+     *
+     * @param warmupIterations The number of iterations to run before measuring.
+     * @param measurementIterations The number of measured iterations, must be positive.
+     * @param iterationMillis The duration of an iteration in milliseconds.
+     * @return The result of the measured iterations, never <code>null</code>.
+     * @throws IOException If the parser failed on an input.
+     */
+    public Result run(int warmupIterations, int measurementIterations, long iterationMillis) throws IOException {
+        if (this.inputs.isEmpty()) {
+            throw new IllegalStateException("no inputs");
+        }
+        long duration = iterationMillis * 1000000L;
+        try {
+            for (int i = 0; i < warmupIterations; i++) {
+                iterate(duration, null);
+            }
+            Result result = new Result(this.parserName, this.productionName);
+            for (int i = 0; i < measurementIterations; i++) {
+                iterate(duration, result);
+            }
+            return result;
+        } catch (InvocationTargetException e) {
+            throw new IOException("Failed to parse input: " + e.getCause(), e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Failed to parse input: " + e, e);
+        }
+    }
+
+    /**
+     * Parses the corpus round-robin for the specified time.
+     *
+     * @param duration The duration of the iteration in nanoseconds.
+     * @param result The result to record the iteration in, may be <code>null</code> for a warmup iteration.
+     * @throws ReflectiveOperationException If the parser failed.
+     */
+    private void iterate(long duration, Result result) throws ReflectiveOperationException {
+        long parses = 0;
+        long tokens = 0;
+        long bytes = 0;
+        long startAllocated = currentAllocatedBytes();
+        long startTime = System.nanoTime();
+        long elapsed;
+        do {
+            Input input = this.inputs.get(this.next);
+            this.next = (this.next + 1) % this.inputs.size();
+            parse(input.text);
+            parses++;
+            tokens += input.tokens;
+            bytes += input.bytes;
+            elapsed = System.nanoTime() - startTime;
+        } while (elapsed < duration);
+        long allocated = (startAllocated >= 0) ? currentAllocatedBytes() - startAllocated : -1;
+        if (result != null) {
+            result.addIteration(parses, tokens, bytes, elapsed, allocated);
+        }
+    }
+
+    /**
+     * Parses the specified input with a new or re-initialized parser.
+     *
+     * @param text The input, must not be <code>null</code>.
+     * @throws ReflectiveOperationException If the parser failed.
+     */
+    private void parse(String text) throws ReflectiveOperationException {
+        this.sink = this.production.invoke(newParser(text));
+    }
+
+    /**
+     * Creates a parser for the specified input. A static parser is constructed once and re-initialized afterwards.
+     *
+     * @param text The input, must not be <code>null</code>.
+     * @return The parser or <code>null</code> if the parser is static.
+     * @throws ReflectiveOperationException If the parser could not be created.
+     */
+    private Object newParser(String text) throws ReflectiveOperationException {
+        Object input = (this.charStreamConstructor != null)
+                ? this.charStreamConstructor.newInstance(text)
+                : new StringReader(text);
+        if (this.reInit == null) {
+            return this.constructor.newInstance(input);
+        } else if (!this.initialized) {
+            this.constructor.newInstance(input);
+            this.initialized = true;
+        } else {
+            this.reInit.invoke(null, input);
+        }
+        return null;
+    }
+
+    /**
+     * Gets a string representation of this benchmark.
+     *
+     * @return A string representation of this benchmark.
+     */
+    public String toString() {
+        int count = this.inputs.size();
+        return this.parserName + "." + this.productionName + "() (" + count + " input" + (count != 1 ? "s" : "") + ")";
+    }
+
+    /**
+     * An input of the corpus.
+     */
+    private static class Input {
+
+        /**
+         * The input.
+         */
+        final String text;
+
+        /**
+         * The size of the input in bytes.
+         */
+        final long bytes;
+
+        /**
+         * The number of tokens in the input, excluding the end of file.
+         */
+        final int tokens;
+
+        /**
+         * Creates a new input.
+         *
+         * @param text The input, must not be <code>null</code>.
+         * @param bytes The size of the input in bytes.
+         * @param tokens The number of tokens in the input.
+         */
+        Input(String text, long bytes, int tokens) {
+            this.text = text;
+            this.bytes = bytes;
+            this.tokens = tokens;
+        }
+    }
+
+    /**
+     * The result of the measured iterations of a benchmark.
+     */
+    static class Result {
+
+        /**
+         * The fully qualified name of the parser class.
+         */
+        private final String parserName;
+
+        /**
+         * The name of the production invoked to parse an input.
+         */
+        private final String productionName;
+
+        /**
+         * The parses per second of the measured iterations.
+         */
+        private final List<Double> rates = new ArrayList<>();
+
+        /**
+         * The total number of parses.
+         */
+        private long parses;
+
+        /**
+         * The total number of parsed tokens.
+         */
+        private long tokens;
+
+        /**
+         * The total number of parsed bytes.
+         */
+        private long bytes;
+
+        /**
+         * The total duration in nanoseconds.
+         */
+        private long nanos;
+
+        /**
+         * The total number of allocated bytes or <code>-1</code> if unknown.
+         */
+        private long allocated;
+
+        /**
+         * Creates a new result.
+         *
+         * @param parserName The fully qualified name of the parser class, must not be <code>null</code>.
+         * @param productionName The name of the production, must not be <code>null</code>.
+         */
+        Result(String parserName, String productionName) {
+            this.parserName = parserName;
+            this.productionName = productionName;
+        }
+
+        /**
+         * Records a measured iteration.
+         *
+         * @param parses The number of parses.
+         * @param tokens The number of parsed tokens.
+         * @param bytes The number of parsed bytes.
+         * @param nanos The duration in nanoseconds.
+         * @param allocated The number of allocated bytes or <code>-1</code> if unknown.
+         */
+        void addIteration(long parses, long tokens, long bytes, long nanos, long allocated) {
+            this.rates.add(parses * 1e9 / nanos);
+            this.parses += parses;
+            this.tokens += tokens;
+            this.bytes += bytes;
+            this.nanos += nanos;
+            this.allocated = (allocated >= 0 && this.allocated >= 0) ? this.allocated + allocated : -1;
+        }
+
+        /**
+         * Gets the fully qualified name of the parser class.
+         *
+         * @return The name of the parser class, never <code>null</code>.
+         */
+        public String getParserName() {
+            return this.parserName;
+        }
+
+        /**
+         * Gets the name of the production invoked to parse an input.
+         *
+         * @return The name of the production, never <code>null</code>.
+         */
+        public String getProductionName() {
+            return this.productionName;
+        }
+
+        /**
+         * Gets the mean number of parses per second over the measured iterations.
+         *
+         * @return The parses per second.
+         */
+        public double getParsesPerSecond() {
+            double sum = 0;
+            for (double rate : this.rates) {
+                sum += rate;
+            }
+            return this.rates.isEmpty() ? 0 : sum / this.rates.size();
+        }
+
+        /**
+         * Gets the standard deviation of the parses per second over the measured iterations.
+         *
+         * @return The standard deviation of the parses per second.
+         */
+        public double getParsesPerSecondError() {
+            if (this.rates.size() < 2) {
+                return 0;
+            }
+            double mean = getParsesPerSecond();
+            double sum = 0;
+            for (double rate : this.rates) {
+                sum += (rate - mean) * (rate - mean);
+            }
+            return Math.sqrt(sum / (this.rates.size() - 1));
+        }
+
+        /**
+         * Gets the number of tokens parsed per second.
+         *
+         * @return The tokens per second.
+         */
+        public double getTokensPerSecond() {
+            return (this.nanos > 0) ? this.tokens * 1e9 / this.nanos : 0;
+        }
+
+        /**
+         * Gets the number of bytes parsed per second.
+         *
+         * @return The input bytes per second.
+         */
+        public double getBytesPerSecond() {
+            return (this.nanos > 0) ? this.bytes * 1e9 / this.nanos : 0;
+        }
+
+        /**
+         * Gets the number of bytes allocated per parse.
+         *
+         * @return The allocated bytes per parse or <code>-1</code> if unknown.
+         */
+        public double getAllocatedBytesPerParse() {
+            return (this.allocated >= 0 && this.parses > 0) ? (double) this.allocated / this.parses : -1;
+        }
+
+        /**
+         * Gets the number of bytes allocated per parsed input byte.
+         *
+         * @return The allocated bytes per input byte or <code>-1</code> if unknown.
+         */
+        public double getAllocatedBytesPerInputByte() {
+            return (this.allocated >= 0 && this.bytes > 0) ? (double) this.allocated / this.bytes : -1;
+        }
+
+        /**
+         * Appends a JSON object describing this result to the specified buffer.
+         *
+         * @param json The buffer to append to, must not be <code>null</code>.
+         * @param indent The indentation of the object, must not be <code>null</code>.
+         */
+        public void appendJson(StringBuilder json, String indent) {
+            json.append(indent).append("{\n");
+            json.append(indent)
+                    .append("  \"parser\": ")
+                    .append(GrammarMetrics.quote(this.parserName))
+                    .append(",\n");
+            json.append(indent).append("  \"production\": ");
+            json.append(GrammarMetrics.quote(this.productionName)).append(",\n");
+            json.append(indent)
+                    .append("  \"iterations\": ")
+                    .append(this.rates.size())
+                    .append(",\n");
+            json.append(indent)
+                    .append("  \"parsesPerSecond\": ")
+                    .append(format(getParsesPerSecond()))
+                    .append(",\n");
+            json.append(indent).append("  \"parsesPerSecondError\": ");
+            json.append(format(getParsesPerSecondError())).append(",\n");
+            json.append(indent)
+                    .append("  \"tokensPerSecond\": ")
+                    .append(format(getTokensPerSecond()))
+                    .append(",\n");
+            json.append(indent)
+                    .append("  \"bytesPerSecond\": ")
+                    .append(format(getBytesPerSecond()))
+                    .append(",\n");
+            json.append(indent).append("  \"allocatedBytesPerParse\": ");
+            json.append(format(getAllocatedBytesPerParse())).append(",\n");
+            json.append(indent).append("  \"allocatedBytesPerInputByte\": ");
+            json.append(format(getAllocatedBytesPerInputByte())).append('\n');
+            json.append(indent).append('}');
+        }
+
+        /**
+         * Formats a measured value with three decimal places.
+         *
+         * @param value The value to format.
+         * @return The formatted value, never <code>null</code>.
+         */
+        static String format(double value) {
+            return String.format(Locale.ROOT, "%.3f", value);
+        }
+
+        /**
+         * Gets a string representation of this result.
+         *
+         * @return A string representation of this result.
+         */
+        public String toString() {
+            String text = String.format(
+                    Locale.ROOT,
+                    "%.1f +/- %.1f parses/s, %.1f tokens/s",
+                    getParsesPerSecond(),
+                    getParsesPerSecondError(),
+                    getTokensPerSecond());
+            if (this.allocated >= 0) {
+                text += String.format(Locale.ROOT, ", %.0f bytes/parse", getAllocatedBytesPerParse());
+            }
+            return text;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A store for build cache entries that is shared between machines, e.g. to provide the files generated by a CI server
+ * to developer builds. Entries are transferred as compressed archives of the entry directories of a local
+ * {@link BuildCache}.
+ */
+interface RemoteCache {
+
+    /**
+     * Downloads the archive of the entry with the specified key.
+     *
+     * @param key The key of the entry, must not be <code>null</code>.
+     * @param archive The file to save the archive to, must not be <code>null</code>.
+     * @return <code>true</code> if the archive was downloaded, <code>false</code> if the remote cache holds no such
+     *         entry.
+     * @throws IOException If the archive could not be downloaded.
+     */
+    boolean fetch(String key, File archive) throws IOException;
+
+    /**
+     * Uploads the archive of the entry with the specified key.
+     *
+     * @param key The key of the entry, must not be <code>null</code>.
+     * @param archive The archive of the entry, must not be <code>null</code>.
+     * @throws IOException If the archive could not be uploaded.
+     */
+    void store(String key, File archive) throws IOException;
+}
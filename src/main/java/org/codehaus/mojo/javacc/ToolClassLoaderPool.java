@@ -0,0 +1,217 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Manages a bounded set of class loaders that each load a private copy of a tool like JavaCC. Tools that keep their
+ * state in static fields can thereby be invoked concurrently within the same JVM. A class loader is only used by one
+ * invocation at a time and is reused by later invocations, so the tool classes are loaded once per class loader rather
+ * than once per invocation. The tools are expected to reset their static state on entry, which JavaCC and JJTree do.
+ */
+class ToolClassLoaderPool implements Closeable {
+
+    /**
+     * The class path for the isolated class loaders.
+     */
+    private final URL[] classPath;
+
+    /**
+     * The maximum number of class loaders to create.
+     */
+    private final int size;
+
+    /**
+     * The class loaders that are currently not used by any invocation.
+     */
+    private final BlockingQueue<URLClassLoader> idleClassLoaders = new LinkedBlockingQueue<>();
+
+    /**
+     * All class loaders created by this pool, guarded by <code>this</code>.
+     */
+    private final List<URLClassLoader> classLoaders = new ArrayList<>();
+
+    /**
+     * Creates a new pool.
+     *
+     * @param size The maximum number of class loaders to create, i.e. the maximum number of concurrent invocations.
+     * @param types The classes whose class path roots (JAR files or directories) make up the class path of the isolated
+     *            class loaders, must not be <code>null</code>.
+     */
+    public ToolClassLoaderPool(int size, Class<?>... types) {
+        this.size = Math.max(1, size);
+        Set<URL> urls = new LinkedHashSet<>();
+        for (Class<?> type : types) {
+            String resource = type.getName().replace('.', '/') + ".class";
+            File root = UrlUtils.getResourceRoot(type.getClassLoader().getResource(resource), resource);
+            if (root == null) {
+                throw new IllegalArgumentException("Unknown class path root for " + type.getName());
+            }
+            try {
+                urls.add(root.toURI().toURL());
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException("Invalid class path root for " + type.getName() + ": " + root, e);
+            }
+        }
+        this.classPath = urls.toArray(new URL[0]);
+    }
+
+    /**
+     * Invokes the specified method of a tool class, using one of the isolated class loaders. If the method is not
+     * static, it is invoked on a new instance of the class. While the method runs, the isolated class loader is set as
+     * the context class loader of the calling thread.
+     *
+     * @param className The qualified name of the tool class, must not be <code>null</code>.
+     * @param methodName The name of a public method that takes the command line arguments as its sole parameter, must
+     *            not be <code>null</code>.
+     * @param args The command line arguments to pass to the method, must not be <code>null</code>.
+     * @return The return value of the method, may be <code>null</code>.
+     * @throws Exception If the method could not be invoked or failed.
+     */
+    public Object invoke(String className, String methodName, String[] args) throws Exception {
+        URLClassLoader classLoader = acquire();
+        boolean reusable = false;
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+        try {
+            Class<?> type = classLoader.loadClass(className);
+            Method method = type.getMethod(methodName, String[].class);
+            Object target = null;
+            if (!Modifier.isStatic(method.getModifiers())) {
+                target = type.getDeclaredConstructor().newInstance();
+            }
+            Object result = method.invoke(target, (Object) args);
+            reusable = true;
+            return result;
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+            release(classLoader, reusable);
+        }
+    }
+
+    /**
+     * Takes an idle class loader from the pool, creating a new one if the pool has not reached its maximum size yet.
+     *
+     * @return The class loader to use, never <code>null</code>.
+     * @throws InterruptedException If the thread was interrupted while waiting for an idle class loader.
+     */
+    private URLClassLoader acquire() throws InterruptedException {
+        URLClassLoader classLoader = this.idleClassLoaders.poll();
+        if (classLoader == null) {
+            synchronized (this) {
+                if (this.classLoaders.size() < this.size) {
+                    return newClassLoader();
+                }
+            }
+            classLoader = this.idleClassLoaders.take();
+        }
+        return classLoader;
+    }
+
+    /**
+     * Returns the specified class loader to the pool. A class loader whose last invocation failed is replaced with a
+     * fresh one because the static state of the tool might be corrupted.
+     *
+     * @param classLoader The class loader to return, must not be <code>null</code>.
+     * @param reusable <code>true</code> if the class loader can be reused, <code>false</code> to replace it.
+     */
+    private void release(URLClassLoader classLoader, boolean reusable) {
+        URLClassLoader idleClassLoader = classLoader;
+        if (!reusable) {
+            synchronized (this) {
+                this.classLoaders.remove(classLoader);
+                closeQuietly(classLoader);
+                idleClassLoader = newClassLoader();
+            }
+        }
+        this.idleClassLoaders.add(idleClassLoader);
+    }
+
+    /**
+     * Creates a new isolated class loader. Its parent is the parent of the system class loader such that only the
+     * classes of the Java platform are shared with the tool.
+     *
+     * @return The new class loader, never <code>null</code>.
+     */
+    private synchronized URLClassLoader newClassLoader() {
+        URLClassLoader classLoader = new URLClassLoader(
+                this.classPath, ClassLoader.getSystemClassLoader().getParent());
+        this.classLoaders.add(classLoader);
+        return classLoader;
+    }
+
+    /**
+     * Closes all class loaders created by this pool.
+     */
+    public synchronized void close() {
+        for (URLClassLoader classLoader : this.classLoaders) {
+            closeQuietly(classLoader);
+        }
+        this.classLoaders.clear();
+        this.idleClassLoaders.clear();
+    }
+
+    /**
+     * Closes the specified class loader, ignoring any errors.
+     *
+     * @param classLoader The class loader to close, must not be <code>null</code>.
+     */
+    private static void closeQuietly(URLClassLoader classLoader) {
+        try {
+            classLoader.close();
+        } catch (IOException e) {
+            // the class loader is no longer used
+        }
+    }
+
+    /**
+     * Gets a string representation of this pool. This value is for debugging purposes only.
+     *
+     * @return A string representation of this pool.
+     */
+    public String toString() {
+        return "ToolClassLoaderPool[size=" + this.size + ", classPath=" + Arrays.asList(this.classPath) + "]";
+    }
+}
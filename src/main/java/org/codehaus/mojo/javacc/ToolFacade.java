@@ -23,6 +23,7 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.cli.StreamConsumer;
 
 /**
  * Provides a facade for the mojos to invoke JavaCC related tools.
@@ -32,11 +33,36 @@ import org.apache.maven.plugin.logging.SystemStreamLog;
  */
 abstract class ToolFacade {
 
+    /**
+     * The line prefix used by the tools to report errors.
+     */
+    protected static final String ERROR_PREFIX = "Error: ";
+
+    /**
+     * The line prefix used by the tools to report warnings.
+     */
+    protected static final String WARN_PREFIX = "Warning: ";
+
     /**
      * The logger used to output diagnostic messages.
      */
     private Log log;
 
+    /**
+     * The pool of isolated class loaders used to invoke the tool in-process, may be <code>null</code>.
+     */
+    private ToolClassLoaderPool classLoaderPool;
+
+    /**
+     * The pool of reusable JVMs used to run the tool, may be <code>null</code> to fork a new JVM per invocation.
+     */
+    private ForkedJvmPool forkedJvmPool;
+
+    /**
+     * The metrics of the grammar processed by the tool, may be <code>null</code>.
+     */
+    private GrammarMetrics metrics;
+
     /**
      * Sets the logger used to output diagnostic messages.
      *
@@ -58,6 +84,53 @@ abstract class ToolFacade {
         return this.log;
     }
 
+    /**
+     * Sets the pool of isolated class loaders used to invoke the tool in-process. Tools that support this will load
+     * their classes from one of the pooled class loaders rather than from the plugin class loader, allowing concurrent
+     * invocations of tools with static state.
+     *
+     * @param pool The pool of isolated class loaders, may be <code>null</code> to use the plugin class loader.
+     */
+    public void setClassLoaderPool(ToolClassLoaderPool pool) {
+        this.classLoaderPool = pool;
+    }
+
+    /**
+     * Gets the pool of isolated class loaders used to invoke the tool in-process.
+     *
+     * @return The pool of isolated class loaders or <code>null</code> if the plugin class loader should be used.
+     */
+    protected ToolClassLoaderPool getClassLoaderPool() {
+        return this.classLoaderPool;
+    }
+
+    /**
+     * Sets the pool of reusable JVMs used to run tools that need to be forked.
+     *
+     * @param pool The pool of reusable JVMs, may be <code>null</code> to fork a new JVM per invocation.
+     */
+    public void setForkedJvmPool(ForkedJvmPool pool) {
+        this.forkedJvmPool = pool;
+    }
+
+    /**
+     * Gets the pool of reusable JVMs used to run tools that need to be forked.
+     *
+     * @return The pool of reusable JVMs or <code>null</code> if a new JVM should be forked per invocation.
+     */
+    protected ForkedJvmPool getForkedJvmPool() {
+        return this.forkedJvmPool;
+    }
+
+    /**
+     * Sets the metrics to which the time spent running the tool is added.
+     *
+     * @param metrics The metrics of the grammar processed by the tool, may be <code>null</code>.
+     */
+    public void setMetrics(GrammarMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Gets the name of the tool.
      *
@@ -75,7 +148,10 @@ abstract class ToolFacade {
      * @throws MojoFailureException If the tool reported a non-zero exit code.
      */
     public void run() throws MojoExecutionException, MojoFailureException {
-        int exitCode;
+        int exitCode = -1;
+        long startTime = System.nanoTime();
+        long startCpuTime = GrammarMetrics.currentCpuTime();
+        FlightRecorderEvent event = FlightRecorderEvent.begin(FlightRecorderEvent.TOOL_INVOCATION);
         try {
             if (getLog().isDebugEnabled()) {
                 getLog().debug("Running " + getToolName() + ": " + this);
@@ -83,6 +159,16 @@ abstract class ToolFacade {
             exitCode = execute();
         } catch (Exception e) {
             throw new MojoExecutionException("Failed to execute " + getToolName(), e);
+        } finally {
+            if (this.metrics != null) {
+                this.metrics.addPhase(getToolName(), startTime, startCpuTime);
+            }
+            if (event.isActive()) {
+                event.set("tool", getToolName());
+                event.set("grammar", (this.metrics != null) ? this.metrics.getGrammar() : null);
+                event.set("exitCode", exitCode);
+                event.commit();
+            }
         }
         if (exitCode != 0) {
             throw new MojoFailureException(getToolName() + " reported exit code " + exitCode + ": " + this);
@@ -96,4 +182,54 @@ abstract class ToolFacade {
      * @throws Exception If the tool could not be invoked.
      */
     protected abstract int execute() throws Exception;
+
+    /**
+     * Logs a line of output from the tool. Lines prefixed with {@link #ERROR_PREFIX} or {@link #WARN_PREFIX} are
+     * logged at the error or warning level, other non-empty lines from <code>System.err</code> at the error level and
+     * the remaining lines at the info level.
+     *
+     * @param line The line to log, must not be <code>null</code>.
+     * @param error <code>true</code> if the line was written to <code>System.err</code>, <code>false</code> if it was
+     *            written to <code>System.out</code>.
+     */
+    protected void logOutput(String line, boolean error) {
+        if (line.startsWith(ERROR_PREFIX)) {
+            getLog().error(line.substring(ERROR_PREFIX.length()));
+        } else if (line.startsWith(WARN_PREFIX)) {
+            getLog().warn(line.substring(WARN_PREFIX.length()));
+        } else if (error && line.length() > 0) {
+            getLog().error(line);
+        } else {
+            getLog().info(line);
+        }
+    }
+
+    /**
+     * Consume and log the output of the tool.
+     */
+    class MojoLogStreamConsumer implements StreamConsumer {
+
+        /**
+         * Determines if the stream consumer is being used for <code>System.out</code> or <code>System.err</code>.
+         */
+        private final boolean err;
+
+        /**
+         * Single param constructor.
+         *
+         * @param error If set to <code>true</code>, all consumed lines will be logged at the error level.
+         */
+        public MojoLogStreamConsumer(boolean error) {
+            this.err = error;
+        }
+
+        /**
+         * Consume a line of text.
+         *
+         * @param line The line to consume.
+         */
+        public void consumeLine(String line) {
+            logOutput(line, this.err);
+        }
+    }
 }
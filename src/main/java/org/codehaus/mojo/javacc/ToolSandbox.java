@@ -0,0 +1,311 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Runs a tool that was written as a command line application within the current JVM. While the tool runs, whatever it
+ * writes to <code>System.out</code> and <code>System.err</code> from the calling thread is passed line by line to
+ * the given consumers. Output from other threads is passed through to the original streams unchanged, so concurrent
+ * invocations and the build log do not interfere. Calls to <code>System.exit()</code> are not intercepted, so only
+ * tools that report their result by a return value may be run this way.
+ */
+class ToolSandbox {
+
+    /**
+     * The invocation running on the current thread, if any.
+     */
+    private static final ThreadLocal<Invocation> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The number of invocations currently running, guarded by the class lock.
+     */
+    private static int invocations;
+
+    /**
+     * The original standard output stream, guarded by the class lock.
+     */
+    private static PrintStream systemOut;
+
+    /**
+     * The original standard error stream, guarded by the class lock.
+     */
+    private static PrintStream systemErr;
+
+    /**
+     * The stream installed as standard output stream, guarded by the class lock.
+     */
+    private static PrintStream routingOut;
+
+    /**
+     * The stream installed as standard error stream, guarded by the class lock.
+     */
+    private static PrintStream routingErr;
+
+    /**
+     * Prevents instantiation.
+     */
+    private ToolSandbox() {
+        // hide
+    }
+
+    /**
+     * Runs the specified tool.
+     *
+     * @param tool The tool invocation, returning its exit code, must not be <code>null</code>.
+     * @param out The consumer for the lines written to <code>System.out</code>, must not be <code>null</code>.
+     * @param err The consumer for the lines written to <code>System.err</code>, must not be <code>null</code>.
+     * @return The exit code of the tool.
+     * @throws Exception If the tool failed.
+     */
+    public static int run(Callable<Integer> tool, StreamConsumer out, StreamConsumer err) throws Exception {
+        install();
+        Invocation invocation = new Invocation(out, err);
+        CURRENT.set(invocation);
+        try {
+            Integer exitCode = tool.call();
+            return (exitCode != null) ? exitCode : 0;
+        } finally {
+            CURRENT.remove();
+            try {
+                invocation.close();
+            } finally {
+                uninstall();
+            }
+        }
+    }
+
+    /**
+     * Installs the redirection of the standard streams.
+     */
+    private static synchronized void install() {
+        if (invocations == 0) {
+            systemOut = System.out;
+            systemErr = System.err;
+            routingOut = new PrintStream(new RoutingStream(systemOut, false), true);
+            routingErr = new PrintStream(new RoutingStream(systemErr, true), true);
+            System.setOut(routingOut);
+            System.setErr(routingErr);
+        }
+        invocations++;
+    }
+
+    /**
+     * Restores the original standard streams once the last invocation has finished. A stream that has been replaced
+     * by someone else meanwhile is left alone.
+     */
+    private static synchronized void uninstall() {
+        invocations--;
+        if (invocations > 0) {
+            return;
+        }
+        if (System.out == routingOut) {
+            System.setOut(systemOut);
+        }
+        if (System.err == routingErr) {
+            System.setErr(systemErr);
+        }
+        systemOut = null;
+        systemErr = null;
+        routingOut = null;
+        routingErr = null;
+    }
+
+    /**
+     * The state of a tool invocation running on some thread.
+     */
+    private static class Invocation {
+
+        /**
+         * The lines written to <code>System.out</code>.
+         */
+        final LineBuffer out;
+
+        /**
+         * The lines written to <code>System.err</code>.
+         */
+        final LineBuffer err;
+
+        /**
+         * Creates a new invocation.
+         *
+         * @param out The consumer for the lines written to <code>System.out</code>, must not be <code>null</code>.
+         * @param err The consumer for the lines written to <code>System.err</code>, must not be <code>null</code>.
+         */
+        Invocation(StreamConsumer out, StreamConsumer err) {
+            this.out = new LineBuffer(out);
+            this.err = new LineBuffer(err);
+        }
+
+        /**
+         * Passes any pending partial lines to the consumers.
+         *
+         * @throws IOException If a consumer failed.
+         */
+        void close() throws IOException {
+            this.out.finish();
+            this.err.finish();
+        }
+    }
+
+    /**
+     * Collects bytes until a line is complete and passes the line to a consumer.
+     */
+    private static class LineBuffer extends OutputStream {
+
+        /**
+         * The consumer of the lines.
+         */
+        private final StreamConsumer consumer;
+
+        /**
+         * The bytes of the current line.
+         */
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+
+        /**
+         * Creates a new line buffer.
+         *
+         * @param consumer The consumer of the lines, must not be <code>null</code>.
+         */
+        LineBuffer(StreamConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void write(int b) throws IOException {
+            if (b == '\n') {
+                flushLine();
+            } else if (b != '\r') {
+                this.line.write(b);
+            }
+        }
+
+        /**
+         * Passes a pending partial line to the consumer.
+         *
+         * @throws IOException If the consumer failed.
+         */
+        void finish() throws IOException {
+            if (this.line.size() > 0) {
+                flushLine();
+            }
+        }
+
+        /**
+         * Passes the current line to the consumer. While the consumer runs, output of the calling thread goes to the
+         * original streams, such that a consumer logging to the console does not feed its output back to itself.
+         *
+         * @throws IOException If the consumer failed.
+         */
+        private void flushLine() throws IOException {
+            String text = new String(this.line.toByteArray(), Charset.defaultCharset());
+            this.line.reset();
+            Invocation invocation = CURRENT.get();
+            CURRENT.remove();
+            try {
+                this.consumer.consumeLine(text);
+            } finally {
+                if (invocation != null) {
+                    CURRENT.set(invocation);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces a standard stream, passing the bytes written by a thread running a tool to the invocation's line buffer
+     * and all other bytes to the original stream.
+     */
+    private static class RoutingStream extends OutputStream {
+
+        /**
+         * The original stream.
+         */
+        private final PrintStream original;
+
+        /**
+         * A flag whether this stream replaces <code>System.err</code> rather than <code>System.out</code>.
+         */
+        private final boolean err;
+
+        /**
+         * Creates a new routing stream.
+         *
+         * @param original The original stream, must not be <code>null</code>.
+         * @param err A flag whether this stream replaces <code>System.err</code>.
+         */
+        RoutingStream(PrintStream original, boolean err) {
+            this.original = original;
+            this.err = err;
+        }
+
+        /**
+         * Gets the stream to write to from the current thread.
+         *
+         * @return The target stream, never <code>null</code>.
+         */
+        private OutputStream target() {
+            Invocation invocation = CURRENT.get();
+            if (invocation == null) {
+                return this.original;
+            }
+            return this.err ? invocation.err : invocation.out;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void write(byte[] b, int off, int len) throws IOException {
+            OutputStream target = target();
+            if (target == this.original) {
+                this.original.write(b, off, len);
+            } else {
+                for (int i = 0; i < len; i++) {
+                    target.write(b[off + i]);
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void flush() {
+            this.original.flush();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Tests <code>AbstractJavaCCMojo</code>.
+ */
+public class AbstractJavaCCMojoTest extends TestCase {
+
+    private File directory;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.directory = ScratchDirectory.create("abstract-javacc-mojo-test");
+    }
+
+    protected void tearDown() throws Exception {
+        ScratchDirectory.delete(this.directory);
+        super.tearDown();
+    }
+
+    private File write(String name, String contents) throws Exception {
+        File file = new File(this.directory, name);
+        FileUtils.fileWrite(file, "UTF-8", contents);
+        return file;
+    }
+
+    public void testHasSameContent() throws Exception {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            large.append("line ").append(i).append('\n');
+        }
+
+        File file = write("a.java", large.toString());
+        assertTrue(AbstractJavaCCMojo.hasSameContent(file, write("same.java", large.toString())));
+        assertFalse(AbstractJavaCCMojo.hasSameContent(file, write("longer.java", large + "x")));
+        large.setCharAt(large.length() - 2, 'X');
+        assertFalse(AbstractJavaCCMojo.hasSameContent(file, write("changed.java", large.toString())));
+        assertFalse(AbstractJavaCCMojo.hasSameContent(file, new File(this.directory, "missing.java")));
+    }
+
+    public void testMoveFile() throws Exception {
+        File source = write("source.java", "new");
+        File target = new File(this.directory, "a/b/target.java");
+        AbstractJavaCCMojo.moveFile(source, target);
+        assertFalse(source.exists());
+        assertEquals("new", FileUtils.fileRead(target, "UTF-8"));
+
+        source = write("source.java", "newer");
+        AbstractJavaCCMojo.moveFile(source, target);
+        assertFalse(source.exists());
+        assertEquals("newer", FileUtils.fileRead(target, "UTF-8"));
+    }
+}
@@ -0,0 +1,117 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Tests <code>BenchmarkBaseline</code>.
+ */
+public class BenchmarkBaselineTest extends TestCase {
+
+    private File directory;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.directory = ScratchDirectory.create("benchmark-baseline-test");
+    }
+
+    protected void tearDown() throws Exception {
+        ScratchDirectory.delete(this.directory);
+        super.tearDown();
+    }
+
+    /**
+     * Creates a result that parsed 1000 bytes per second and allocated the specified bytes per input byte.
+     */
+    private static ParserBenchmark.Result newResult(String parser, double allocatedBytesPerInputByte) {
+        ParserBenchmark.Result result = new ParserBenchmark.Result(parser, "Start");
+        result.addIteration(10, 100, 1000, 1000000000L, (long) (allocatedBytesPerInputByte * 1000));
+        return result;
+    }
+
+    private BenchmarkBaseline writeBaseline(ParserBenchmark.Result... results) throws Exception {
+        StringBuilder json = new StringBuilder("{\n  \"warmupIterations\": 3,\n  \"parsers\": [\n");
+        for (int i = 0; i < results.length; i++) {
+            results[i].appendJson(json, "    ");
+            json.append(i < results.length - 1 ? ",\n" : "\n");
+        }
+        json.append("  ]\n}\n");
+        File file = new File(this.directory, "baseline.json");
+        FileUtils.fileWrite(file, "UTF-8", json.toString());
+        return BenchmarkBaseline.read(file);
+    }
+
+    public void testRead() throws Exception {
+        BenchmarkBaseline baseline = writeBaseline(newResult("org.example.A", 2), newResult("org.example.B", 3));
+        assertTrue(baseline.contains("org.example.A"));
+        assertTrue(baseline.contains("org.example.B"));
+        assertFalse(baseline.contains("org.example.C"));
+        assertEquals(new File(this.directory, "baseline.json"), baseline.getFile());
+    }
+
+    public void testReadEmpty() throws Exception {
+        File file = new File(this.directory, "empty.json");
+        FileUtils.fileWrite(file, "UTF-8", "{\n  \"parsers\": []\n}\n");
+        assertFalse(BenchmarkBaseline.read(file).contains("org.example.A"));
+    }
+
+    public void testCheckWithinThresholds() throws Exception {
+        BenchmarkBaseline baseline = writeBaseline(newResult("org.example.A", 2));
+        assertTrue(baseline.check(newResult("org.example.A", 2.1), 20, 10).isEmpty());
+        assertTrue(baseline.check(newResult("org.example.C", 100), 20, 10).isEmpty());
+    }
+
+    public void testCheckThroughputDrop() throws Exception {
+        ParserBenchmark.Result fast = new ParserBenchmark.Result("org.example.A", "Start");
+        fast.addIteration(10, 100, 2000, 1000000000L, 4000);
+        BenchmarkBaseline baseline = writeBaseline(fast);
+
+        List<String> regressions = baseline.check(newResult("org.example.A", 2), 20, 10);
+        assertEquals(1, regressions.size());
+        assertTrue(regressions.get(0), regressions.get(0).startsWith("org.example.A: throughput dropped by 50.0%"));
+        assertTrue(baseline.check(newResult("org.example.A", 2), 60, 10).isEmpty());
+        assertTrue(baseline.check(newResult("org.example.A", 2), -1, 10).isEmpty());
+    }
+
+    public void testCheckAllocationIncrease() throws Exception {
+        BenchmarkBaseline baseline = writeBaseline(newResult("org.example.A", 2));
+
+        List<String> regressions = baseline.check(newResult("org.example.A", 3), 20, 10);
+        assertEquals(1, regressions.size());
+        assertTrue(regressions.get(0), regressions.get(0).startsWith("org.example.A: allocation rose by 50.0%"));
+        assertTrue(baseline.check(newResult("org.example.A", 3), 20, 60).isEmpty());
+        assertTrue(baseline.check(newResult("org.example.A", 3), 20, -1).isEmpty());
+    }
+
+    public void testCheckUnknownAllocation() throws Exception {
+        ParserBenchmark.Result unknown = new ParserBenchmark.Result("org.example.A", "Start");
+        unknown.addIteration(10, 100, 1000, 1000000000L, -1);
+        BenchmarkBaseline baseline = writeBaseline(unknown);
+        assertTrue(baseline.check(newResult("org.example.A", 100), 20, 10).isEmpty());
+        assertTrue(writeBaseline(newResult("org.example.A", 2))
+                .check(unknown, 20, 10)
+                .isEmpty());
+    }
+}
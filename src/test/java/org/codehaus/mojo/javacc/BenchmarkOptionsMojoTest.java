@@ -0,0 +1,133 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Tests <code>BenchmarkOptionsMojo</code>.
+ */
+public class BenchmarkOptionsMojoTest extends TestCase {
+
+    private static void set(BenchmarkOptionsMojo mojo, String name, String value) throws Exception {
+        Field field = BenchmarkOptionsMojo.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+
+    private static BenchmarkOptionsMojo.Variant newVariant(double parsesPerSecond, String... options) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < options.length; i += 2) {
+            values.put(options[i], options[i + 1]);
+        }
+        BenchmarkOptionsMojo.Variant variant = new BenchmarkOptionsMojo.Variant(values);
+        if (parsesPerSecond > 0) {
+            variant.result = new ParserBenchmark.Result("Parser", "Start");
+            variant.result.addIteration((long) parsesPerSecond, 0, 0, 1000000000L, -1);
+        } else {
+            variant.failure = "failed";
+        }
+        return variant;
+    }
+
+    public void testDefaultOptionMatrix() throws Exception {
+        List<Map<String, String>> matrix = new BenchmarkOptionsMojo().getOptionMatrix();
+        assertEquals(16, matrix.size());
+        assertEquals(
+                Arrays.asList("cacheTokens", "isStatic", "keepLineColumn", "errorReporting"),
+                Arrays.asList(matrix.get(0).keySet().toArray()));
+        assertEquals("false", matrix.get(0).get("cacheTokens"));
+        assertEquals("true", matrix.get(0).get("isStatic"));
+        assertEquals("true", matrix.get(15).get("cacheTokens"));
+        assertEquals("false", matrix.get(15).get("errorReporting"));
+    }
+
+    public void testOptionMatrix() throws Exception {
+        BenchmarkOptionsMojo mojo = new BenchmarkOptionsMojo();
+        set(mojo, "cacheTokens", "true");
+        set(mojo, "isStatic", "");
+        set(mojo, "keepLineColumn", null);
+        set(mojo, "errorReporting", " FALSE , false ");
+        set(mojo, "lookAhead", "1,2,3");
+
+        List<Map<String, String>> matrix = mojo.getOptionMatrix();
+        assertEquals(3, matrix.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(3, matrix.get(i).size());
+            assertEquals("true", matrix.get(i).get("cacheTokens"));
+            assertEquals("false", matrix.get(i).get("errorReporting"));
+            assertEquals(String.valueOf(i + 1), matrix.get(i).get("lookAhead"));
+        }
+    }
+
+    public void testEmptyOptionMatrix() throws Exception {
+        BenchmarkOptionsMojo mojo = new BenchmarkOptionsMojo();
+        set(mojo, "cacheTokens", null);
+        set(mojo, "isStatic", null);
+        set(mojo, "keepLineColumn", null);
+        set(mojo, "errorReporting", null);
+
+        assertEquals(Collections.singletonList(Collections.emptyMap()), mojo.getOptionMatrix());
+    }
+
+    public void testInvalidOptionValues() throws Exception {
+        BenchmarkOptionsMojo mojo = new BenchmarkOptionsMojo();
+        set(mojo, "cacheTokens", "yes");
+        try {
+            mojo.getOptionMatrix();
+            fail("Missing exception");
+        } catch (MojoExecutionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("cacheTokens"));
+        }
+
+        mojo = new BenchmarkOptionsMojo();
+        set(mojo, "lookAhead", "0");
+        try {
+            mojo.getOptionMatrix();
+            fail("Missing exception");
+        } catch (MojoExecutionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("lookAhead"));
+        }
+    }
+
+    public void testRank() {
+        BenchmarkOptionsMojo.Variant slow = newVariant(100, "cacheTokens", "false");
+        BenchmarkOptionsMojo.Variant failed = newVariant(0, "cacheTokens", "true", "isStatic", "true");
+        BenchmarkOptionsMojo.Variant fast = newVariant(300, "cacheTokens", "true", "isStatic", "false");
+
+        List<BenchmarkOptionsMojo.Variant> ranking = BenchmarkOptionsMojo.rank(Arrays.asList(slow, failed, fast));
+        assertEquals(Arrays.asList(fast, slow), ranking);
+    }
+
+    public void testConfigurationSnippet() {
+        BenchmarkOptionsMojo.Variant variant = newVariant(100, "cacheTokens", "true", "lookAhead", "2");
+        assertEquals(
+                "<configuration>\n  <cacheTokens>true</cacheTokens>\n  <lookAhead>2</lookAhead>\n</configuration>",
+                BenchmarkOptionsMojo.getConfigurationSnippet(variant));
+    }
+}
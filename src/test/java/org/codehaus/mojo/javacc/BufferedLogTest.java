@@ -0,0 +1,94 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+/**
+ * Tests <code>BufferedLog</code>.
+ */
+public class BufferedLogTest extends TestCase {
+
+    public void testFlushPreservesOrder() {
+        RecordingLog target = new RecordingLog();
+        BufferedLog log = new BufferedLog(target);
+        log.info("one");
+        log.warn("two");
+        log.debug("three");
+        log.error("four");
+        assertTrue(target.messages.isEmpty());
+
+        log.flush();
+        assertEquals(4, target.messages.size());
+        assertEquals("info:one", target.messages.get(0));
+        assertEquals("warn:two", target.messages.get(1));
+        assertEquals("debug:three", target.messages.get(2));
+        assertEquals("error:four", target.messages.get(3));
+    }
+
+    public void testFlushClearsBuffer() {
+        RecordingLog target = new RecordingLog();
+        BufferedLog log = new BufferedLog(target);
+        log.info("one");
+        log.flush();
+        log.flush();
+        assertEquals(1, target.messages.size());
+    }
+
+    public void testThrowableOnly() {
+        RecordingLog target = new RecordingLog();
+        BufferedLog log = new BufferedLog(target);
+        log.error(new IllegalStateException("failure"));
+        log.flush();
+        assertEquals("error:java.lang.IllegalStateException: failure", target.messages.get(0));
+    }
+
+    /**
+     * Records the messages logged at any level.
+     */
+    private static class RecordingLog extends SystemStreamLog {
+
+        private final List<String> messages = new ArrayList<>();
+
+        public void debug(CharSequence content, Throwable error) {
+            this.messages.add("debug:" + content);
+        }
+
+        public void info(CharSequence content, Throwable error) {
+            this.messages.add("info:" + content);
+        }
+
+        public void warn(CharSequence content, Throwable error) {
+            this.messages.add("warn:" + content);
+        }
+
+        public void error(CharSequence content, Throwable error) {
+            this.messages.add("error:" + content);
+        }
+
+        public void error(Throwable error) {
+            this.messages.add("error:" + error);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Tests <code>BuildCache</code>.
+ */
+public class BuildCacheTest extends TestCase {
+
+    private static final String KEY = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private File directory;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.directory = ScratchDirectory.create("build-cache-test");
+    }
+
+    protected void tearDown() throws Exception {
+        ScratchDirectory.delete(this.directory);
+        super.tearDown();
+    }
+
+    public void testCommitAndGet() throws Exception {
+        File generated = new File(this.directory, "generated/Parser.java");
+        generated.getParentFile().mkdirs();
+        FileUtils.fileWrite(generated, "UTF-8", "class Parser {}");
+
+        BuildCache cache = new BuildCache(new File(this.directory, "cache"));
+        assertNull(cache.get(KEY));
+
+        BuildCache.Entry entry = cache.newEntry();
+        entry.addGroup(1, "org.example", "Parser*", Collections.singletonList(generated));
+        entry.addGroup(0, "", null, Collections.<File>emptyList());
+        assertTrue(entry.commit(KEY));
+        entry.discard();
+
+        List<BuildCache.Group> groups = cache.get(KEY);
+        assertNotNull(groups);
+        assertEquals(2, groups.size());
+        BuildCache.Group group = groups.get(0);
+        assertEquals(1, group.getRoot());
+        assertEquals("org.example", group.getPackageName());
+        assertEquals("Parser*", group.getUpdatePattern());
+        assertEquals("class Parser {}", FileUtils.fileRead(new File(group.getDirectory(), "Parser.java"), "UTF-8"));
+        assertEquals(0, groups.get(1).getRoot());
+        assertEquals("", groups.get(1).getPackageName());
+        assertNull(groups.get(1).getUpdatePattern());
+    }
+
+    public void testCommitKeepsExistingEntry() throws Exception {
+        BuildCache cache = new BuildCache(new File(this.directory, "cache"));
+
+        BuildCache.Entry entry1 = cache.newEntry();
+        entry1.addGroup(0, "a", null, Collections.<File>emptyList());
+        assertTrue(entry1.commit(KEY));
+
+        BuildCache.Entry entry2 = cache.newEntry();
+        entry2.addGroup(0, "b", null, Collections.<File>emptyList());
+        assertFalse(entry2.commit(KEY));
+        entry2.discard();
+
+        assertEquals("a", cache.get(KEY).get(0).getPackageName());
+        assertEquals(0, new File(cache.getDirectory(), "staging").list().length);
+    }
+
+    public void testInvalidatedEntryIsNotCommitted() throws Exception {
+        BuildCache cache = new BuildCache(new File(this.directory, "cache"));
+
+        BuildCache.Entry entry = cache.newEntry();
+        entry.invalidate();
+        assertFalse(entry.commit(KEY));
+        entry.discard();
+
+        assertNull(cache.get(KEY));
+    }
+
+    public void testDirectoryRemoteCache() throws Exception {
+        File generated = new File(this.directory, "generated/Parser.java");
+        generated.getParentFile().mkdirs();
+        FileUtils.fileWrite(generated, "UTF-8", "class Parser {}");
+        File remoteDirectory = new File(this.directory, "remote");
+
+        BuildCache readOnly = new BuildCache(new File(this.directory, "read-only"));
+        readOnly.setRemoteCache(new DirectoryRemoteCache(remoteDirectory), false);
+        BuildCache.Entry entry = readOnly.newEntry();
+        entry.addGroup(0, "org", null, Collections.singletonList(generated));
+        assertTrue(entry.commit(KEY));
+        assertFalse(new File(remoteDirectory, KEY.substring(0, 2) + "/" + KEY + ".zip").exists());
+
+        BuildCache producer = new BuildCache(new File(this.directory, "producer"));
+        producer.setRemoteCache(new DirectoryRemoteCache(remoteDirectory), true);
+        entry = producer.newEntry();
+        entry.addGroup(0, "org", null, Collections.singletonList(generated));
+        assertTrue(entry.commit(KEY));
+        assertTrue(new File(remoteDirectory, KEY.substring(0, 2) + "/" + KEY + ".zip").isFile());
+
+        BuildCache consumer = new BuildCache(new File(this.directory, "consumer"));
+        assertNull(consumer.get(KEY));
+        consumer.setRemoteCache(new DirectoryRemoteCache(remoteDirectory), false);
+        List<BuildCache.Group> groups = consumer.get(KEY);
+        assertNotNull(groups);
+        assertEquals(
+                "class Parser {}", FileUtils.fileRead(new File(groups.get(0).getDirectory(), "Parser.java"), "UTF-8"));
+        assertEquals(0, new File(consumer.getDirectory(), "staging").list().length);
+    }
+
+    public void testUnpackRejectsEntriesOutsideDirectory() throws Exception {
+        File archive = new File(this.directory, "evil.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(archive))) {
+            zos.putNextEntry(new ZipEntry("../evil.txt"));
+            zos.closeEntry();
+        }
+        try {
+            BuildCache.unpack(archive, new File(this.directory, "entry"));
+            fail("Missing IOException");
+        } catch (IOException e) {
+            assertTrue(true);
+        }
+        assertFalse(new File(this.directory, "evil.txt").exists());
+    }
+}
@@ -0,0 +1,171 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Tests <code>BuildState</code>.
+ */
+public class BuildStateTest extends TestCase {
+
+    private File directory;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.directory = ScratchDirectory.create("build-state-test");
+    }
+
+    protected void tearDown() throws Exception {
+        ScratchDirectory.delete(this.directory);
+        super.tearDown();
+    }
+
+    public void testComputeFingerprint() throws Exception {
+        File grammar = new File(this.directory, "Parser.jj");
+        FileUtils.fileWrite(grammar, "UTF-8", "PARSER_BEGIN(Parser)");
+
+        String fingerprint = BuildState.computeFingerprint(grammar, new String[] {"-STATIC=false"});
+        assertEquals(64, fingerprint.length());
+        assertEquals(fingerprint, BuildState.computeFingerprint(grammar, new String[] {"-STATIC=false"}));
+        assertFalse(fingerprint.equals(BuildState.computeFingerprint(grammar, new String[] {"-STATIC=true"})));
+        assertFalse(fingerprint.equals(BuildState.computeFingerprint(grammar, new String[0])));
+
+        FileUtils.fileWrite(grammar, "UTF-8", "PARSER_BEGIN(Parser2)");
+        assertFalse(fingerprint.equals(BuildState.computeFingerprint(grammar, new String[] {"-STATIC=false"})));
+    }
+
+    public void testComputeToolVersion() throws Exception {
+        String version = BuildState.computeToolVersion(TestCase.class);
+        assertTrue(version, version.startsWith(TestCase.class.getName() + "="));
+        assertEquals(version, BuildState.computeToolVersion(TestCase.class));
+
+        // a class directory rather than a JAR
+        version = BuildState.computeToolVersion(BuildStateTest.class);
+        assertEquals(BuildStateTest.class.getName().length() + 65, version.length());
+    }
+
+    public void testComputeDirectoryDigest() throws Exception {
+        File file = new File(this.directory, "org/example/Tool.class");
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite(file, "UTF-8", "version 1");
+        long lastModified = file.lastModified();
+        String digest = BuildState.computeDirectoryDigest(this.directory);
+        assertEquals(64, digest.length());
+        assertEquals(digest, BuildState.computeDirectoryDigest(this.directory));
+
+        // same size and timestamp, different contents
+        FileUtils.fileWrite(file, "UTF-8", "version 2");
+        file.setLastModified(lastModified);
+        assertFalse(digest.equals(BuildState.computeDirectoryDigest(this.directory)));
+    }
+
+    public void testComputeOptions() {
+        String options = BuildState.computeOptions(new String[] {"-STATIC=false"});
+        assertEquals(options, BuildState.computeOptions(new String[] {"-STATIC=false"}));
+        assertFalse(options.equals(BuildState.computeOptions(new String[] {"-STATIC=true"})));
+        assertFalse(BuildState.computeOptions(new String[] {"a", "b"})
+                .equals(BuildState.computeOptions(new String[] {"ab"})));
+    }
+
+    public void testSaveAndLoad() throws Exception {
+        File file = new File(this.directory, "state/javacc-default.properties");
+
+        BuildState state = new BuildState(file);
+        assertNull(state.get("org/Parser.jj", BuildState.FINGERPRINT));
+        state.put("org" + File.separator + "Parser.jj", BuildState.FINGERPRINT, "abc");
+        state.put("Other.jj", BuildState.OPTIONS, "def");
+        state.save();
+        assertTrue(file.isFile());
+
+        state = new BuildState(file);
+        assertEquals("abc", state.get("org/Parser.jj", BuildState.FINGERPRINT));
+        assertEquals("def", state.get("Other.jj", BuildState.OPTIONS));
+        assertNull(state.get("Other.jj", BuildState.FINGERPRINT));
+
+        state.put("Other.jj", BuildState.OPTIONS, null);
+        state.save();
+        assertNull(new BuildState(file).get("Other.jj", BuildState.OPTIONS));
+    }
+
+    public void testStageAndCommit() {
+        BuildState state = new BuildState(new File(this.directory, "staged.properties"));
+        state.stage("Parser.jj", BuildState.OPTIONS, "abc");
+        assertNull(state.get("Parser.jj", BuildState.OPTIONS));
+        state.commit("Parser.jj");
+        assertEquals("abc", state.get("Parser.jj", BuildState.OPTIONS));
+        state.commit("Unknown.jj");
+        assertNull(state.get("Unknown.jj", BuildState.OPTIONS));
+    }
+
+    public void testOutputs() throws Exception {
+        File file = new File(this.directory, "outputs.properties");
+        File base = new File(this.directory, "project");
+        File parser = new File(base, "target/generated-sources/javacc/org/Parser.java");
+        File node = new File(this.directory, "elsewhere/Node.java").getAbsoluteFile();
+
+        BuildState state = new BuildState(file, base);
+        assertEquals(0, state.getOutputs("Parser.jj").length);
+        state.stageOutputs("Parser.jj", Arrays.asList(parser, node));
+        state.commit("Parser.jj");
+        String nodePath = node.getPath().replace(File.separatorChar, '/');
+        assertEquals(
+                "target/generated-sources/javacc/org/Parser.java|" + nodePath,
+                state.get("Parser.jj", BuildState.OUTPUTS));
+        state.save();
+
+        File[] outputs = new BuildState(file, base).getOutputs("Parser.jj");
+        assertEquals(Arrays.asList(parser, node), Arrays.asList(outputs));
+    }
+
+    public void testDependents() {
+        File base = new File(this.directory, "project");
+        File tokens = new File(base, "src/main/javacc/Tokens.jj");
+        File common = new File(base, "src/main/javacc/Common.jj");
+
+        BuildState state = new BuildState(new File(this.directory, "dependents.properties"), base);
+        Map<File, String> inputs = new LinkedHashMap<>();
+        inputs.put(tokens, "t1");
+        inputs.put(common, "c1");
+        state.stageInputs("A.jj", inputs);
+        state.commit("A.jj");
+        state.stageInputs("B.jj", Collections.singletonMap(tokens, "t2"));
+        state.commit("B.jj");
+
+        Map<File, Map<String, String>> dependents = state.getDependents();
+        assertEquals(2, dependents.size());
+        assertEquals("t1", dependents.get(tokens).get("A.jj"));
+        assertEquals("t2", dependents.get(tokens).get("B.jj"));
+        assertEquals(Collections.singletonMap("A.jj", "c1"), dependents.get(common));
+    }
+
+    public void testSaveUnmodified() throws Exception {
+        File file = new File(this.directory, "unmodified.properties");
+        new BuildState(file).save();
+        assertFalse(file.exists());
+    }
+}
@@ -0,0 +1,99 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests <code>FlightRecorderEvent</code>. The JFR API is accessed reflectively since the tests target Java 8, too.
+ */
+public class FlightRecorderEventTest extends TestCase {
+
+    public void testInactiveEventIgnoresCalls() {
+        if (FlightRecorderEvent.isRecording()) {
+            return;
+        }
+        FlightRecorderEvent event = FlightRecorderEvent.begin(FlightRecorderEvent.TOOL_INVOCATION);
+        assertFalse(event.isActive());
+        assertSame(event, FlightRecorderEvent.begin(FlightRecorderEvent.GRAMMAR_SCAN));
+        event.set("unknown", "value").commit();
+    }
+
+    public void testRecordEvent() throws Exception {
+        Class<?> recordingClass;
+        try {
+            recordingClass = Class.forName("jdk.jfr.Recording");
+        } catch (ClassNotFoundException e) {
+            return;
+        }
+        File file = new File("target/flight-recorder-event-test.jfr").getAbsoluteFile();
+        file.getParentFile().mkdirs();
+        Object recording = recordingClass.getConstructor().newInstance();
+        try {
+            String name = FlightRecorderEvent.TOOL_INVOCATION.getName();
+            recordingClass.getMethod("enable", String.class).invoke(recording, name);
+            recordingClass.getMethod("start").invoke(recording);
+            assertTrue(FlightRecorderEvent.isRecording());
+
+            FlightRecorderEvent event = FlightRecorderEvent.begin(FlightRecorderEvent.TOOL_INVOCATION);
+            assertTrue(event.isActive());
+            event.set("tool", "JavaCC")
+                    .set("grammar", "src/main/javacc/Parser.jj")
+                    .set("exitCode", 0);
+            event.commit();
+            try {
+                event.set("unknown", "value");
+                fail("Missing IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                assertTrue(true);
+            }
+
+            recordingClass.getMethod("stop").invoke(recording);
+            assertFalse(FlightRecorderEvent.begin(FlightRecorderEvent.TOOL_INVOCATION)
+                    .isActive());
+            recordingClass.getMethod("dump", Path.class).invoke(recording, file.toPath());
+        } finally {
+            recordingClass.getMethod("close").invoke(recording);
+        }
+
+        Class<?> recordingFileClass = Class.forName("jdk.jfr.consumer.RecordingFile");
+        Method readAllEvents = recordingFileClass.getMethod("readAllEvents", Path.class);
+        List<?> events = (List<?>) readAllEvents.invoke(null, file.toPath());
+        Object recorded = null;
+        for (Object candidate : events) {
+            Object type = candidate.getClass().getMethod("getEventType").invoke(candidate);
+            Object name = type.getClass().getMethod("getName").invoke(type);
+            if (FlightRecorderEvent.TOOL_INVOCATION.getName().equals(name)) {
+                recorded = candidate;
+            }
+        }
+        assertNotNull(events.toString(), recorded);
+        Method getValue = recorded.getClass().getMethod("getValue", String.class);
+        assertEquals("JavaCC", getValue.invoke(recorded, "tool"));
+        assertEquals("src/main/javacc/Parser.jj", getValue.invoke(recorded, "grammar"));
+        assertEquals(Integer.valueOf(0), getValue.invoke(recorded, "exitCode"));
+        file.delete();
+    }
+}
@@ -0,0 +1,150 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.TestCase;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.cli.CommandLineUtils.StringStreamConsumer;
+
+/**
+ * Tests <code>ForkedJvmPool</code>.
+ */
+public class ForkedJvmPoolTest extends TestCase {
+
+    private File directory;
+
+    private ForkedJvmPool pool;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.directory = new File("target/forked-jvm-pool-test").getAbsoluteFile();
+        this.pool = new ForkedJvmPool(1, this.directory);
+    }
+
+    protected void tearDown() throws Exception {
+        this.pool.close();
+        FileUtils.deleteDirectory(this.directory);
+        super.tearDown();
+    }
+
+    private int run(Class<?> mainClass, StringStreamConsumer stdout, StringStreamConsumer stderr, String... args)
+            throws Exception {
+        ForkedJvm jvm = new ForkedJvm();
+        jvm.setPool(this.pool);
+        jvm.setSystemOut(stdout);
+        jvm.setSystemErr(stderr);
+        jvm.setMainClass(mainClass);
+        jvm.addArguments(args);
+        int exitcode = jvm.run();
+        assertEquals(new File(this.directory, "worker-1"), jvm.getWorkingDirectory());
+        return exitcode;
+    }
+
+    public void testReuseWorker() throws Exception {
+        StringStreamConsumer stdout = new StringStreamConsumer();
+        StringStreamConsumer stderr = new StringStreamConsumer();
+        assertEquals(1, run(PooledMainStub.class, stdout, stderr, "arg1", "arg 2", ""));
+        String[] args = stdout.getOutput().split("(\r\n)|(\r)|(\n)", -1);
+        assertEquals("arg1", args[0]);
+        assertEquals("arg 2", args[1]);
+        assertEquals("", args[2]);
+        assertEquals(
+                new File(this.directory, "worker-1").getCanonicalFile(),
+                new File(stderr.getOutput().trim()).getCanonicalFile());
+
+        assertEquals(2, run(PooledMainStub.class, new StringStreamConsumer(), new StringStreamConsumer()));
+    }
+
+    public void testJvmArguments() throws Exception {
+        assertEquals(1, run(PooledMainStub.class, new StringStreamConsumer(), new StringStreamConsumer()));
+
+        // different options require a worker of their own
+        ForkedJvm jvm = new ForkedJvm();
+        jvm.setPool(this.pool);
+        jvm.addJvmArgument("-Dstub.runs=41");
+        jvm.setMainClass(PooledMainStub.class);
+        assertEquals(42, jvm.run());
+        assertEquals(new File(this.directory, "worker-2"), jvm.getWorkingDirectory());
+    }
+
+    public void testJoinOutputChunksIntoLines() throws Exception {
+        StringStreamConsumer stdout = new StringStreamConsumer();
+        assertEquals(0, run(ChunkedOutputStub.class, stdout, new StringStreamConsumer()));
+        String[] lines = stdout.getOutput().split("(\r\n)|(\r)|(\n)");
+        assertEquals(Arrays.asList("ab", "\u00e9t\u00e9"), Arrays.asList(lines));
+    }
+
+    public void testReplaceTerminatedWorker() throws Exception {
+        assertEquals(1, run(PooledMainStub.class, new StringStreamConsumer(), new StringStreamConsumer()));
+
+        StringStreamConsumer stdout = new StringStreamConsumer();
+        assertEquals(27, run(MainStub.class, stdout, new StringStreamConsumer(), "exit"));
+        assertEquals("exit", stdout.getOutput().trim());
+
+        assertEquals(1, run(PooledMainStub.class, new StringStreamConsumer(), new StringStreamConsumer()));
+    }
+
+    public void testWorkingDirectoryHandlerRunsBeforeWorkerIsReleased() throws Exception {
+        CountDownLatch handling = new CountDownLatch(1);
+        AtomicBoolean handled = new AtomicBoolean();
+        List<ParallelTasks.Task> tasks = Arrays.asList(
+                log -> {
+                    ForkedJvm jvm = new ForkedJvm();
+                    jvm.setPool(this.pool);
+                    jvm.setMainClass(PooledMainStub.class);
+                    jvm.setWorkingDirectoryHandler(directory -> {
+                        assertEquals(new File(this.directory, "worker-1"), directory);
+                        handling.countDown();
+                        Thread.sleep(500);
+                        handled.set(true);
+                    });
+                    jvm.run();
+                },
+                log -> {
+                    handling.await();
+                    ForkedJvm jvm = new ForkedJvm();
+                    jvm.setPool(this.pool);
+                    jvm.setMainClass(PooledMainStub.class);
+                    jvm.setWorkingDirectoryHandler(directory -> assertTrue(handled.get()));
+                    jvm.run();
+                });
+        Throwable[] failures = ParallelTasks.run(tasks, 2, new SystemStreamLog(), "Failed to run");
+        assertNull(failures[0]);
+        assertNull(failures[1]);
+    }
+
+    public void testMissingMainClass() throws Exception {
+        StringStreamConsumer stderr = new StringStreamConsumer();
+        ForkedJvm jvm = new ForkedJvm();
+        jvm.setPool(this.pool);
+        jvm.setSystemErr(stderr);
+        jvm.setMainClass(PooledMainStub.class);
+        jvm.setMainClass("org.codehaus.mojo.javacc.NonExistingMain");
+        assertEquals(1, jvm.run());
+        assertTrue(stderr.getOutput().contains("NonExistingMain"));
+    }
+}
@@ -45,6 +45,9 @@ public class ForkedJvmTest extends TestCase {
         jvm.addArgument((String) null);
         jvm.addArguments(null);
         jvm.addArguments(new String[] {null});
+        jvm.addJvmArgument(null);
+        jvm.addJvmArguments(null);
+        jvm.addJvmArguments(new String[] {null});
         jvm.addClassPathEntry((Class<?>) null);
         jvm.addClassPathEntry((File) null);
         jvm.addClassPathEntry((String) null);
@@ -69,6 +72,17 @@ public class ForkedJvmTest extends TestCase {
         assertEquals(cmd1, cmd2);
     }
 
+    public void testJvmArgumentsPrecedeMainClass() {
+        ForkedJvm jvm = new ForkedJvm();
+        jvm.setMainClass(MainStub.class);
+        jvm.addJvmArgument("-Xmx64m");
+        jvm.addArgument("arg");
+        String cmd = jvm.toString();
+        int option = cmd.indexOf("-Xmx64m");
+        assertTrue(cmd, option >= 0 && option < cmd.indexOf("-cp"));
+        assertTrue(cmd, cmd.indexOf("-cp") < cmd.indexOf(MainStub.class.getName()));
+    }
+
     public void testFork() throws Exception {
         File workDir = new File(System.getProperty("user.home")).getCanonicalFile();
         File file = new File("test").getAbsoluteFile();
@@ -0,0 +1,191 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Tests <code>GrammarDirectoryScanner</code>.
+ */
+public class GrammarDirectoryScannerTest extends TestCase {
+
+    private File sourceDirectory;
+
+    private File outputDirectory;
+
+    private File grammarFile;
+
+    private File parserFile;
+
+    private BuildState buildState;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        File directory = ScratchDirectory.create("grammar-directory-scanner-test");
+        this.sourceDirectory = new File(directory, "src");
+        this.outputDirectory = new File(directory, "out");
+        this.grammarFile = new File(this.sourceDirectory, "Parser.jj");
+        this.parserFile = new File(this.outputDirectory, "org/test/Parser.java");
+        this.buildState = new BuildState(new File(directory, "state.properties"));
+
+        writeGrammar("");
+        this.parserFile.getParentFile().mkdirs();
+        FileUtils.fileWrite(this.parserFile, "UTF-8", "package org.test;");
+        this.grammarFile.setLastModified(System.currentTimeMillis() - 60 * 1000);
+    }
+
+    protected void tearDown() throws Exception {
+        ScratchDirectory.delete(this.sourceDirectory.getParentFile());
+        super.tearDown();
+    }
+
+    private void writeGrammar(String production) throws Exception {
+        this.grammarFile.getParentFile().mkdirs();
+        FileUtils.fileWrite(
+                this.grammarFile,
+                "UTF-8",
+                "PARSER_BEGIN(Parser)\npackage org.test;\npublic class Parser {}\nPARSER_END(Parser)\n" + production);
+    }
+
+    private int scan(boolean digest, String... arguments) throws Exception {
+        GrammarDirectoryScanner scanner = new GrammarDirectoryScanner();
+        scanner.setSourceDirectory(this.sourceDirectory);
+        scanner.setIncludes(new String[] {"*.jj"});
+        scanner.setOutputDirectory(this.outputDirectory);
+        scanner.setBuildState(this.buildState, grammarInfo -> arguments);
+        scanner.setDigest(digest);
+        scanner.scan();
+        return scanner.getIncludedGrammars().length;
+    }
+
+    public void testTimestamp() throws Exception {
+        GrammarDirectoryScanner scanner = new GrammarDirectoryScanner();
+        scanner.setSourceDirectory(this.sourceDirectory);
+        scanner.setOutputDirectory(this.outputDirectory);
+        scanner.scan();
+        assertEquals(0, scanner.getIncludedGrammars().length);
+
+        this.grammarFile.setLastModified(System.currentTimeMillis() + 60 * 1000);
+        scanner.scan();
+        assertEquals(1, scanner.getIncludedGrammars().length);
+    }
+
+    public void testChangedOptions() throws Exception {
+        // outputs without recorded options are adopted
+        assertEquals(0, scan(false, "-STATIC=false"));
+        assertNotNull(this.buildState.get("Parser.jj", BuildState.OPTIONS));
+
+        assertEquals(0, scan(false, "-STATIC=false"));
+        assertEquals(1, scan(false, "-STATIC=true"));
+        this.buildState.commit("Parser.jj");
+        assertEquals(0, scan(false, "-STATIC=true"));
+    }
+
+    public void testUnchangedTargetAfterProcessing() throws Exception {
+        this.grammarFile.setLastModified(System.currentTimeMillis() - 10 * 1000);
+        this.parserFile.setLastModified(System.currentTimeMillis() - 20 * 1000);
+        assertEquals(1, scan(false));
+
+        // the parser file was regenerated with the same contents and therefore not rewritten
+        this.buildState.commit("Parser.jj");
+        assertEquals(0, scan(false));
+    }
+
+    public void testRecordedOutputs() throws Exception {
+        File nodeFile = new File(this.outputDirectory.getParentFile(), "interim/org/test/Node.java");
+        nodeFile.getParentFile().mkdirs();
+        FileUtils.fileWrite(nodeFile, "UTF-8", "package org.test;");
+
+        assertEquals(0, scan(false));
+        this.buildState.stageOutputs("Parser.jj", Arrays.asList(this.parserFile, nodeFile));
+        this.buildState.commit("Parser.jj");
+        assertEquals(0, scan(false));
+
+        nodeFile.delete();
+        assertEquals(1, scan(false));
+        assertEquals(1, scan(true));
+    }
+
+    public void testChangedInclude() throws Exception {
+        File tokens = new File(this.sourceDirectory, "shared/Tokens.jjf");
+        File common = new File(this.sourceDirectory, "shared/Common.jjf");
+        tokens.getParentFile().mkdirs();
+        FileUtils.fileWrite(tokens, "UTF-8", "INCLUDE(\"Common.jjf\");\nTOKEN : { <A: \"a\"> }");
+        FileUtils.fileWrite(common, "UTF-8", "TOKEN : { <B: \"b\"> }");
+        writeGrammar("INCLUDE(\"shared/Tokens.jjf\");");
+        this.grammarFile.setLastModified(System.currentTimeMillis() - 60 * 1000);
+
+        assertEquals(0, scan(false));
+        assertEquals(2, this.buildState.getDependents().size());
+        assertEquals(0, scan(false));
+
+        // a transitively included file changed
+        FileUtils.fileWrite(common, "UTF-8", "TOKEN : { <B: \"bb\"> }");
+        assertEquals(1, scan(false));
+        this.buildState.commit("Parser.jj");
+        assertEquals(0, scan(false));
+
+        common.delete();
+        assertEquals(1, scan(true));
+    }
+
+    public void testDigest() throws Exception {
+        assertEquals(1, scan(true, "-STATIC=false"));
+        this.buildState.commit("Parser.jj");
+        assertEquals(0, scan(true, "-STATIC=false"));
+
+        // modification times do not matter
+        this.grammarFile.setLastModified(System.currentTimeMillis() + 60 * 1000);
+        assertEquals(0, scan(true, "-STATIC=false"));
+
+        assertEquals(1, scan(true, "-STATIC=true"));
+
+        writeGrammar("void Start() : {} { <EOF> }");
+        assertEquals(1, scan(true, "-STATIC=false"));
+        this.buildState.commit("Parser.jj");
+        assertEquals(0, scan(true, "-STATIC=false"));
+
+        this.parserFile.delete();
+        assertEquals(1, scan(true, "-STATIC=false"));
+    }
+
+    public void testRecordedMetadata() throws Exception {
+        assertEquals(0, scan(false));
+        String metadata = this.buildState.get("Parser.jj", BuildState.METADATA);
+        assertTrue(metadata, metadata.endsWith("|org.test|Parser"));
+
+        // same size and timestamp, so the grammar file is not read again
+        long lastModified = this.grammarFile.lastModified();
+        FileUtils.fileWrite(
+                this.grammarFile,
+                "UTF-8",
+                "PARSER_BEGIN(Parser)\npackage org.tst2;\npublic class Parser {}\nPARSER_END(Parser)\n");
+        this.grammarFile.setLastModified(lastModified);
+        assertEquals(0, scan(false));
+
+        // the package changed, so the parser file is missing
+        this.grammarFile.setLastModified(lastModified - 1000);
+        assertEquals(1, scan(false));
+    }
+}
@@ -0,0 +1,70 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests <code>GrammarHeaderScanner</code>.
+ */
+public class GrammarHeaderScannerTest extends TestCase {
+
+    private GrammarHeaderScanner scan(String grammar, int bufferSize) throws Exception {
+        GrammarHeaderScanner scanner = new GrammarHeaderScanner(new StringReader(grammar), new char[bufferSize]);
+        scanner.scan();
+        return scanner;
+    }
+
+    public void testScan() throws Exception {
+        String grammar = "options { STATIC = false; }\nPARSER_BEGIN ( MyParser )\n"
+                + "package org.example .parser;\npublic class MyParser {}\nPARSER_END(MyParser)\n";
+        for (int size : new int[] {1, 7, 2048}) {
+            GrammarHeaderScanner scanner = scan(grammar, size);
+            assertEquals("MyParser", scanner.getParserName());
+            assertEquals("org.example.parser", scanner.getPackageName());
+        }
+    }
+
+    public void testScanSkipsCommentsAndLiterals() throws Exception {
+        String grammar = "/* PARSER_BEGIN(Block) package block; */\n// PARSER_BEGIN(Line)\n"
+                + "options { NODE_PACKAGE = \"package quoted;\"; X = 'p'; }\n"
+                + "PARSER_BEGIN(Parser) /* package comment; */ package real.pkg; class Parser {} PARSER_END(Parser)";
+        GrammarHeaderScanner scanner = scan(grammar, 16);
+        assertEquals("Parser", scanner.getParserName());
+        assertEquals("real.pkg", scanner.getPackageName());
+    }
+
+    public void testScanDefaultPackage() throws Exception {
+        GrammarHeaderScanner scanner = scan(
+                "PARSER_BEGIN(Parser)\npublic class Parser {}\nPARSER_END(Parser)\n"
+                        + "TOKEN : { < PACKAGE : \"package\" > }\nvoid package() : {} { <PACKAGE> }",
+                64);
+        assertEquals("Parser", scanner.getParserName());
+        assertEquals("", scanner.getPackageName());
+    }
+
+    public void testScanWithoutParser() throws Exception {
+        GrammarHeaderScanner scanner = scan("TOKEN : { < A : \"a\" > }", 64);
+        assertEquals("", scanner.getParserName());
+        assertEquals("", scanner.getPackageName());
+    }
+}
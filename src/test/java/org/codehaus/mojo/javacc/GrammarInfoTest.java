@@ -23,9 +23,11 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.Objects;
 
 import junit.framework.TestCase;
+import org.codehaus.plexus.util.FileUtils;
 
 /**
  * Tests <code>GrammarInfo</code>.
@@ -111,6 +113,35 @@ public class GrammarInfoTest extends TestCase {
         assertEquals("node", info.resolvePackageName("node"));
     }
 
+    public void testFindIncludes() throws Exception {
+        File grammarFile = File.createTempFile("Includes", ".jj");
+        try {
+            FileUtils.fileWrite(
+                    grammarFile,
+                    "UTF-8",
+                    "INCLUDE(\"Tokens.jj\");\n  INCLUDE \"../shared/Common.jj\"\n// INCLUDE(\"Comment.jj\")\n");
+            assertEquals(
+                    Arrays.asList("Tokens.jj", "../shared/Common.jj"),
+                    Arrays.asList(GrammarInfo.findIncludes(grammarFile, "UTF-8")));
+            FileUtils.fileWrite(grammarFile, "UTF-8", "PARSER_BEGIN(Parser)");
+            assertEquals(0, GrammarInfo.findIncludes(grammarFile, "UTF-8").length);
+        } finally {
+            grammarFile.delete();
+        }
+    }
+
+    public void testResolveInclude() {
+        File grammarFile = new File("src/main/javacc/org/Parser.jj").getAbsoluteFile();
+        assertEquals(
+                new File("src/main/javacc/shared/Tokens.jj").getAbsoluteFile(),
+                GrammarInfo.resolveInclude(grammarFile, "../shared/Tokens.jj"));
+    }
+
+    public void testGetIncludes() throws Exception {
+        GrammarInfo info = newGrammarInfo("Parser1.jj");
+        assertEquals(0, info.getIncludes().length);
+    }
+
     private GrammarInfo newGrammarInfo(String resource) throws Exception {
         File grammarFile = getGrammar(resource);
         File sourceDir = grammarFile.getParentFile();
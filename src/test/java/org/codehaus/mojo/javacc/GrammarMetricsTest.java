@@ -0,0 +1,77 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests <code>GrammarMetrics</code>.
+ */
+public class GrammarMetricsTest extends TestCase {
+
+    public void testAddPhase() {
+        GrammarMetrics metrics = new GrammarMetrics("src/main/javacc/Parser.jj");
+        long startTime = System.nanoTime() - 2000000;
+        metrics.addPhase("JavaCC", startTime, GrammarMetrics.currentCpuTime());
+        metrics.addPhase("copy", System.nanoTime(), GrammarMetrics.currentCpuTime());
+        metrics.addPhase("JavaCC", startTime, GrammarMetrics.currentCpuTime());
+
+        Map<String, Long> phases = metrics.getPhases();
+        assertEquals(
+                Arrays.asList("JavaCC", "copy"), Arrays.asList(phases.keySet().toArray()));
+        assertTrue(phases.get("JavaCC") >= 4000000);
+    }
+
+    public void testAddFile() {
+        GrammarMetrics metrics = new GrammarMetrics("Parser.jj");
+        metrics.addFile(100);
+        metrics.addFile(23);
+        assertEquals(2, metrics.getFilesCopied());
+        assertEquals(123, metrics.getBytesWritten());
+    }
+
+    public void testAppendJson() {
+        GrammarMetrics metrics = new GrammarMetrics("dir\\Parser.jj");
+        metrics.addPhase("JavaCC", System.nanoTime(), GrammarMetrics.currentCpuTime());
+        metrics.addFile(42);
+        metrics.setCached();
+
+        StringBuilder json = new StringBuilder();
+        metrics.appendJson(json, "");
+        String text = json.toString();
+        assertTrue(text, text.startsWith("{\n  \"grammar\": \"dir\\\\Parser.jj\",\n"));
+        assertTrue(text, text.contains("\"bytesWritten\": 42,"));
+        assertTrue(text, text.contains("\"cached\": true,"));
+        assertTrue(text, text.contains("{ \"name\": \"JavaCC\", \"wallTimeMillis\": "));
+        assertTrue(text, text.endsWith("  ]\n}"));
+    }
+
+    public void testMillis() {
+        assertEquals("1.500", GrammarMetrics.millis(1500000));
+        assertEquals("0.000", GrammarMetrics.millis(0));
+    }
+
+    public void testQuote() {
+        assertEquals("\"a\\\"b\\\\c\\u000a\"", GrammarMetrics.quote("a\"b\\c\n"));
+    }
+}
@@ -0,0 +1,146 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Tests <code>HttpRemoteCache</code> against an in-process HTTP server.
+ */
+public class HttpRemoteCacheTest extends TestCase {
+
+    private static final String KEY = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private File directory;
+
+    private HttpServer server;
+
+    private final Map<String, byte[]> contents = new ConcurrentHashMap<>();
+
+    private final Map<String, String> authorizations = new ConcurrentHashMap<>();
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.directory = ScratchDirectory.create("http-remote-cache-test");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/cache/", this::handle);
+        this.server.start();
+    }
+
+    protected void tearDown() throws Exception {
+        this.server.stop(0);
+        ScratchDirectory.delete(this.directory);
+        super.tearDown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization != null) {
+            this.authorizations.put(path, authorization);
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (InputStream is = exchange.getRequestBody()) {
+            byte[] bytes = new byte[1024];
+            for (int n = is.read(bytes); n >= 0; n = is.read(bytes)) {
+                buffer.write(bytes, 0, n);
+            }
+        }
+        if ("PUT".equals(exchange.getRequestMethod())) {
+            this.contents.put(path, buffer.toByteArray());
+            exchange.sendResponseHeaders(201, -1);
+        } else if ("GET".equals(exchange.getRequestMethod()) && this.contents.containsKey(path)) {
+            byte[] bytes = this.contents.get(path);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        } else {
+            exchange.sendResponseHeaders(404, -1);
+        }
+        exchange.close();
+    }
+
+    private String getBaseUrl() {
+        return "http://127.0.0.1:" + this.server.getAddress().getPort() + "/cache";
+    }
+
+    public void testStoreAndFetch() throws Exception {
+        File archive = new File(this.directory, "upload.zip");
+        FileUtils.fileWrite(archive, "UTF-8", "archive");
+
+        HttpRemoteCache cache = new HttpRemoteCache(new URL(getBaseUrl()));
+        File download = new File(this.directory, "download.zip");
+        assertFalse(cache.fetch(KEY, download));
+
+        cache.store(KEY, archive);
+        assertTrue(this.contents.containsKey("/cache/" + KEY + ".zip"));
+
+        assertTrue(cache.fetch(KEY, download));
+        assertEquals("archive", FileUtils.fileRead(download, "UTF-8"));
+    }
+
+    public void testBasicAuthentication() throws Exception {
+        String url = getBaseUrl().replace("http://", "http://user:p%40ss@");
+        HttpRemoteCache cache = new HttpRemoteCache(new URL(url));
+        assertFalse(cache.toString().contains("user"));
+
+        cache.fetch(KEY, new File(this.directory, "download.zip"));
+        assertEquals("Basic dXNlcjpwQHNz", this.authorizations.get("/cache/" + KEY + ".zip"));
+    }
+
+    public void testBuildCacheRoundTrip() throws Exception {
+        File generated = new File(this.directory, "generated/Parser.java");
+        generated.getParentFile().mkdirs();
+        FileUtils.fileWrite(generated, "UTF-8", "class Parser {}");
+
+        BuildCache producer = new BuildCache(new File(this.directory, "producer"));
+        producer.setRemoteCache(new HttpRemoteCache(new URL(getBaseUrl())), true);
+        BuildCache.Entry entry = producer.newEntry();
+        entry.addGroup(0, "org", "Parser*", Collections.singletonList(generated));
+        assertTrue(entry.commit(KEY));
+        entry.discard();
+
+        BuildCache consumer = new BuildCache(new File(this.directory, "consumer"));
+        consumer.setRemoteCache(new HttpRemoteCache(new URL(getBaseUrl())), false);
+        List<BuildCache.Group> groups = consumer.get(KEY);
+        assertNotNull(groups);
+        assertEquals(1, groups.size());
+        assertEquals("org", groups.get(0).getPackageName());
+        File restored = new File(groups.get(0).getDirectory(), "Parser.java");
+        assertEquals("class Parser {}", FileUtils.fileRead(restored, "UTF-8"));
+        assertTrue(consumer.getEntryDirectory(KEY).isDirectory());
+    }
+}
@@ -20,8 +20,12 @@ package org.codehaus.mojo.javacc;
  */
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.List;
 
 import junit.framework.TestCase;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
 
 /**
  * Tests <code>JTB</code> facade.
@@ -69,4 +73,42 @@ public class JTBTest extends TestCase {
 
         assertEquals(new File(outdir, "Test.jj"), output);
     }
+
+    public void testConcurrentRunsInPool() throws Exception {
+        File directory = ScratchDirectory.create("jtb-test");
+        try (ForkedJvmPool pool = new ForkedJvmPool(1, new File(directory, "workers"))) {
+            List<ParallelTasks.Task> tasks = Arrays.asList(
+                    log -> newPooledTool(pool, directory, 1).run(),
+                    log -> newPooledTool(pool, directory, 2).run());
+            Throwable[] failures = ParallelTasks.run(tasks, 2, new SystemStreamLog(), "Failed to run JTB for");
+            assertNull(failures[0]);
+            assertNull(failures[1]);
+
+            for (int i = 1; i <= 2; i++) {
+                assertPackage(new File(directory, "out" + i + "/syntaxtree"), "parser" + i + ".syntaxtree");
+                assertPackage(new File(directory, "out" + i + "/visitor"), "parser" + i + ".visitor");
+            }
+        } finally {
+            ScratchDirectory.delete(directory);
+        }
+    }
+
+    private JTB newPooledTool(ForkedJvmPool pool, File directory, int index) throws Exception {
+        JTB tool = new JTB();
+        tool.setInputFile(
+                new File(getClass().getResource("/Parser" + index + ".jj").toURI()));
+        tool.setOutputDirectory(new File(directory, "out" + index));
+        tool.setPackageName("parser" + index);
+        tool.setForkedJvmPool(pool);
+        return tool;
+    }
+
+    private void assertPackage(File directory, String packageName) throws Exception {
+        File[] files = directory.listFiles();
+        assertNotNull(directory.toString(), files);
+        assertTrue(directory.toString(), files.length > 0);
+        for (File file : files) {
+            assertTrue(file.toString(), FileUtils.fileRead(file).contains("package " + packageName + ";"));
+        }
+    }
 }
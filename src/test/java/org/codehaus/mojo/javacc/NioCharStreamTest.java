@@ -0,0 +1,259 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Tests the class <code>NioCharStream</code> generated by <code>AbstractJavaCCMojo</code>.
+ */
+public class NioCharStreamTest extends TestCase {
+
+    private File directory;
+
+    private File parserDirectory;
+
+    private GrammarInfo grammarInfo;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.directory = ScratchDirectory.create("nio-char-stream-test");
+        this.parserDirectory = new File(this.directory, "parser");
+        this.parserDirectory.mkdirs();
+        File grammarFile = new File(this.directory, "Lines.jj");
+        FileUtils.fileWrite(
+                grammarFile,
+                "UTF-8",
+                "options { USER_CHAR_STREAM = true; }\n"
+                        + "PARSER_BEGIN(Lines)\npackage stream;\npublic class Lines {}\nPARSER_END(Lines)\n");
+        this.grammarInfo = new GrammarInfo(this.directory, grammarFile.getName());
+        // the interface generated by JavaCC for USER_CHAR_STREAM
+        FileUtils.fileWrite(
+                new File(this.parserDirectory, "CharStream.java"),
+                "UTF-8",
+                "package stream;\npublic interface CharStream {\n"
+                        + "  char readChar() throws java.io.IOException;\n"
+                        + "  int getColumn();\n  int getLine();\n"
+                        + "  int getEndColumn();\n  int getEndLine();\n"
+                        + "  int getBeginColumn();\n  int getBeginLine();\n"
+                        + "  void backup(int amount);\n"
+                        + "  char BeginToken() throws java.io.IOException;\n"
+                        + "  String GetImage();\n  char[] GetSuffix(int len);\n  void Done();\n"
+                        + "  void setTabSize(int i);\n  int getTabSize();\n"
+                        + "  boolean getTrackLineColumn();\n  void setTrackLineColumn(boolean trackLineColumn);\n"
+                        + "}\n");
+    }
+
+    protected void tearDown() throws Exception {
+        ScratchDirectory.delete(this.directory);
+        super.tearDown();
+    }
+
+    /**
+     * Generates and compiles <code>NioCharStream</code> and loads its class.
+     */
+    private Class<?> loadCharStream() throws Exception {
+        new JavaCCMojo().generateCharStream(this.grammarInfo, this.parserDirectory);
+        File classes = new File(this.directory, "classes");
+        ParserBenchmark.compile(
+                Arrays.asList(
+                        new File(this.parserDirectory, "CharStream.java"),
+                        new File(this.parserDirectory, "NioCharStream.java")),
+                Collections.<File>emptyList(),
+                Collections.<String>emptyList(),
+                classes,
+                "UTF-8");
+        ClassLoader loader = new URLClassLoader(
+                new URL[] {classes.toURI().toURL()}, getClass().getClassLoader());
+        return loader.loadClass("stream.NioCharStream");
+    }
+
+    private static Object invoke(Object stream, String name, Object... args) throws Exception {
+        for (Method method : stream.getClass().getMethods()) {
+            if (method.getName().equals(name) && method.getParameterTypes().length == args.length) {
+                try {
+                    return method.invoke(stream, args);
+                } catch (InvocationTargetException e) {
+                    throw (Exception) e.getCause();
+                }
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+
+    private static int[] position(Object stream) throws Exception {
+        return new int[] {(Integer) invoke(stream, "getEndLine"), (Integer) invoke(stream, "getEndColumn")};
+    }
+
+    /**
+     * Computes line and column of the character before the specified position like <code>SimpleCharStream</code>.
+     */
+    private static int[] expectedPosition(CharSequence text, int pos, int tabSize) {
+        int line = 1;
+        int column = 0;
+        boolean prevCharIsCR = false;
+        boolean prevCharIsLF = false;
+        for (int i = 0; i < pos; i++) {
+            char c = text.charAt(i);
+            column++;
+            if (prevCharIsLF) {
+                prevCharIsLF = false;
+                line += (column = 1);
+            } else if (prevCharIsCR) {
+                prevCharIsCR = false;
+                if (c == '\n') {
+                    prevCharIsLF = true;
+                } else {
+                    line += (column = 1);
+                }
+            }
+            if (c == '\r') {
+                prevCharIsCR = true;
+            } else if (c == '\n') {
+                prevCharIsLF = true;
+            } else if (c == '\t') {
+                column--;
+                column += (tabSize - (column % tabSize));
+            }
+        }
+        return new int[] {line, column};
+    }
+
+    public void testNotGeneratedForReaderInput() throws Exception {
+        FileUtils.fileWrite(new File(this.parserDirectory, "SimpleCharStream.java"), "UTF-8", "package stream;\n");
+        new JavaCCMojo().generateCharStream(this.grammarInfo, this.parserDirectory);
+        assertFalse(new File(this.parserDirectory, "NioCharStream.java").exists());
+    }
+
+    public void testGenerated() throws Exception {
+        new JavaCCMojo().generateCharStream(this.grammarInfo, this.parserDirectory);
+        String source = FileUtils.fileRead(new File(this.parserDirectory, "NioCharStream.java"), "UTF-8");
+        assertTrue(source.contains("package stream;"));
+        assertTrue(source.contains("public class NioCharStream implements CharStream"));
+    }
+
+    public void testGeneratedInGrammarEncoding() throws Exception {
+        JavaCCMojo mojo = new JavaCCMojo();
+        Field field = AbstractJavaCCMojo.class.getDeclaredField("grammarEncoding");
+        field.setAccessible(true);
+        field.set(mojo, "UTF-16BE");
+        mojo.generateCharStream(this.grammarInfo, this.parserDirectory);
+        String source = FileUtils.fileRead(new File(this.parserDirectory, "NioCharStream.java"), "UTF-16BE");
+        assertTrue(source.contains("package stream;"));
+    }
+
+    public void testReadTokens() throws Exception {
+        Object stream = loadCharStream().getConstructor(CharSequence.class).newInstance("ab\ncd\r\n\tef");
+        invoke(stream, "setTabSize", 4);
+        assertEquals('a', invoke(stream, "BeginToken"));
+        assertEquals('b', invoke(stream, "readChar"));
+        assertEquals('\n', invoke(stream, "readChar"));
+        invoke(stream, "backup", 1);
+        assertEquals("ab", invoke(stream, "GetImage"));
+        assertEquals(1, invoke(stream, "getBeginLine"));
+        assertEquals(1, invoke(stream, "getBeginColumn"));
+        assertTrue(Arrays.equals(new int[] {1, 2}, position(stream)));
+        assertTrue(Arrays.equals("b".toCharArray(), (char[]) invoke(stream, "GetSuffix", 1)));
+
+        assertEquals('\n', invoke(stream, "BeginToken"));
+        assertEquals('c', invoke(stream, "BeginToken"));
+        assertEquals(2, invoke(stream, "getBeginLine"));
+        assertEquals(1, invoke(stream, "getBeginColumn"));
+        for (int i = 0; i < 4; i++) {
+            invoke(stream, "readChar");
+        }
+        assertEquals('e', invoke(stream, "BeginToken"));
+        assertEquals(3, invoke(stream, "getBeginLine"));
+        assertEquals(5, invoke(stream, "getBeginColumn"));
+        assertEquals('f', invoke(stream, "readChar"));
+        try {
+            invoke(stream, "readChar");
+            fail("Missing IOException at end of input");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals("ef", invoke(stream, "GetImage"));
+    }
+
+    public void testBackupMatchesSimpleCharStream() throws Exception {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        String alphabet = "ab \t\r\n";
+        for (int i = 0; i < 5000; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        Object stream = loadCharStream().getConstructor(CharSequence.class).newInstance(CharBuffer.wrap(text));
+        invoke(stream, "setTabSize", 8);
+        int pos = 0;
+        while (pos < text.length() - 1) {
+            invoke(stream, "BeginToken");
+            int tokenBegin = pos++;
+            // read ahead up to well beyond the remembered history and back up to end the token
+            int ahead = random.nextInt(random.nextBoolean() ? 8 : 600);
+            for (int i = 0; i < ahead && pos < text.length(); i++, pos++) {
+                invoke(stream, "readChar");
+            }
+            int back = random.nextInt(pos - tokenBegin);
+            invoke(stream, "backup", back);
+            pos -= back;
+            assertEquals(text.substring(tokenBegin, pos), invoke(stream, "GetImage"));
+            int[] expected = expectedPosition(text, pos, 8);
+            int[] actual = position(stream);
+            assertTrue(
+                    "at " + pos + ": " + Arrays.toString(expected) + " != " + Arrays.toString(actual),
+                    Arrays.equals(expected, actual));
+        }
+    }
+
+    public void testMappedFile() throws Exception {
+        Class<?> type = loadCharStream();
+        String text = "café\nnaïve";
+        File latin1 = new File(this.directory, "latin1.txt");
+        FileUtils.fileWrite(latin1, "ISO-8859-1", text);
+        File utf8 = new File(this.directory, "utf8.txt");
+        FileUtils.fileWrite(utf8, "UTF-8", text);
+        for (Object stream : new Object[] {
+            type.getConstructor(File.class, String.class).newInstance(latin1, "ISO-8859-1"),
+            type.getConstructor(File.class, String.class).newInstance(utf8, "UTF-8")
+        }) {
+            assertEquals(Long.valueOf(text.length()), invoke(stream, "length"));
+            invoke(stream, "BeginToken");
+            for (int i = 1; i < text.length(); i++) {
+                invoke(stream, "readChar");
+            }
+            assertEquals(text, invoke(stream, "GetImage"));
+            assertTrue(Arrays.equals(new int[] {2, 5}, position(stream)));
+            invoke(stream, "Done");
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+/**
+ * Tests <code>ParallelTasks</code>.
+ */
+public class ParallelTasksTest extends TestCase {
+
+    public void testGetThreadCount() {
+        assertEquals(3, ParallelTasks.getThreadCount(3));
+        assertEquals(Runtime.getRuntime().availableProcessors(), ParallelTasks.getThreadCount(0));
+    }
+
+    public void testOutputIsFlushedInOrderAndAllTasksRun() throws Exception {
+        // the first task only finishes after the last one started, so the tasks really overlap
+        CountDownLatch lastStarted = new CountDownLatch(1);
+        List<NamedTask> tasks = Arrays.asList(
+                new NamedTask("a", log -> {
+                    lastStarted.await();
+                    log.info("a");
+                    throw new IllegalStateException("a failed");
+                }),
+                new NamedTask("b", log -> log.info("b")),
+                new NamedTask("c", log -> {
+                    lastStarted.countDown();
+                    log.info("c");
+                    throw new IllegalStateException("c failed");
+                }));
+
+        RecordingLog log = new RecordingLog();
+        Throwable[] failures = ParallelTasks.run(tasks, 3, log, "Failed to run");
+        assertEquals(
+                "[info:a, error:Failed to run a: a failed, info:b, info:c, error:Failed to run c: c failed]",
+                log.messages.toString());
+        assertEquals("a failed", failures[0].getMessage());
+        assertNull(failures[1]);
+        assertEquals("c failed", failures[2].getMessage());
+    }
+
+    /**
+     * A task with a name.
+     */
+    private static class NamedTask implements ParallelTasks.Task {
+
+        private final String name;
+
+        private final ParallelTasks.Task body;
+
+        NamedTask(String name, ParallelTasks.Task body) {
+            this.name = name;
+            this.body = body;
+        }
+
+        public void run(Log log) throws Exception {
+            this.body.run(log);
+        }
+
+        public String toString() {
+            return this.name;
+        }
+    }
+
+    /**
+     * Records the messages logged at the info and error levels.
+     */
+    private static class RecordingLog extends SystemStreamLog {
+
+        private final List<String> messages = new ArrayList<>();
+
+        public void info(CharSequence content) {
+            info(content, null);
+        }
+
+        public void info(CharSequence content, Throwable error) {
+            this.messages.add("info:" + content);
+        }
+
+        public void error(CharSequence content) {
+            error(content, null);
+        }
+
+        public void error(CharSequence content, Throwable error) {
+            this.messages.add("error:" + content);
+        }
+    }
+}
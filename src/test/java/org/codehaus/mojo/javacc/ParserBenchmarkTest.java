@@ -0,0 +1,242 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Tests <code>ParserBenchmark</code>.
+ */
+public class ParserBenchmarkTest extends TestCase {
+
+    private File directory;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.directory = ScratchDirectory.create("parser-benchmark-test");
+    }
+
+    protected void tearDown() throws Exception {
+        ScratchDirectory.delete(this.directory);
+        super.tearDown();
+    }
+
+    /**
+     * Writes the sources of a parser that mimics the API of a parser generated by JavaCC. The parser accepts words of
+     * lower case letters.
+     */
+    private File writeParser(boolean isStatic) throws IOException {
+        String s = isStatic ? "static " : "";
+        File sources = new File(this.directory, "src");
+        File packageDirectory = new File(sources, "bench");
+        packageDirectory.mkdirs();
+        FileUtils.fileWrite(
+                new File(packageDirectory, "Token.java"),
+                "UTF-8",
+                "package bench;\npublic class Token { public int kind; public String image; }\n");
+        FileUtils.fileWrite(
+                new File(packageDirectory, "ParseException.java"),
+                "UTF-8",
+                "package bench;\npublic class ParseException extends Exception {\n"
+                        + "  public ParseException(String message) { super(message); }\n}\n");
+        File parserFile = new File(packageDirectory, "WordParser.java");
+        FileUtils.fileWrite(
+                parserFile,
+                "UTF-8",
+                "package bench;\n"
+                        + "public class WordParser {\n"
+                        + "  " + s + "boolean initialized;\n"
+                        + "  " + s + "String[] words;\n"
+                        + "  " + s + "int next;\n"
+                        + "  public WordParser(java.io.Reader in) {\n"
+                        + "    if (initialized) throw new Error(\"Second call to constructor of static parser\");\n"
+                        + "    initialized = " + isStatic + ";\n"
+                        + "    ReInit(in);\n"
+                        + "  }\n"
+                        + "  " + s + "public void ReInit(java.io.Reader in) {\n"
+                        + "    StringBuilder text = new StringBuilder();\n"
+                        + "    try {\n"
+                        + "      for (int c; (c = in.read()) >= 0; ) text.append((char) c);\n"
+                        + "    } catch (java.io.IOException e) {\n"
+                        + "      throw new RuntimeException(e);\n"
+                        + "    }\n"
+                        + "    String trimmed = text.toString().trim();\n"
+                        + "    words = trimmed.isEmpty() ? new String[0] : trimmed.split(\"\\\\s+\");\n"
+                        + "    next = 0;\n"
+                        + "  }\n"
+                        + "  " + s + "final public Token getNextToken() {\n"
+                        + "    Token token = new Token();\n"
+                        + "    if (next < words.length) { token.kind = 1; token.image = words[next++]; }\n"
+                        + "    return token;\n"
+                        + "  }\n"
+                        + "  " + s + "final public Token getToken(int index) { return null; }\n"
+                        + "  " + s + "final public void Words() throws ParseException {\n"
+                        + "    for (Token t; (t = getNextToken()).kind != 0; ) {\n"
+                        + "      if (!t.image.matches(\"[a-z]+\")) {\n"
+                        + "        throw new ParseException(\"Bad word: \" + t.image);\n"
+                        + "      }\n"
+                        + "    }\n"
+                        + "  }\n"
+                        + "  " + s + "final public void Word() throws ParseException {}\n"
+                        + "}\n");
+        return parserFile;
+    }
+
+    private Class<?> compileParser(File parserFile) throws Exception {
+        File classes = new File(this.directory, "classes");
+        ParserBenchmark.compile(
+                Collections.singletonList(parserFile),
+                Collections.singletonList(new File(this.directory, "src")),
+                Collections.<String>emptyList(),
+                classes,
+                "UTF-8");
+        assertTrue(new File(classes, "bench/Token.class").isFile());
+        URLClassLoader loader = new URLClassLoader(new URL[] {classes.toURI().toURL()}, null);
+        return loader.loadClass("bench.WordParser");
+    }
+
+    public void testFindStartProduction() throws Exception {
+        assertEquals("Words", ParserBenchmark.findStartProduction(writeParser(false), "UTF-8"));
+        assertEquals("Words", ParserBenchmark.findStartProduction(writeParser(true), "UTF-8"));
+    }
+
+    public void testFindStartProductionNone() throws Exception {
+        File file = new File(this.directory, "Empty.java");
+        FileUtils.fileWrite(file, "UTF-8", "public class Empty {\n  final public Token getNextToken() {}\n}\n");
+        assertNull(ParserBenchmark.findStartProduction(file, "UTF-8"));
+    }
+
+    public void testRun() throws Exception {
+        ParserBenchmark benchmark = new ParserBenchmark(compileParser(writeParser(false)), "Words");
+        benchmark.addInput("a.txt", "one two three", 13);
+        benchmark.addInput("b.txt", "four", 4);
+        assertEquals(2, benchmark.getInputCount());
+
+        ParserBenchmark.Result result = benchmark.run(1, 3, 20);
+        assertEquals("bench.WordParser", result.getParserName());
+        assertEquals("Words", result.getProductionName());
+        assertTrue(result.getParsesPerSecond() > 0);
+        assertTrue(result.getParsesPerSecondError() >= 0);
+        assertTrue(result.getTokensPerSecond() > result.getParsesPerSecond());
+        assertTrue(result.getBytesPerSecond() > result.getParsesPerSecond());
+        if (ParserBenchmark.currentAllocatedBytes() >= 0) {
+            assertTrue(result.getAllocatedBytesPerParse() > 0);
+            assertTrue(result.getAllocatedBytesPerInputByte() > 0);
+        }
+
+        StringBuilder json = new StringBuilder();
+        result.appendJson(json, "");
+        assertTrue(json.toString(), json.toString().startsWith("{\n  \"parser\": \"bench.WordParser\",\n"));
+        assertTrue(json.toString(), json.toString().contains("\"tokensPerSecond\": "));
+    }
+
+    public void testRunStaticParser() throws Exception {
+        ParserBenchmark benchmark = new ParserBenchmark(compileParser(writeParser(true)), "Words");
+        benchmark.addInput("a.txt", "one two three", 13);
+        benchmark.addInput("b.txt", "four", 4);
+
+        ParserBenchmark.Result result = benchmark.run(0, 2, 10);
+        assertTrue(result.getParsesPerSecond() > 0);
+    }
+
+    public void testRunCharStreamParser() throws Exception {
+        File parserFile = writeParser(false);
+        // mimic a parser generated with USER_CHAR_STREAM along with the NioCharStream generated by the plugin
+        FileUtils.fileWrite(
+                parserFile,
+                "UTF-8",
+                FileUtils.fileRead(parserFile, "UTF-8").replace("java.io.Reader in", "CharStream in"));
+        FileUtils.fileWrite(
+                new File(parserFile.getParentFile(), "CharStream.java"),
+                "UTF-8",
+                "package bench;\npublic interface CharStream { int read() throws java.io.IOException; }\n");
+        File charStreamFile = new File(parserFile.getParentFile(), "NioCharStream.java");
+        FileUtils.fileWrite(
+                charStreamFile,
+                "UTF-8",
+                "package bench;\npublic class NioCharStream implements CharStream {\n"
+                        + "  private final CharSequence text;\n  private int pos;\n"
+                        + "  public NioCharStream(CharSequence text) { this.text = text; }\n"
+                        + "  public int read() { return pos < text.length() ? text.charAt(pos++) : -1; }\n}\n");
+
+        try {
+            new ParserBenchmark(compileParser(parserFile), "Words");
+            fail("Missing exception");
+        } catch (NoSuchMethodException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("bench.NioCharStream"));
+        }
+
+        ParserBenchmark.compile(
+                Collections.singletonList(charStreamFile),
+                Collections.singletonList(new File(this.directory, "src")),
+                Collections.<String>emptyList(),
+                new File(this.directory, "classes"),
+                "UTF-8");
+        ParserBenchmark benchmark = new ParserBenchmark(compileParser(parserFile), "Words");
+        benchmark.addInput("a.txt", "one two three", 13);
+        assertTrue(benchmark.run(0, 1, 10).getTokensPerSecond() > 0);
+    }
+
+    public void testRejectedInput() throws Exception {
+        ParserBenchmark benchmark = new ParserBenchmark(compileParser(writeParser(false)), "Words");
+        try {
+            benchmark.addInput("bad.txt", "one 2 three", 11);
+            fail("Missing exception");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("bad.txt"));
+            assertEquals("bench.ParseException", e.getCause().getClass().getName());
+        }
+        assertEquals(0, benchmark.getInputCount());
+    }
+
+    public void testUnknownProduction() throws Exception {
+        try {
+            new ParserBenchmark(compileParser(writeParser(false)), "Missing");
+            fail("Missing exception");
+        } catch (NoSuchMethodException e) {
+            // expected
+        }
+    }
+
+    public void testCompileFailure() throws Exception {
+        File file = new File(this.directory, "src/Broken.java");
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite(file, "UTF-8", "public class Broken { int x = ; }\n");
+        try {
+            ParserBenchmark.compile(
+                    Arrays.asList(file),
+                    Collections.<File>emptyList(),
+                    Collections.<String>emptyList(),
+                    new File(this.directory, "classes"),
+                    null);
+            fail("Missing exception");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Broken.java"));
+        }
+    }
+}
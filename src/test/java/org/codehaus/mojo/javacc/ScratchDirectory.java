@@ -0,0 +1,57 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Provides the scratch directories of the tests below <code>target/</code>.
+ */
+class ScratchDirectory {
+
+    /**
+     * Creates an empty scratch directory, deleting whatever a previous test run left behind.
+     *
+     * @param name The name of the directory below <code>target/</code>, must not be <code>null</code>.
+     * @return The absolute path to the empty directory, never <code>null</code>.
+     * @throws IOException If the directory could not be emptied.
+     */
+    static File create(String name) throws IOException {
+        File directory = new File("target/" + name).getAbsoluteFile();
+        FileUtils.deleteDirectory(directory);
+        directory.mkdirs();
+        return directory;
+    }
+
+    /**
+     * Deletes a scratch directory along with its contents.
+     *
+     * @param directory The scratch directory, may be <code>null</code> if the test failed to create it.
+     * @throws IOException If the directory could not be deleted.
+     */
+    static void delete(File directory) throws IOException {
+        if (directory != null) {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Supports {@link ToolClassLoaderPoolTest}.
+ */
+public class StaticStateStub {
+
+    private static int invocations;
+
+    public static int mainProgram(String[] args) {
+        if (args.length > 0 && "fail".equals(args[0])) {
+            throw new IllegalStateException("failed");
+        }
+        return ++invocations;
+    }
+
+    public String main(String[] args) {
+        return getClass().getClassLoader().getClass().getName();
+    }
+}
@@ -0,0 +1,100 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests <code>ToolClassLoaderPool</code>.
+ */
+public class ToolClassLoaderPoolTest extends TestCase {
+
+    private static final String STUB = StaticStateStub.class.getName();
+
+    public void testStaticStateIsIsolatedFromPluginClassLoader() throws Exception {
+        int before = StaticStateStub.mainProgram(new String[0]);
+        try (ToolClassLoaderPool pool = new ToolClassLoaderPool(1, StaticStateStub.class)) {
+            assertEquals(1, pool.invoke(STUB, "mainProgram", new String[0]));
+        }
+        assertEquals(before + 1, StaticStateStub.mainProgram(new String[0]));
+    }
+
+    public void testClassLoaderIsReused() throws Exception {
+        try (ToolClassLoaderPool pool = new ToolClassLoaderPool(1, StaticStateStub.class)) {
+            assertEquals(1, pool.invoke(STUB, "mainProgram", new String[0]));
+            assertEquals(2, pool.invoke(STUB, "mainProgram", new String[0]));
+        }
+    }
+
+    public void testClassLoaderIsReplacedAfterFailure() throws Exception {
+        try (ToolClassLoaderPool pool = new ToolClassLoaderPool(1, StaticStateStub.class)) {
+            assertEquals(1, pool.invoke(STUB, "mainProgram", new String[0]));
+            try {
+                pool.invoke(STUB, "mainProgram", new String[] {"fail"});
+                fail("Missing exception");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            assertEquals(1, pool.invoke(STUB, "mainProgram", new String[0]));
+        }
+    }
+
+    public void testInstanceMethod() throws Exception {
+        try (ToolClassLoaderPool pool = new ToolClassLoaderPool(1, StaticStateStub.class)) {
+            assertEquals("java.net.URLClassLoader", pool.invoke(STUB, "main", new String[0]));
+        }
+    }
+
+    public void testConcurrentInvocations() throws Exception {
+        List<Object> results = Collections.synchronizedList(new ArrayList<>());
+        try (ToolClassLoaderPool pool = new ToolClassLoaderPool(2, StaticStateStub.class)) {
+            Thread[] threads = new Thread[4];
+            Exception[] errors = new Exception[threads.length];
+            for (int i = 0; i < threads.length; i++) {
+                int index = i;
+                threads[i] = new Thread(() -> {
+                    try {
+                        for (int j = 0; j < 10; j++) {
+                            results.add(pool.invoke(STUB, "mainProgram", new String[0]));
+                        }
+                    } catch (Exception e) {
+                        errors[index] = e;
+                    }
+                });
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            for (Exception error : errors) {
+                assertNull(error);
+            }
+        }
+        // each class loader counts its invocations without interference
+        assertEquals(40, results.size());
+        for (Object result : results) {
+            assertTrue(Collections.frequency(results, result) <= 2);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.codehaus.mojo.javacc;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Tests <code>ToolSandbox</code>.
+ */
+public class ToolSandboxTest extends TestCase {
+
+    private final List<String> out = new ArrayList<>();
+
+    private final List<String> err = new ArrayList<>();
+
+    private int run(Callable<Integer> tool) throws Exception {
+        StreamConsumer outConsumer = this.out::add;
+        StreamConsumer errConsumer = this.err::add;
+        return ToolSandbox.run(tool, outConsumer, errConsumer);
+    }
+
+    public void testOutputIsRouted() throws Exception {
+        int exitCode = run(() -> {
+            System.out.println("first");
+            System.out.print("second\r\nthird");
+            System.err.println("error");
+            Thread thread = new Thread(() -> System.out.println("not routed"));
+            thread.start();
+            thread.join();
+            return 2;
+        });
+        assertEquals(2, exitCode);
+        assertEquals("[first, second, third]", this.out.toString());
+        assertEquals("[error]", this.err.toString());
+    }
+
+    public void testConsumerMayWriteToConsole() throws Exception {
+        StreamConsumer echo = line -> {
+            this.out.add(line);
+            System.out.println("echo " + line);
+        };
+        int exitCode = ToolSandbox.run(
+                () -> {
+                    System.out.println("line");
+                    return 0;
+                },
+                echo,
+                this.err::add);
+        assertEquals(0, exitCode);
+        assertEquals("[line]", this.out.toString());
+    }
+
+    public void testStreamsAreRestored() throws Exception {
+        PrintStream systemOut = System.out;
+        PrintStream systemErr = System.err;
+        run(() -> 0);
+        assertSame(systemOut, System.out);
+        assertSame(systemErr, System.err);
+    }
+
+    public void testStreamsReplacedMeanwhileAreKept() throws Exception {
+        PrintStream systemOut = System.out;
+        PrintStream replacement = new PrintStream(systemOut, true);
+        try {
+            run(() -> {
+                System.setOut(replacement);
+                return 0;
+            });
+            assertSame(replacement, System.out);
+        } finally {
+            System.setOut(systemOut);
+        }
+    }
+}